@@ -0,0 +1,63 @@
+#!/bin/sh
+#
+# I/Oスレッドプールと仮想スレッドで、同時接続数の多い場合のスループットとレイテンシを比較します
+# 事前に ./gradlew shadowJar でjarを作成し、hey(https://github.com/rakyll/hey)をインストールしてください
+# 仮想スレッドの計測にはJava 21以降が必要です
+# IMAGEにDockerイメージを指定すると、jarの代わりにそのイメージを起動して計測します
+#   docker build -f Dockerfile.java21 -t complete:java21 . && IMAGE=complete:java21 bench/execution-mode.sh
+#
+# 結果は計測環境とともに bench/results/execution-mode-<日付>.txt に出力します
+#
+# 使い方: bench/execution-mode.sh [同時接続数] [リクエスト数]
+
+CONCURRENCY=${1:-1000}
+REQUESTS=${2:-100000}
+JAR=$(ls build/libs/complete-*-all.jar | head -n 1)
+URL=http://localhost:8080
+mkdir -p bench/results
+RESULT=bench/results/execution-mode-$(date +%Y%m%d).txt
+
+{
+    echo "date: $(date -u +%Y-%m-%dT%H:%M:%SZ)"
+    if [ -n "$IMAGE" ]; then
+        echo "image: $IMAGE"
+        echo "java: $(docker run --rm "$IMAGE" java -version 2>&1 | head -n 1)"
+    else
+        echo "java: $(java -version 2>&1 | head -n 1)"
+    fi
+    echo "cpus: $(nproc 2> /dev/null || sysctl -n hw.ncpu)"
+    echo "pool size: ${JDBC_POOL_SIZE:-10}"
+} > "$RESULT"
+
+for MODE in pool virtual; do
+    if [ -n "$IMAGE" ]; then
+        CONTAINER=$(docker run -d -p 8080:8080 -e APPLICATION_EXECUTION_MODE=$MODE \
+            -e JDBC_POOL_SIZE=${JDBC_POOL_SIZE:-10} "$IMAGE")
+    else
+        APPLICATION_EXECUTION_MODE=$MODE java -jar "$JAR" > /dev/null 2>&1 &
+        PID=$!
+    fi
+    until curl -s -o /dev/null $URL/books; do
+        sleep 1
+    done
+
+    # 計測用の著者と書籍を登録
+    AUTHOR=$(curl -s -H 'Content-Type: application/json' -d '{"name":"bench"}' $URL/authors | sed 's/.*"id":\([0-9]*\).*/\1/')
+    for I in $(seq 1 100); do
+        curl -s -o /dev/null -H 'Content-Type: application/json' \
+            -d "{\"isbn\":\"bench-$I\",\"title\":\"bench $I\",\"authorId\":$AUTHOR}" $URL/books
+    done
+
+    {
+        echo "== $MODE (c=$CONCURRENCY, n=$REQUESTS)"
+        hey -c "$CONCURRENCY" -n "$REQUESTS" "$URL/books/search?keyword=bench" \
+            | grep -E 'Requests/sec|99%|Status code|\[[0-9]+\]'
+    } | tee -a "$RESULT"
+
+    if [ -n "$IMAGE" ]; then
+        docker rm -f "$CONTAINER" > /dev/null
+    else
+        kill $PID
+        wait $PID 2> /dev/null
+    fi
+done
@@ -0,0 +1,85 @@
+package example.micronaut.benchmark;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BatchResult;
+import example.micronaut.domain.BookBatchWriter;
+import example.micronaut.domain.NewBook;
+import io.micronaut.context.ApplicationContext;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Seeded catalog of authors and books for benchmarks
+ * 計測ごとに別のインメモリH2を使い、指定した件数の書籍を登録します
+ *
+ * @author Yudai Tokunaga
+ */
+final class Catalog {
+
+    /**
+     * 著者1人あたりの書籍数
+     */
+    static final int BOOKS_PER_AUTHOR = 10;
+
+    /**
+     * 検索で使うキーワード。書籍数が10倍になるごとにおよそ10倍の書籍が該当します
+     */
+    static final String KEYWORD = "title 42";
+
+    private final List<Long> authorIds = new ArrayList<>();
+
+    private final List<Long> bookIds = new ArrayList<>();
+
+    private Catalog() {
+    }
+
+    /**
+     * 計測用のDBと設定を返却します
+     *
+     * @return アプリケーションの設定
+     */
+    static Map<String, Object> properties(String database, int cacheSize) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("datasources.default.url", "jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        properties.put("jpa.default.properties.hibernate.show_sql", false);
+        properties.put("application.cache-size", cacheSize);
+        return properties;
+    }
+
+    /**
+     * 著者と書籍を登録します
+     *
+     * @return 登録した著者と書籍のID
+     */
+    static Catalog seed(ApplicationContext context, int books) {
+        AuthorRepository authorRepository = context.getBean(AuthorRepository.class);
+        BookBatchWriter bookBatchWriter = context.getBean(BookBatchWriter.class);
+
+        Catalog catalog = new Catalog();
+        int authors = Math.max(1, books / BOOKS_PER_AUTHOR);
+        for (int i = 0; i < authors; i++) {
+            catalog.authorIds.add(authorRepository.save("Author " + i).getId());
+        }
+
+        List<NewBook> newBooks = new ArrayList<>(books);
+        for (int i = 0; i < books; i++) {
+            newBooks.add(new NewBook("isbn-" + i, "Book title " + i, catalog.authorIds.get(i % authors)));
+        }
+        for (BatchResult result : bookBatchWriter.write(newBooks)) {
+            catalog.bookIds.add(result.getId());
+        }
+        return catalog;
+    }
+
+    Long randomBookId() {
+        return bookIds.get(ThreadLocalRandom.current().nextInt(bookIds.size()));
+    }
+
+    Long randomAuthorId() {
+        return authorIds.get(ThreadLocalRandom.current().nextInt(authorIds.size()));
+    }
+}
@@ -0,0 +1,70 @@
+package example.micronaut.benchmark;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.BlockingHttpClient;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the book endpoints through the embedded server
+ * ルーティング、コントローラー、リポジトリ、JSON変換までを含めて計測します
+ *
+ * @author Yudai Tokunaga
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ControllerBenchmark {
+
+    @Param({"10000"})
+    private int catalogSize;
+
+    private EmbeddedServer server;
+    private HttpClient client;
+    private BlockingHttpClient blocking;
+    private Catalog catalog;
+    private String etag;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        server = ApplicationContext.run(EmbeddedServer.class, Catalog.properties("controller-" + catalogSize, 1000));
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+        blocking = client.toBlocking();
+        catalog = Catalog.seed(server.getApplicationContext(), catalogSize);
+        etag = blocking.exchange(HttpRequest.GET("/books"), String.class).header(HttpHeaders.ETAG);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.stop();
+        server.stop();
+    }
+
+    @Benchmark
+    public String showBook() {
+        return blocking.retrieve("/books/" + catalog.randomBookId());
+    }
+
+    @Benchmark
+    public String listBooks() {
+        return blocking.retrieve("/books");
+    }
+
+    @Benchmark
+    public HttpResponse<String> listBooksNotModified() {
+        return blocking.exchange(HttpRequest.GET("/books").header(HttpHeaders.IF_NONE_MATCH, etag), String.class);
+    }
+
+    @Benchmark
+    public String searchBooks() {
+        return blocking.retrieve("/books/search?keyword=" + URLEncoder.encode(Catalog.KEYWORD, StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,75 @@
+package example.micronaut.benchmark;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BatchResult;
+import example.micronaut.domain.BookBatchWriter;
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.NewBook;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.entity.PooledSequenceGenerator;
+import io.micronaut.context.ApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of inserts by the size of the id block reserved per sequence call
+ * incrementSizeが1の場合は登録ごとにシーケンスを呼び出す、プール導入前の採番と同じ動きになります
+ *
+ * @author Yudai Tokunaga
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IdGenerationBenchmark {
+
+    /**
+     * まとめて登録する書籍数
+     */
+    private static final int BATCH_SIZE = 50;
+
+    @Param({"1", "50"})
+    private int incrementSize;
+
+    private ApplicationContext context;
+    private BookRepository bookRepository;
+    private BookBatchWriter bookBatchWriter;
+    private Author author;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Map<String, Object> properties = Catalog.properties("id-generation-" + incrementSize, 0);
+        properties.put("jpa.default.properties." + PooledSequenceGenerator.INCREMENT_SIZE_SETTING, incrementSize);
+        context = ApplicationContext.run(properties);
+        bookRepository = context.getBean(BookRepository.class);
+        bookBatchWriter = context.getBean(BookBatchWriter.class);
+        author = context.getBean(AuthorRepository.class).save("Benchmark author");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book saveBook() {
+        return bookRepository.save("bench-" + sequence.incrementAndGet(), "Benchmark title", author);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatchResult> saveBooks() {
+        List<NewBook> books = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            books.add(new NewBook("bench-" + sequence.incrementAndGet(), "Benchmark title", author.getId()));
+        }
+        return bookBatchWriter.write(books);
+    }
+}
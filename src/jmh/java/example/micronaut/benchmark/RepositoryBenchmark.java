@@ -0,0 +1,103 @@
+package example.micronaut.benchmark;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.view.AuthorView;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.ApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Benchmarks of book and author repositories against seeded H2
+ * キャッシュの有無と書籍数ごとに計測します
+ * saveは計測中に書籍が増えるため、書籍数は計測開始時の件数です
+ *
+ * @author Yudai Tokunaga
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RepositoryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int catalogSize;
+
+    @Param({"0", "1000"})
+    private int cacheSize;
+
+    private ApplicationContext context;
+    private BookRepository bookRepository;
+    private AuthorRepository authorRepository;
+    private Catalog catalog;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = ApplicationContext.run(Catalog.properties("repository-" + catalogSize + "-" + cacheSize, cacheSize));
+        bookRepository = context.getBean(BookRepository.class);
+        authorRepository = context.getBean(AuthorRepository.class);
+        catalog = Catalog.seed(context, catalogSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> findBookById() {
+        return bookRepository.findById(catalog.randomBookId());
+    }
+
+    @Benchmark
+    public Optional<Author> findAuthorById() {
+        return authorRepository.findById(catalog.randomAuthorId());
+    }
+
+    @Benchmark
+    public List<BookView> findBooksByKeyword() {
+        return bookRepository.findByKeyword(Catalog.KEYWORD);
+    }
+
+    @Benchmark
+    public List<AuthorView> findAuthorsByKeyword() {
+        return authorRepository.findByKeyword("42");
+    }
+
+    @Benchmark
+    public List<BookView> findAllBooks() {
+        return bookRepository.findAll(catalog.randomBookId(), 10);
+    }
+
+    @Benchmark
+    public List<AuthorView> findAllAuthors() {
+        return authorRepository.findAll(catalog.randomAuthorId(), 10);
+    }
+
+    @Benchmark
+    public Book saveBook() {
+        Author author = authorRepository.findById(catalog.randomAuthorId()).get();
+        return bookRepository.save("bench-" + sequence.incrementAndGet(), "Benchmark title", author);
+    }
+
+    @Benchmark
+    public int updateBook() {
+        Long id = catalog.randomBookId();
+        return bookRepository.patch(id, null, "Book title " + ThreadLocalRandom.current().nextInt(catalogSize), null, null);
+    }
+
+    @Benchmark
+    public int updateAuthor() {
+        Long id = catalog.randomAuthorId();
+        return authorRepository.update(id, "Author " + id + "-" + sequence.incrementAndGet());
+    }
+}
@@ -0,0 +1,76 @@
+package example.micronaut.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.ApplicationContext;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of JSON serialization of book and author lists
+ * アプリケーションと同じ設定のObjectMapperを使います
+ *
+ * @author Yudai Tokunaga
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int size;
+
+    private ApplicationContext context;
+    private ObjectMapper objectMapper;
+    private List<Book> books;
+    private List<BookView> bookViews;
+    private List<Author> authors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = ApplicationContext.build()
+                .properties(Collections.singletonMap("datasources.default.url", "jdbc:h2:mem:serialization"))
+                .start();
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        books = new ArrayList<>(size);
+        bookViews = new ArrayList<>(size);
+        authors = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Author author = new Author("Author " + i);
+            author.setId((long) i);
+            authors.add(author);
+            Book book = new Book("isbn-" + i, "Book title " + i, author);
+            book.setId((long) i);
+            books.add(book);
+            bookViews.add(new BookView((long) i, "isbn-" + i, "Book title " + i, 0L, null, (long) i, "Author " + i, 0L, null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] books() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    @Benchmark
+    public byte[] bookViews() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(bookViews);
+    }
+
+    @Benchmark
+    public byte[] authors() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(authors);
+    }
+}
@@ -0,0 +1,111 @@
+package example.micronaut.load;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Settings of the load test given as system properties
+ * ./gradlew loadTest -Dload.rate=500 のように指定します
+ *
+ * @author Yudai Tokunaga
+ */
+final class LoadSettings {
+
+    /**
+     * 既定のリクエストの構成比。本番のトラフィックに合わせてload.mixで上書きします
+     */
+    private static final String DEFAULT_MIX = "GET_BOOK=40,LIST_BOOKS=10,SEARCH_BOOKS=10,POST_BOOK=8,PUT_BOOK=6,DELETE_BOOK=4,"
+            + "GET_AUTHOR=10,LIST_AUTHORS=4,SEARCH_AUTHORS=2,POST_AUTHOR=2,PUT_AUTHOR=2,DELETE_AUTHOR=2";
+
+    /**
+     * 全体の目標リクエスト数(毎秒)
+     */
+    final int rate = Integer.getInteger("load.rate", 200);
+
+    /**
+     * 同時にリクエストを発行するクライアント数
+     */
+    final int workers = Integer.getInteger("load.workers", 32);
+
+    /**
+     * 計測しない暖機時間(秒)
+     */
+    final int warmupSeconds = Integer.getInteger("load.warmup", 10);
+
+    /**
+     * 計測時間(秒)
+     */
+    final int durationSeconds = Integer.getInteger("load.duration", 30);
+
+    /**
+     * 事前に登録する書籍数。著者1人あたり10冊で登録します
+     */
+    final int catalogSize = Integer.getInteger("load.catalog", 1000);
+
+    /**
+     * 許容するパーセンタイルごとのレイテンシ(ミリ秒)
+     */
+    final long maxP50Millis = Long.getLong("load.max.p50", 20);
+    final long maxP90Millis = Long.getLong("load.max.p90", 50);
+    final long maxP99Millis = Long.getLong("load.max.p99", 200);
+    final long maxP999Millis = Long.getLong("load.max.p999", 500);
+
+    /**
+     * 許容するエラー率
+     */
+    final double maxErrorRate = Double.parseDouble(System.getProperty("load.max.errors", "0.001"));
+
+    /**
+     * 目標に対して最低限必要なスループットの割合
+     */
+    final double minThroughputRatio = Double.parseDouble(System.getProperty("load.min.throughput", "0.95"));
+
+    private final Map<Operation, Integer> mix = parseMix(System.getProperty("load.mix", DEFAULT_MIX));
+
+    private final List<Operation> wheel = new ArrayList<>();
+
+    LoadSettings() {
+        mix.forEach((operation, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                wheel.add(operation);
+            }
+        });
+        if (wheel.isEmpty()) {
+            throw new IllegalArgumentException("load.mix has no operations");
+        }
+    }
+
+    /**
+     * 構成比に従ってリクエストの種類を選びます
+     *
+     * @return リクエストの種類
+     */
+    Operation nextOperation() {
+        return wheel.get(ThreadLocalRandom.current().nextInt(wheel.size()));
+    }
+
+    Map<Operation, Integer> getMix() {
+        return mix;
+    }
+
+    private static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] pair = entry.trim().split("=");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid load.mix entry: " + entry);
+            }
+            mix.put(Operation.valueOf(pair[0].trim()), Integer.parseInt(pair[1].trim()));
+        }
+        return mix;
+    }
+
+    @Override
+    public String toString() {
+        return "rate=" + rate + "/s, workers=" + workers + ", warmup=" + warmupSeconds + "s, duration=" + durationSeconds
+                + "s, catalog=" + catalogSize + ", mix=" + mix;
+    }
+}
@@ -0,0 +1,188 @@
+package example.micronaut.load;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 組み込みサーバーに本番相当のリクエストを目標のレートで発行し、スループットとレイテンシを計測します
+ * 閾値を超えた場合は失敗します
+ * <p>
+ * クライアントはそれぞれ前のリクエストの完了を待ってから次のリクエストを発行します
+ * レイテンシは本来リクエストを発行すべきだった時刻から計測するため、
+ * サーバーが遅れてクライアントの発行が後ろにずれた分も含まれます
+ *
+ * @author Yudai Tokunaga
+ */
+public class LoadTest {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    @Test
+    public void 本番相当のトラフィックで閾値を満たす() throws Exception {
+        LoadSettings settings = new LoadSettings();
+        System.out.println("Load test: " + settings);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("jpa.default.properties.hibernate.show_sql", false);
+        properties.put("micronaut.http.client.pool.enabled", true);
+        properties.put("micronaut.http.client.pool.max-connections", settings.workers);
+
+        try (EmbeddedServer server = ApplicationContext.run(EmbeddedServer.class, properties)) {
+            HttpClient client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+            try {
+                Traffic traffic = new Traffic(client.toBlocking());
+                traffic.seed(settings.catalogSize);
+
+                // 暖機
+                run(settings, traffic, settings.warmupSeconds, null, new AtomicLong());
+
+                // 計測
+                Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+                for (Operation operation : Operation.values()) {
+                    histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, 3));
+                }
+                AtomicLong errors = new AtomicLong();
+                long startMillis = System.currentTimeMillis();
+                run(settings, traffic, settings.durationSeconds, histograms, errors);
+                long endMillis = System.currentTimeMillis();
+
+                Histogram total = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+                histograms.values().forEach(total::add);
+                write(histograms, total, startMillis, endMillis);
+                verify(settings, total, errors.get());
+            } finally {
+                client.stop();
+            }
+        }
+    }
+
+    /**
+     * 指定された時間、各クライアントが目標のレートを分け合ってリクエストを発行します
+     * histogramsがnullの場合は計測しません
+     */
+    private static void run(LoadSettings settings, Traffic traffic, int seconds,
+                            Map<Operation, Histogram> histograms, AtomicLong errors) throws InterruptedException {
+        long interval = TimeUnit.SECONDS.toNanos(1) * settings.workers / settings.rate;
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+
+        ExecutorService workers = Executors.newFixedThreadPool(settings.workers);
+        for (int i = 0; i < settings.workers; i++) {
+            long offset = interval * i / settings.workers;
+            workers.execute(() -> {
+                for (long intended = start + offset; intended < end; intended += interval) {
+                    long wait = intended - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    Operation operation = settings.nextOperation();
+                    boolean succeeded = traffic.execute(operation);
+                    if (histograms != null) {
+                        histograms.get(operation).recordValue(Math.min(System.nanoTime() - intended, HIGHEST_TRACKABLE_NANOS));
+                        if (!succeeded) {
+                            errors.incrementAndGet();
+                        }
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(seconds + 60L, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 計測結果を標準出力と、build/reports/loadのHdrHistogram形式のログに出力します
+     */
+    private static void write(Map<Operation, Histogram> histograms, Histogram total,
+                              long startMillis, long endMillis) throws FileNotFoundException {
+        File directory = new File(System.getProperty("load.reports", "build/reports/load"));
+        directory.mkdirs();
+
+        try (PrintStream log = new PrintStream(new File(directory, "latency.hlog"))) {
+            HistogramLogWriter writer = new HistogramLogWriter(log);
+            writer.outputLogFormatVersion();
+            writer.outputStartTime(startMillis);
+            writer.outputLegend();
+            histograms.forEach((operation, histogram) -> {
+                if (histogram.getTotalCount() > 0) {
+                    histogram.setStartTimeStamp(startMillis);
+                    histogram.setEndTimeStamp(endMillis);
+                    histogram.setTag(operation.name());
+                    writer.outputIntervalHistogram(histogram);
+                }
+            });
+            total.setStartTimeStamp(startMillis);
+            total.setEndTimeStamp(endMillis);
+            total.setTag("TOTAL");
+            writer.outputIntervalHistogram(total);
+        }
+        try (PrintStream percentiles = new PrintStream(new File(directory, "percentiles.txt"))) {
+            total.outputPercentileDistribution(percentiles, NANOS_PER_MILLI);
+        }
+
+        System.out.printf("%-16s %8s %8s %8s %8s %8s%n", "operation", "count", "p50", "p90", "p99", "p999");
+        histograms.forEach((operation, histogram) -> print(operation.name(), histogram));
+        print("TOTAL", total);
+    }
+
+    private static void print(String name, Histogram histogram) {
+        if (histogram.getTotalCount() == 0) {
+            return;
+        }
+        System.out.printf("%-16s %8d %8.2f %8.2f %8.2f %8.2f%n", name, histogram.getTotalCount(),
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9));
+    }
+
+    private static void verify(LoadSettings settings, Histogram total, long errors) {
+        List<String> failures = new ArrayList<>();
+
+        double throughput = (double) total.getTotalCount() / settings.durationSeconds;
+        System.out.printf("throughput: %.1f req/s (target %d), errors: %d%n", throughput, settings.rate, errors);
+        if (throughput < settings.rate * settings.minThroughputRatio) {
+            failures.add(String.format("throughput %.1f req/s < %.1f req/s", throughput, settings.rate * settings.minThroughputRatio));
+        }
+        double errorRate = total.getTotalCount() == 0 ? 1.0 : (double) errors / total.getTotalCount();
+        if (errorRate > settings.maxErrorRate) {
+            failures.add(String.format("error rate %.4f > %.4f", errorRate, settings.maxErrorRate));
+        }
+        check(failures, "p50", millis(total, 50), settings.maxP50Millis);
+        check(failures, "p90", millis(total, 90), settings.maxP90Millis);
+        check(failures, "p99", millis(total, 99), settings.maxP99Millis);
+        check(failures, "p999", millis(total, 99.9), settings.maxP999Millis);
+
+        assertTrue(String.join(", ", failures), failures.isEmpty());
+    }
+
+    private static void check(List<String> failures, String percentile, double actualMillis, long maxMillis) {
+        if (actualMillis > maxMillis) {
+            failures.add(String.format("%s %.2f ms > %d ms", percentile, actualMillis, maxMillis));
+        }
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_PER_MILLI;
+    }
+}
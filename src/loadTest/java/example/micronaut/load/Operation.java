@@ -0,0 +1,21 @@
+package example.micronaut.load;
+
+/**
+ * Kind of request issued by the load test
+ *
+ * @author Yudai Tokunaga
+ */
+enum Operation {
+    GET_BOOK,
+    LIST_BOOKS,
+    SEARCH_BOOKS,
+    POST_BOOK,
+    PUT_BOOK,
+    DELETE_BOOK,
+    GET_AUTHOR,
+    LIST_AUTHORS,
+    SEARCH_AUTHORS,
+    POST_AUTHOR,
+    PUT_AUTHOR,
+    DELETE_AUTHOR
+}
@@ -0,0 +1,164 @@
+package example.micronaut.load;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.AuthorUpdateCommand;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.controller.request.BookUpdateCommand;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.client.BlockingHttpClient;
+import io.micronaut.http.client.exceptions.HttpClientException;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues the requests of the load test against the book and author APIs
+ * 事前に登録した著者と書籍は削除せず、削除のリクエストは負荷試験中に登録したものに対して行います
+ *
+ * @author Yudai Tokunaga
+ */
+final class Traffic {
+
+    private static final int BOOKS_PER_AUTHOR = 10;
+
+    private static final int BATCH_SIZE = 1000;
+
+    private final BlockingHttpClient client;
+
+    private final List<Long> authorIds = new ArrayList<>();
+    private final List<Long> bookIds = new ArrayList<>();
+
+    private final Queue<Long> createdAuthors = new ConcurrentLinkedQueue<>();
+    private final Queue<Long> createdBooks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    Traffic(BlockingHttpClient client) {
+        this.client = client;
+    }
+
+    /**
+     * 著者と書籍を登録します
+     */
+    void seed(int books) {
+        int authors = Math.max(1, books / BOOKS_PER_AUTHOR);
+        for (int i = 0; i < authors; i++) {
+            HttpResponse<?> response = client.exchange(HttpRequest.POST("/authors", new AuthorSaveCommand("Author " + i)));
+            authorIds.add(entityId(response, "authors"));
+        }
+        for (int from = 0; from < books; from += BATCH_SIZE) {
+            List<BookSaveCommand> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(from + BATCH_SIZE, books); i++) {
+                chunk.add(new BookSaveCommand("isbn-" + i, "Book title " + i, authorIds.get(i % authors)));
+            }
+            List<Map> results = client.retrieve(HttpRequest.POST("/books/batch", chunk), Argument.of(List.class, Map.class));
+            for (Map result : results) {
+                bookIds.add(((Number) result.get("id")).longValue());
+            }
+        }
+    }
+
+    /**
+     * リクエストを1件発行します
+     *
+     * @return 成功した場合はtrue
+     */
+    boolean execute(Operation operation) {
+        try {
+            switch (operation) {
+                case GET_BOOK:
+                    client.exchange(HttpRequest.GET("/books/" + random(bookIds)), String.class);
+                    break;
+                case LIST_BOOKS:
+                    client.exchange(HttpRequest.GET("/books"), String.class);
+                    break;
+                case SEARCH_BOOKS:
+                    client.exchange(HttpRequest.GET("/books/search?keyword=" + encode("title " + randomNumber())), String.class);
+                    break;
+                case POST_BOOK:
+                    long book = sequence.incrementAndGet();
+                    HttpResponse<?> created = client.exchange(HttpRequest.POST("/books",
+                            new BookSaveCommand("load-" + book, "Load title " + book, random(authorIds))));
+                    createdBooks.add(entityId(created, "books"));
+                    break;
+                case PUT_BOOK:
+                    client.exchange(HttpRequest.PUT("/books",
+                            new BookUpdateCommand(random(bookIds), null, "Book title " + randomNumber(), null)));
+                    break;
+                case DELETE_BOOK:
+                    client.exchange(HttpRequest.DELETE("/books/" + nextOrMissing(createdBooks)));
+                    break;
+                case GET_AUTHOR:
+                    client.exchange(HttpRequest.GET("/authors/" + random(authorIds)), String.class);
+                    break;
+                case LIST_AUTHORS:
+                    client.exchange(HttpRequest.GET("/authors"), String.class);
+                    break;
+                case SEARCH_AUTHORS:
+                    client.exchange(HttpRequest.GET("/authors/search?keyword=" + encode("Author " + randomNumber())), String.class);
+                    break;
+                case POST_AUTHOR:
+                    HttpResponse<?> author = client.exchange(HttpRequest.POST("/authors",
+                            new AuthorSaveCommand("Load author " + sequence.incrementAndGet())));
+                    createdAuthors.add(entityId(author, "authors"));
+                    break;
+                case PUT_AUTHOR:
+                    Long authorId = random(authorIds);
+                    client.exchange(HttpRequest.PUT("/authors",
+                            new AuthorUpdateCommand(authorId, "Author " + authorId + "-" + sequence.incrementAndGet())));
+                    break;
+                case DELETE_AUTHOR:
+                    client.exchange(HttpRequest.DELETE("/authors/" + nextOrMissing(createdAuthors)));
+                    break;
+                default:
+                    throw new IllegalArgumentException(operation.name());
+            }
+            return true;
+        } catch (HttpClientException e) {
+            return false;
+        }
+    }
+
+    private int randomNumber() {
+        return ThreadLocalRandom.current().nextInt(Math.max(1, bookIds.size()));
+    }
+
+    private static Long random(List<Long> ids) {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    /**
+     * 削除できるIDがない場合は、存在しないIDを返却します
+     */
+    private static Long nextOrMissing(Queue<Long> ids) {
+        Long id = ids.poll();
+        return id == null ? -1L : id;
+    }
+
+    private static String encode(String keyword) {
+        return URLEncoder.encode(keyword, StandardCharsets.UTF_8);
+    }
+
+    private static Long entityId(HttpResponse<?> response, String entity) {
+        String path = "/" + entity + "/";
+        String value = response.header(HttpHeaders.LOCATION);
+        if (value == null) {
+            return null;
+        }
+        int index = value.indexOf(path);
+        if (index != -1) {
+            return Long.valueOf(value.substring(index + path.length()));
+        }
+        return null;
+    }
+}
@@ -5,4 +5,6 @@ import javax.validation.constraints.NotNull;
 public interface ApplicationConfiguration {
 
     @NotNull Integer getMax();
+
+    @NotNull Integer getCacheSize();
 }
\ No newline at end of file
@@ -7,8 +7,12 @@ public class ApplicationConfigurationProperties implements ApplicationConfigurat
 
     protected final Integer DEFAULT_MAX = 10;
 
+    protected final Integer DEFAULT_CACHE_SIZE = 1000;
+
     private Integer max = DEFAULT_MAX;
 
+    private Integer cacheSize = DEFAULT_CACHE_SIZE;
+
     @Override
     public Integer getMax() {
         return max;
@@ -19,4 +23,15 @@ public class ApplicationConfigurationProperties implements ApplicationConfigurat
             this.max = max;
         }
     }
+
+    @Override
+    public Integer getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(Integer cacheSize) {
+        if(cacheSize != null) {
+            this.cacheSize = cacheSize;
+        }
+    }
 }
\ No newline at end of file
@@ -1,19 +1,39 @@
 package example.micronaut.controller;
 
+import example.micronaut.ApplicationConfiguration;
 import example.micronaut.controller.request.AuthorSaveCommand;
 import example.micronaut.controller.request.AuthorUpdateCommand;
 import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.MultiGetResult;
+import example.micronaut.domain.TableRevisions;
 import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.projection.FieldSelections;
+import example.micronaut.domain.view.AuthorView;
+import example.micronaut.domain.view.BookView;
+import example.micronaut.domain.view.Revision;
+import io.micronaut.context.annotation.Requires;
 import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.*;
 import io.micronaut.validation.Validated;
 
+import javax.annotation.Nullable;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.net.URI;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 /**
  * Controller of Author
@@ -21,45 +41,240 @@ import java.util.List;
  * @author Yudai Tokunaga
  */
 @Validated
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
 @Controller("/authors")
 public class AuthorController {
 
+    /**
+     * 著者の書籍の件数を返却するヘッダー
+     */
+    private static final String TOTAL_COUNT = "X-Total-Count";
+
+    /**
+     * IDでまとめて取得する場合の最大件数
+     */
+    private static final int MULTI_GET_MAX = 1000;
+
     private final AuthorRepository authorRepository;
+    private final BookRepository bookRepository;
+    private final TableRevisions revisions;
+    private final ApplicationConfiguration configuration;
+    private final FieldSelections fieldSelections;
 
-    public AuthorController(AuthorRepository authorRepository) {
+    public AuthorController(AuthorRepository authorRepository,
+                            BookRepository bookRepository,
+                            TableRevisions revisions,
+                            ApplicationConfiguration configuration,
+                            FieldSelections fieldSelections) {
         this.authorRepository = authorRepository;
+        this.bookRepository = bookRepository;
+        this.revisions = revisions;
+        this.configuration = configuration;
+        this.fieldSelections = fieldSelections;
     }
 
     /**
      * 登録済みの著者を返却します
+     * If-None-Match、またはIf-Modified-Sinceに一致する場合は本文なしでNOT_MODIFIEDを返却します
+     * fieldsを指定した場合は、IDと指定された属性のみを返却します
      *
      * @return 登録済みの著者
      */
     @Get("/{id}")
-    public Author show(Long id) {
-        return authorRepository
-                .findById(id)
-                .orElse(null);
+    public HttpResponse<?> show(Long id,
+                                @QueryValue(value = "fields") @Nullable String fields,
+                                HttpRequest<?> request) {
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Author.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        Optional<Author> author = authorRepository.findById(id);
+        if (!author.isPresent()) {
+            return HttpResponse.notFound();
+        }
+
+        String etag = Conditional.withFields(Conditional.etag(author.get()), selection);
+        Instant lastModified = Conditional.lastModified(author.get());
+        if (Conditional.isNotModified(request, etag, lastModified)) {
+            return Conditional.notModified(etag, lastModified);
+        }
+        Object body = selection.isPresent() ? selection.get().toMap(author.get()) : author.get();
+        return Conditional.withValidators(HttpResponse.ok(body), etag, lastModified);
     }
 
     /**
-     * 登録済みの全ての著者を返却します
+     * 登録済みの著者をID順に1ページ分返却します
+     * 続きがある場合は次のページを指すLinkヘッダーを付与します
+     * 不正なカーソルの場合はBAD_REQUESTを返却します
+     * <p>
+     * idsを指定した場合は、指定されたIDの著者を指定された順序で返却し、見つからなかったIDを別に返却します
+     * fieldsを指定した場合は、IDと指定された属性のみをDBから取得して返却します
      *
      * @return 登録済みの著者リスト
      */
     @Get("/")
-    public List<Author> list() {
-        return authorRepository.findAll();
+    public HttpResponse<?> list(@QueryValue(value = "after") @Nullable String after,
+                                @QueryValue(value = "max") @Nullable @Positive Integer max,
+                                @QueryValue(value = "ids") @Nullable @Size(max = MULTI_GET_MAX) List<Long> ids,
+                                @QueryValue(value = "fields") @Nullable String fields,
+                                HttpRequest<?> request) {
+
+        if (ids != null) {
+            Revision revision = revisions.authors();
+            String etag = Conditional.etag(revision);
+            if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+                return Conditional.notModified(etag, revision.getLastModified());
+            }
+            return Conditional.withValidators(HttpResponse.ok(findAllById(ids)), etag, revision.getLastModified());
+        }
+
+        long afterId = 0L;
+        if (after != null) {
+            Optional<Long> decoded = Cursor.decode(after);
+            if (!decoded.isPresent()) {
+                return HttpResponse.status(HttpStatus.BAD_REQUEST);
+            }
+            afterId = decoded.get();
+        }
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Author.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+
+        // 読み込みの前にリビジョンを取得し、読み込み中の書き込みで古い一覧に新しいETagが付かないようにする
+        Revision revision = revisions.authors();
+        String etag = Conditional.withFields(Conditional.etag(revision), selection);
+        if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+            return Conditional.notModified(etag, revision.getLastModified());
+        }
+
+        // ページサイズは設定値を上限とする
+        int limit = max == null ? configuration.getMax() : Math.min(max, configuration.getMax());
+        List<?> authors;
+        Long lastId = null;
+        if (selection.isPresent()) {
+            List<Map<String, Object>> rows = authorRepository.findAll(afterId, limit, selection.get());
+            authors = rows;
+            if (!rows.isEmpty()) {
+                lastId = selection.get().idOf(rows.get(rows.size() - 1));
+            }
+        } else {
+            List<AuthorView> views = authorRepository.findAll(afterId, limit);
+            authors = views;
+            if (!views.isEmpty()) {
+                lastId = views.get(views.size() - 1).getId();
+            }
+        }
+
+        MutableHttpResponse<List<?>> response = Conditional.withValidators(HttpResponse.ok(authors), etag, revision.getLastModified());
+        if (authors.size() == limit) {
+            response.header(HttpHeaders.LINK, Cursor.nextLink("/authors", lastId, limit, selection.map(FieldSelection::toString).orElse(null)));
+        }
+        return response;
+    }
+
+    /**
+     * 指定されたIDの著者をまとめて返却します
+     * GETのURLに収まらない数のIDを指定する場合に使います
+     *
+     * @return 見つかった著者と、見つからなかったID
+     */
+    @Post("/ids")
+    public HttpResponse<MultiGetResult<Author>> showAll(@Body @NotEmpty @Size(max = MULTI_GET_MAX) List<Long> ids) {
+        return HttpResponse.ok(findAllById(ids));
+    }
+
+    /**
+     * 著者の書籍をID順に1ページ分返却します
+     * 続きがある場合は次のページを指すLinkヘッダーを付与します
+     * countにtrueを指定した場合は、著者の書籍の件数をX-Total-Countヘッダーで返却します
+     * fieldsを指定した場合は、書籍のIDと指定された属性のみをDBから取得して返却します
+     * 著者が登録済みでない場合はNOT_FOUND、不正なカーソルやfieldsの場合はBAD_REQUESTを返却します
+     *
+     * @return 著者の書籍リスト
+     */
+    @Get("/{id}/books")
+    public HttpResponse<?> books(Long id,
+                                 @QueryValue(value = "after") @Nullable String after,
+                                 @QueryValue(value = "max") @Nullable @Positive Integer max,
+                                 @QueryValue(value = "count") @Nullable Boolean count,
+                                 @QueryValue(value = "fields") @Nullable String fields,
+                                 HttpRequest<?> request) {
+
+        long afterId = 0L;
+        if (after != null) {
+            Optional<Long> decoded = Cursor.decode(after);
+            if (!decoded.isPresent()) {
+                return HttpResponse.status(HttpStatus.BAD_REQUEST);
+            }
+            afterId = decoded.get();
+        }
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Book.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        if (!authorRepository.findById(id).isPresent()) {
+            return HttpResponse.notFound();
+        }
+
+        // 書籍には著者名が含まれるため、書籍一覧と同じリビジョンを使う
+        Revision revision = revisions.books();
+        String etag = Conditional.withFields(Conditional.etag(revision), selection);
+        if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+            return Conditional.notModified(etag, revision.getLastModified());
+        }
+
+        int limit = max == null ? configuration.getMax() : Math.min(max, configuration.getMax());
+        List<?> books;
+        Long lastId = null;
+        if (selection.isPresent()) {
+            List<Map<String, Object>> rows = bookRepository.findByAuthor(id, afterId, limit, selection.get());
+            books = rows;
+            if (!rows.isEmpty()) {
+                lastId = selection.get().idOf(rows.get(rows.size() - 1));
+            }
+        } else {
+            List<BookView> views = bookRepository.findByAuthor(id, afterId, limit);
+            books = views;
+            if (!views.isEmpty()) {
+                lastId = views.get(views.size() - 1).getId();
+            }
+        }
+
+        MutableHttpResponse<List<?>> response = Conditional.withValidators(HttpResponse.ok(books), etag, revision.getLastModified());
+        if (books.size() == limit) {
+            response.header(HttpHeaders.LINK, Cursor.nextLink("/authors/" + id + "/books", lastId, limit,
+                    selection.map(FieldSelection::toString).orElse(null)));
+        }
+        if (Boolean.TRUE.equals(count)) {
+            response.header(TOTAL_COUNT, String.valueOf(bookRepository.countByAuthor(id)));
+        }
+        return response;
     }
 
     /**
      * 登録済みの著者のうち、名前にキーワードを含む著者を返却します
+     * fieldsを指定した場合は、IDと指定された属性のみをDBから取得して返却します
      *
      * @return 登録済みの著者リスト
      */
     @Get("/search")
-    public List<Author> search(@QueryValue(value = "keyword") @NotNull String keyword) {
-        return authorRepository.findByKeyword(keyword);
+    public HttpResponse<?> search(@QueryValue(value = "keyword") @NotNull String keyword,
+                                  @QueryValue(value = "fields") @Nullable String fields,
+                                  HttpRequest<?> request) {
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Author.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        Revision revision = revisions.authors();
+        String etag = Conditional.withFields(Conditional.etag(revision), selection);
+        if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+            return Conditional.notModified(etag, revision.getLastModified());
+        }
+        List<?> authors = selection.isPresent()
+                ? authorRepository.findByKeyword(keyword, selection.get())
+                : authorRepository.findByKeyword(keyword);
+        return Conditional.withValidators(HttpResponse.ok(authors), etag, revision.getLastModified());
     }
 
 
@@ -91,6 +306,19 @@ public class AuthorController {
         return HttpResponse.noContent();
     }
 
+    /**
+     * 指定されたIDの著者をまとめて削除します
+     * 著者の書籍も一緒に削除します
+     * 登録済みでないIDは無視します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/")
+    public HttpResponse deleteAll(@QueryValue("ids") @NotEmpty List<Long> ids) {
+        authorRepository.deleteAllById(ids);
+        return HttpResponse.noContent();
+    }
+
     /**
      * 著者を更新します
      * 更新が成功したらNO_CONTENT、失敗したらCONFLICTを返却します
@@ -107,6 +335,10 @@ public class AuthorController {
         return HttpResponse.noContent().header(HttpHeaders.LOCATION, location(command.getId()).getPath());
     }
 
+    private MultiGetResult<Author> findAllById(List<Long> ids) {
+        return MultiGetResult.of(ids, authorRepository.findAllById(ids), Author::getId);
+    }
+
     private URI location(Long id) {
         return URI.create("/authors/" + id);
     }
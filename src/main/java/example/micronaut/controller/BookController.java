@@ -1,22 +1,52 @@
 package example.micronaut.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import example.micronaut.ApplicationConfiguration;
 import example.micronaut.controller.request.BookSaveCommand;
 import example.micronaut.controller.request.BookUpdateCommand;
 import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.TableRevisions;
+import example.micronaut.domain.BatchResult;
+import example.micronaut.domain.BookBatchWriter;
 import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.IsbnResult;
+import example.micronaut.domain.MultiGetResult;
+import example.micronaut.domain.NewBook;
 import example.micronaut.domain.entity.Author;
 import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.index.Isbn;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.projection.FieldSelections;
+import example.micronaut.domain.view.Revision;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.annotation.Requires;
 import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
 import io.micronaut.http.annotation.*;
 import io.micronaut.validation.Validated;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.springframework.dao.DataAccessException;
 
+import javax.annotation.Nullable;
+import javax.persistence.PersistenceException;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.Size;
 import java.net.URI;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
 
 /**
  * Controller of Book
@@ -24,48 +54,255 @@ import java.util.Optional;
  * @author Yudai Tokunaga
  */
 @Validated
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
 @Controller("/books")
 public class BookController {
 
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * エクスポート時に1チャンクにまとめる行数
+     */
+    private static final int EXPORT_CHUNK_ROWS = 100;
+
+    /**
+     * ISBNでまとめて取得する場合の最大件数
+     */
+    private static final int ISBN_LOOKUP_MAX = 1000;
+
+    /**
+     * IDでまとめて取得する場合の最大件数
+     */
+    private static final int MULTI_GET_MAX = 1000;
+
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
+    private final BookBatchWriter bookBatchWriter;
+    private final TableRevisions revisions;
+    private final ApplicationConfiguration configuration;
+    private final FieldSelections fieldSelections;
+    private final ObjectWriter bookViewWriter;
 
     public BookController(BookRepository bookRepository,
-                          AuthorRepository authorRepository) {
+                          AuthorRepository authorRepository,
+                          BookBatchWriter bookBatchWriter,
+                          TableRevisions revisions,
+                          ApplicationConfiguration configuration,
+                          FieldSelections fieldSelections,
+                          ObjectMapper objectMapper) {
         this.bookRepository = bookRepository;
         this.authorRepository = authorRepository;
+        this.bookBatchWriter = bookBatchWriter;
+        this.revisions = revisions;
+        this.configuration = configuration;
+        this.fieldSelections = fieldSelections;
+        this.bookViewWriter = objectMapper.writerFor(BookView.class);
     }
 
     /**
      * 登録済みの書籍を返却します
+     * If-None-Match、またはIf-Modified-Sinceに一致する場合は本文なしでNOT_MODIFIEDを返却します
+     * fieldsを指定した場合は、IDと指定された属性のみを返却します
      *
      * @return 登録済みの書籍
      */
     @Get("/{id}")
-    public Book show(Long id) {
-        return bookRepository
-                .findById(id)
-                .orElse(null);
+    public HttpResponse<?> show(Long id,
+                                @QueryValue(value = "fields") @Nullable String fields,
+                                HttpRequest<?> request) {
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Book.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        Optional<Book> book = bookRepository.findById(id);
+        if (!book.isPresent()) {
+            return HttpResponse.notFound();
+        }
+
+        String etag = Conditional.withFields(Conditional.etag(book.get()), selection);
+        Instant lastModified = Conditional.lastModified(book.get());
+        if (Conditional.isNotModified(request, etag, lastModified)) {
+            return Conditional.notModified(etag, lastModified);
+        }
+        // 書籍はキャッシュから返るため、DBへの問い合わせはなく出力する属性のみを絞る
+        Object body = selection.isPresent() ? selection.get().toMap(book.get()) : book.get();
+        return Conditional.withValidators(HttpResponse.ok(body), etag, lastModified);
     }
 
     /**
-     * 登録済みの書籍を返却します
+     * ISBNに対応する書籍を返却します
+     * ISBN-10、ISBN-13のどちらでも指定でき、ハイフンと空白は無視します
+     * ISBNとして正しくない場合はBAD_REQUEST、書籍がない場合はNOT_FOUNDを返却します
+     *
+     * @return 登録済みの書籍
+     */
+    @Get("/isbn/{isbn}")
+    public HttpResponse<Book> showByIsbn(String isbn, HttpRequest<?> request) {
+        OptionalLong normalized = Isbn.parse(isbn);
+        if (!normalized.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        Optional<Book> book = bookRepository.findByIsbn(normalized.getAsLong());
+        if (!book.isPresent()) {
+            return HttpResponse.notFound();
+        }
+
+        String etag = Conditional.etag(book.get());
+        Instant lastModified = Conditional.lastModified(book.get());
+        if (Conditional.isNotModified(request, etag, lastModified)) {
+            return Conditional.notModified(etag, lastModified);
+        }
+        return Conditional.withValidators(HttpResponse.ok(book.get()), etag, lastModified);
+    }
+
+    /**
+     * 複数のISBNに対応する書籍をまとめて返却します
+     * 1件ごとにFOUND、NOT_FOUND、INVALIDのいずれかを入力と同じ順序で返却します
+     *
+     * @return 1件ごとの検索結果
+     */
+    @Post("/isbn")
+    public HttpResponse<List<IsbnResult>> showAllByIsbn(@Body @NotEmpty @Size(max = ISBN_LOOKUP_MAX) List<String> isbns) {
+        List<Long> normalized = new ArrayList<>();
+        for (String isbn : isbns) {
+            Isbn.parse(isbn).ifPresent(normalized::add);
+        }
+        Map<Long, Book> books = bookRepository.findAllByIsbn(normalized);
+
+        List<IsbnResult> results = new ArrayList<>(isbns.size());
+        for (String isbn : isbns) {
+            OptionalLong key = Isbn.parse(isbn);
+            if (!key.isPresent()) {
+                results.add(IsbnResult.invalid(isbn));
+                continue;
+            }
+            Book book = books.get(key.getAsLong());
+            String formatted = Isbn.format(key.getAsLong());
+            results.add(book == null ? IsbnResult.notFound(isbn, formatted) : IsbnResult.found(isbn, formatted, book));
+        }
+        return HttpResponse.ok(results);
+    }
+
+    /**
+     * 登録済みの書籍をID順に1ページ分返却します
+     * 続きがある場合は次のページを指すLinkヘッダーを付与します
+     * 不正なカーソルの場合はBAD_REQUESTを返却します
+     * <p>
+     * idsを指定した場合は、指定されたIDの書籍を指定された順序で返却し、見つからなかったIDを別に返却します
+     * fieldsを指定した場合は、IDと指定された属性のみをDBから取得して返却します
      *
      * @return 登録済みの書籍リスト
      */
     @Get("/")
-    public List<Book> list() {
-        return bookRepository.findAll();
+    public HttpResponse<?> list(@QueryValue(value = "after") @Nullable String after,
+                                @QueryValue(value = "max") @Nullable @Positive Integer max,
+                                @QueryValue(value = "ids") @Nullable @Size(max = MULTI_GET_MAX) List<Long> ids,
+                                @QueryValue(value = "fields") @Nullable String fields,
+                                HttpRequest<?> request) {
+
+        if (ids != null) {
+            Revision revision = revisions.books();
+            String etag = Conditional.etag(revision);
+            if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+                return Conditional.notModified(etag, revision.getLastModified());
+            }
+            return Conditional.withValidators(HttpResponse.ok(findAllById(ids)), etag, revision.getLastModified());
+        }
+
+        long afterId = 0L;
+        if (after != null) {
+            Optional<Long> decoded = Cursor.decode(after);
+            if (!decoded.isPresent()) {
+                return HttpResponse.status(HttpStatus.BAD_REQUEST);
+            }
+            afterId = decoded.get();
+        }
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Book.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+
+        // 読み込みの前にリビジョンを取得し、読み込み中の書き込みで古い一覧に新しいETagが付かないようにする
+        Revision revision = revisions.books();
+        String etag = Conditional.withFields(Conditional.etag(revision), selection);
+        if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+            return Conditional.notModified(etag, revision.getLastModified());
+        }
+
+        // ページサイズは設定値を上限とする
+        int limit = max == null ? configuration.getMax() : Math.min(max, configuration.getMax());
+        List<?> books;
+        Long lastId = null;
+        if (selection.isPresent()) {
+            List<Map<String, Object>> rows = bookRepository.findAll(afterId, limit, selection.get());
+            books = rows;
+            if (!rows.isEmpty()) {
+                lastId = selection.get().idOf(rows.get(rows.size() - 1));
+            }
+        } else {
+            List<BookView> views = bookRepository.findAll(afterId, limit);
+            books = views;
+            if (!views.isEmpty()) {
+                lastId = views.get(views.size() - 1).getId();
+            }
+        }
+
+        MutableHttpResponse<List<?>> response = Conditional.withValidators(HttpResponse.ok(books), etag, revision.getLastModified());
+        if (books.size() == limit) {
+            response.header(HttpHeaders.LINK, Cursor.nextLink("/books", lastId, limit, selection.map(FieldSelection::toString).orElse(null)));
+        }
+        return response;
+    }
+
+    /**
+     * 指定されたIDの書籍をまとめて返却します
+     * GETのURLに収まらない数のIDを指定する場合に使います
+     *
+     * @return 見つかった書籍と、見つからなかったID
+     */
+    @Post("/ids")
+    public HttpResponse<MultiGetResult<Book>> showAll(@Body @NotEmpty @Size(max = MULTI_GET_MAX) List<Long> ids) {
+        return HttpResponse.ok(findAllById(ids));
     }
 
     /**
      * 登録済みの書籍のうち、名前にキーワードを含む書籍を返却します
+     * fieldsを指定した場合は、IDと指定された属性のみをDBから取得して返却します
      *
      * @return 登録済みの書籍リスト
      */
     @Get("/search")
-    public List<Book> search(@QueryValue(value = "keyword") @NotNull String keyword) {
-        return bookRepository.findByKeyword(keyword);
+    public HttpResponse<?> search(@QueryValue(value = "keyword") @NotNull String keyword,
+                                  @QueryValue(value = "fields") @Nullable String fields,
+                                  HttpRequest<?> request) {
+        Optional<FieldSelection> selection = fields == null ? Optional.empty() : fieldSelections.parse(Book.class, fields);
+        if (fields != null && !selection.isPresent()) {
+            return HttpResponse.status(HttpStatus.BAD_REQUEST);
+        }
+        Revision revision = revisions.books();
+        String etag = Conditional.withFields(Conditional.etag(revision), selection);
+        if (Conditional.isNotModified(request, etag, revision.getLastModified())) {
+            return Conditional.notModified(etag, revision.getLastModified());
+        }
+        List<?> books = selection.isPresent()
+                ? bookRepository.findByKeyword(keyword, selection.get())
+                : bookRepository.findByKeyword(keyword);
+        return Conditional.withValidators(HttpResponse.ok(books), etag, revision.getLastModified());
+    }
+
+    /**
+     * 登録済みの全ての書籍を著者名付きでNDJSON形式で返却します
+     * DBのカーソルからクライアントの受信に合わせて読み出し、チャンク単位で書き込みます
+     *
+     * @return 1行1書籍のJSON
+     */
+    @Get(value = "/export", produces = APPLICATION_NDJSON)
+    public Flowable<String> export() {
+        return bookRepository.streamAll()
+                .map(book -> bookViewWriter.writeValueAsString(book) + "\n")
+                .buffer(EXPORT_CHUNK_ROWS)
+                .map(lines -> String.join("", lines))
+                .subscribeOn(Schedulers.io());
     }
 
     /**
@@ -94,6 +331,21 @@ public class BookController {
         }
     }
 
+    /**
+     * 書籍をまとめて登録します
+     * 1件ごとにCREATED、CONFLICT、UNKNOWN_AUTHORのいずれかを入力と同じ順序で返却します
+     * 一部の書籍が登録できなくても、他の書籍の登録は続行します
+     *
+     * @return 1件ごとの登録結果
+     */
+    @Post("/batch")
+    public HttpResponse<List<BatchResult>> saveAll(@Body @Valid List<BookSaveCommand> cmds) {
+        List<NewBook> books = cmds.stream()
+                .map(cmd -> new NewBook(cmd.getIsbn(), cmd.getTitle(), cmd.getAuthorId()))
+                .collect(Collectors.toList());
+        return HttpResponse.ok(bookBatchWriter.write(books));
+    }
+
     /**
      * 書籍を削除します
      * 削除が成功しても失敗してもNO_CONTENTを返却します
@@ -106,6 +358,18 @@ public class BookController {
         return HttpResponse.noContent();
     }
 
+    /**
+     * 指定されたIDの書籍をまとめて削除します
+     * 登録済みでないIDは無視します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/")
+    public HttpResponse deleteAll(@QueryValue("ids") @NotEmpty List<Long> ids) {
+        bookRepository.deleteAllById(ids);
+        return HttpResponse.noContent();
+    }
+
     /**
      * 書籍を更新します
      * 更新が成功しても失敗してもNO_CONTENTを返却します
@@ -132,6 +396,51 @@ public class BookController {
         return HttpResponse.noContent().header(HttpHeaders.LOCATION, location(cmd.getId()).getPath());
     }
 
+    /**
+     * 書籍を部分更新します
+     * 指定された項目のみを1回のUPDATEで更新し、成功した場合はNO_CONTENTを返却します
+     * If-Matchに取得時のETagを指定した場合は、その後に書籍が更新されていればPRECONDITION_FAILEDを返却します
+     * 書籍が登録済みでない場合はNOT_FOUND、
+     * ISBNの重複や著者が登録済みでない場合はCONFLICTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Patch("/")
+    public HttpResponse patch(@Body @Valid BookUpdateCommand cmd, HttpRequest<?> request) {
+
+        // If-Matchからバージョンを取り出す
+        Long expectedVersion = null;
+        String ifMatch = request.getHeaders().get(HttpHeaders.IF_MATCH);
+        if (ifMatch != null && !ifMatch.trim().equals("*")) {
+            Optional<Long> version = Conditional.bookVersion(ifMatch, cmd.getId());
+            if (!version.isPresent()) {
+                return HttpResponse.status(HttpStatus.PRECONDITION_FAILED);
+            }
+            expectedVersion = version.get();
+        }
+
+        // 書籍を更新する
+        int updated;
+        try {
+            updated = bookRepository.patch(cmd.getId(), cmd.getIsbn(), cmd.getTitle(), cmd.getAuthorId(), expectedVersion);
+        } catch (PersistenceException | DataAccessException e) {
+            return HttpResponse.status(HttpStatus.CONFLICT);
+        }
+
+        // 更新されなかった場合のみ、書籍がないのかバージョンが異なるのかを確認する
+        if (updated == 0) {
+            if (expectedVersion == null || !bookRepository.findById(cmd.getId()).isPresent()) {
+                return HttpResponse.notFound();
+            }
+            return HttpResponse.status(HttpStatus.PRECONDITION_FAILED);
+        }
+        return HttpResponse.noContent().header(HttpHeaders.LOCATION, location(cmd.getId()).getPath());
+    }
+
+    private MultiGetResult<Book> findAllById(List<Long> ids) {
+        return MultiGetResult.of(ids, bookRepository.findAllById(ids), Book::getId);
+    }
+
     private URI location(Long id) {
         return URI.create("/books/" + id);
     }
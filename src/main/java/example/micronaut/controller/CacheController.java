@@ -0,0 +1,40 @@
+package example.micronaut.controller;
+
+import example.micronaut.domain.cache.AuthorCache;
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.cache.CacheStats;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Controller of entity cache statistics
+ *
+ * @author Yudai Tokunaga
+ */
+@Controller("/caches")
+public class CacheController {
+
+    private final BookCache bookCache;
+    private final AuthorCache authorCache;
+
+    public CacheController(BookCache bookCache, AuthorCache authorCache) {
+        this.bookCache = bookCache;
+        this.authorCache = authorCache;
+    }
+
+    /**
+     * 書籍と著者のキャッシュのヒット数、ミス数、追い出し数、件数を返却します
+     *
+     * @return キャッシュごとの統計
+     */
+    @Get("/")
+    public Map<String, CacheStats> stats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("books", bookCache.stats());
+        stats.put("authors", authorCache.stats());
+        return stats;
+    }
+}
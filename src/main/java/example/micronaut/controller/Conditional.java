@@ -0,0 +1,175 @@
+package example.micronaut.controller;
+
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.view.Revision;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Utility of conditional requests with ETag and Last-Modified
+ *
+ * @author Yudai Tokunaga
+ */
+final class Conditional {
+
+    private Conditional() {
+    }
+
+    /**
+     * 書籍のETagを返却します
+     * 書籍には著者名が含まれるため、著者のバージョンも含めます
+     *
+     * @return ETag
+     */
+    static String etag(Book book) {
+        Author author = book.getAuthor();
+        return quote("b" + book.getId() + "." + version(book.getVersion())
+                + "-a" + author.getId() + "." + version(author.getVersion()));
+    }
+
+    /**
+     * 著者のETagを返却します
+     *
+     * @return ETag
+     */
+    static String etag(Author author) {
+        return quote("a" + author.getId() + "." + version(author.getVersion()));
+    }
+
+    /**
+     * 一覧のETagを返却します
+     *
+     * @return ETag
+     */
+    static String etag(Revision revision) {
+        return quote(revision.getTag());
+    }
+
+    /**
+     * 属性を絞ったレスポンスのETagを返却します
+     * 属性の組み合わせごとに異なる表現のため、正規化した属性名を付けて他の組み合わせのETagと一致しないようにします
+     *
+     * @return ETag
+     */
+    static String withFields(String etag, Optional<FieldSelection> selection) {
+        if (!selection.isPresent()) {
+            return etag;
+        }
+        return etag.substring(0, etag.length() - 1) + ";" + selection.get() + "\"";
+    }
+
+    static Instant lastModified(Book book) {
+        return latest(book.getModifiedAt(), book.getAuthor().getModifiedAt());
+    }
+
+    static Instant lastModified(Author author) {
+        return author.getModifiedAt();
+    }
+
+    /**
+     * If-None-Match、またはIf-Modified-Sinceに一致するかを判定します
+     * 両方が指定された場合はIf-None-Matchを優先します
+     *
+     * @return 一致する場合はtrue
+     */
+    static boolean isNotModified(HttpRequest<?> request, String etag, Instant lastModified) {
+        String ifNoneMatch = request.getHeaders().get(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String candidate : ifNoneMatch.split(",")) {
+                String value = candidate.trim();
+                if (value.equals("*") || value.equals(etag) || value.equals("W/" + etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        String ifModifiedSince = request.getHeaders().get(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null || lastModified == null) {
+            return false;
+        }
+        try {
+            Instant since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(since);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * If-Matchに指定された書籍のETagから、書籍のバージョンを取り出します
+     * 弱いETagや、別の書籍のETagの場合は空を返却します
+     *
+     * @return 書籍のバージョン
+     */
+    static Optional<Long> bookVersion(String ifMatch, Long id) {
+        String prefix = "\"b" + id + ".";
+        for (String candidate : ifMatch.split(",")) {
+            String value = candidate.trim();
+            int end = value.indexOf("-a");
+            if (!value.startsWith(prefix) || end < 0 || !value.endsWith("\"")) {
+                continue;
+            }
+            try {
+                return Optional.of(Long.parseLong(value.substring(prefix.length(), end)));
+            } catch (NumberFormatException e) {
+                return Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * 本文なしのNOT_MODIFIEDを返却します
+     *
+     * @return NOT_MODIFIED
+     */
+    static <T> MutableHttpResponse<T> notModified(String etag, Instant lastModified) {
+        return withValidators(HttpResponse.status(HttpStatus.NOT_MODIFIED), etag, lastModified);
+    }
+
+    /**
+     * レスポンスにETagとLast-Modifiedを付与します
+     *
+     * @return レスポンス
+     */
+    static <T> MutableHttpResponse<T> withValidators(MutableHttpResponse<T> response, String etag, Instant lastModified) {
+        response.header(HttpHeaders.ETAG, etag);
+        if (lastModified != null) {
+            response.header(HttpHeaders.LAST_MODIFIED,
+                    DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(lastModified, ZoneOffset.UTC)));
+        }
+        return response;
+    }
+
+    private static long version(Long version) {
+        return version == null ? 0L : version;
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+}
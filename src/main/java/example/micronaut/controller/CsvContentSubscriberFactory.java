@@ -0,0 +1,35 @@
+package example.micronaut.controller;
+
+import io.micronaut.context.annotation.Value;
+import io.micronaut.core.convert.format.ReadableBytes;
+import io.micronaut.http.annotation.Consumes;
+import io.micronaut.http.server.HttpServerConfiguration;
+import io.micronaut.http.server.netty.DefaultHttpContentProcessor;
+import io.micronaut.http.server.netty.HttpContentProcessor;
+import io.micronaut.http.server.netty.HttpContentSubscriberFactory;
+import io.micronaut.http.server.netty.NettyHttpRequest;
+
+import javax.inject.Singleton;
+
+/**
+ * Reads text/csv request bodies with their own size limit
+ * micronaut.server.max-request-size は全てのリクエストに掛かるため既定値のままとし、
+ * ストリームで受信するCSV(POST /imports)のみapplication.imports.max-request-sizeまで受け付けます
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+@Consumes(ImportController.TEXT_CSV)
+public class CsvContentSubscriberFactory implements HttpContentSubscriberFactory {
+
+    private final HttpServerConfiguration configuration = new HttpServerConfiguration();
+
+    public CsvContentSubscriberFactory(@Value("${application.imports.max-request-size:1GB}") @ReadableBytes long maxRequestSize) {
+        configuration.setMaxRequestSize(maxRequestSize);
+    }
+
+    @Override
+    public HttpContentProcessor build(NettyHttpRequest request) {
+        return new DefaultHttpContentProcessor(request, configuration);
+    }
+}
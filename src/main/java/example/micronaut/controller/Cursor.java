@@ -0,0 +1,71 @@
+package example.micronaut.controller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Opaque cursor of keyset pagination
+ * クライアントにはIDそのものではなく、エンコードされた文字列として見せます
+ *
+ * @author Yudai Tokunaga
+ */
+final class Cursor {
+
+    private static final String PREFIX = "id:";
+
+    private Cursor() {
+    }
+
+    /**
+     * 最後に返却したエンティティのIDからカーソルを作成します
+     *
+     * @return カーソル文字列
+     */
+    static String encode(long lastId) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * カーソルをIDに戻します
+     * 不正なカーソルの場合は空を返却します
+     *
+     * @return カーソルが指すID
+     */
+    static Optional<Long> decode(String cursor) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!value.startsWith(PREFIX)) {
+                return Optional.empty();
+            }
+            return Optional.of(Long.valueOf(value.substring(PREFIX.length())));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * 次のページを指すLinkヘッダーの値を作成します
+     *
+     * @return Linkヘッダーの値
+     */
+    static String nextLink(String path, long lastId, int max) {
+        return nextLink(path, lastId, max, null);
+    }
+
+    /**
+     * 次のページを指すLinkヘッダーの値を、fieldsパラメータを引き継いで作成します
+     *
+     * @param fields 検証済みのfieldsパラメータ。nullの場合は付与しません
+     * @return Linkヘッダーの値
+     */
+    static String nextLink(String path, long lastId, int max, String fields) {
+        String link = path + "?after=" + encode(lastId) + "&max=" + max;
+        if (fields != null) {
+            link += "&fields=" + fields;
+        }
+        return "<" + link + ">; rel=\"next\"";
+    }
+}
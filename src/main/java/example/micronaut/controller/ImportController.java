@@ -0,0 +1,76 @@
+package example.micronaut.controller;
+
+import example.micronaut.domain.imports.CatalogImporter;
+import example.micronaut.domain.imports.ImportJob;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Body;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Post;
+import io.reactivex.Flowable;
+
+import java.net.URI;
+import java.util.List;
+
+/**
+ * Controller of catalog imports
+ * 本文のCSVはメモリに溜めずに、受信した分から順に登録します
+ *
+ * @author Yudai Tokunaga
+ */
+@Controller("/imports")
+public class ImportController {
+
+    static final String TEXT_CSV = "text/csv";
+
+    private final CatalogImporter catalogImporter;
+
+    public ImportController(CatalogImporter catalogImporter) {
+        this.catalogImporter = catalogImporter;
+    }
+
+    /**
+     * isbn,title,authorName形式のCSVから書籍を登録するインポートを開始し、ACCEPTEDを返却します
+     * 登録は本文の受信と並行してバックグラウンドで続き、進捗と結果はLocationのURIで取得できます
+     * 未登録の著者は登録します。1行目が列名の場合は読み飛ばします
+     * 登録できなかった行はエラーとして数え、他の行の登録は続行します
+     * 登録を続けられない場合はインポートの状態がFAILEDになります
+     *
+     * @return 開始したインポート
+     */
+    @Post(value = "/", consumes = TEXT_CSV)
+    public HttpResponse<ImportJob> save(@Body Flowable<byte[]> body, HttpRequest<?> request) {
+        ImportJob job = catalogImporter.start(body, request.getContentLength());
+        return HttpResponse.<ImportJob>accepted()
+                .headers(headers -> headers.location(location(job.getId())))
+                .body(job);
+    }
+
+    /**
+     * 処理中と、最近完了したインポートを開始した順に返却します
+     *
+     * @return インポートのリスト
+     */
+    @Get("/")
+    public List<ImportJob> list() {
+        return catalogImporter.findAll();
+    }
+
+    /**
+     * インポートの進捗を返却します
+     * 処理した行数、エラー数、1秒あたりの行数、残りの秒数の見積もりを含みます
+     *
+     * @return インポートの進捗
+     */
+    @Get("/{id}")
+    public HttpResponse<ImportJob> show(Long id) {
+        return catalogImporter.findById(id)
+                .<HttpResponse<ImportJob>>map(HttpResponse::ok)
+                .orElse(HttpResponse.notFound());
+    }
+
+    private URI location(Long id) {
+        return URI.create("/imports/" + id);
+    }
+}
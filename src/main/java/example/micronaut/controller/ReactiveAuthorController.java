@@ -0,0 +1,196 @@
+package example.micronaut.controller;
+
+import example.micronaut.ApplicationConfiguration;
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.AuthorUpdateCommand;
+import example.micronaut.domain.ReactiveAuthorRepository;
+import example.micronaut.domain.view.AuthorView;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.*;
+import io.micronaut.validation.Validated;
+import io.reactivex.Single;
+
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking controller of Author
+ * r2dbc.default.enabledがtrueの場合に、AuthorControllerの代わりに使います
+ * <p>
+ * 著者の書籍の取得、IDを指定した取得、fieldsとidsの指定は提供せず、NOT_IMPLEMENTEDを返却します
+ * 条件付き取得のヘッダーは無視し、常に本文を返却します
+ *
+ * @author Yudai Tokunaga
+ */
+@Validated
+@Requires(property = "r2dbc.default.enabled", value = "true")
+@Controller("/authors")
+public class ReactiveAuthorController {
+
+    private final ReactiveAuthorRepository authorRepository;
+    private final ApplicationConfiguration configuration;
+
+    public ReactiveAuthorController(ReactiveAuthorRepository authorRepository,
+                                    ApplicationConfiguration configuration) {
+        this.authorRepository = authorRepository;
+        this.configuration = configuration;
+    }
+
+    /**
+     * 登録済みの著者を返却します
+     *
+     * @return 登録済みの著者
+     */
+    @Get("/{id}")
+    public Single<HttpResponse<AuthorView>> show(Long id,
+                                                 @QueryValue(value = "fields") @Nullable String fields) {
+        if (fields != null) {
+            return Single.just(ReactiveResponses.notImplemented("fields"));
+        }
+        return authorRepository.findById(id)
+                .<HttpResponse<AuthorView>>map(HttpResponse::ok)
+                .toSingle(HttpResponse.notFound());
+    }
+
+    /**
+     * 登録済みの著者をID順に1ページ分返却します
+     * 続きがある場合は次のページを指すLinkヘッダーを付与します
+     * 不正なカーソルの場合はBAD_REQUESTを返却します
+     *
+     * @return 登録済みの著者リスト
+     */
+    @Get("/")
+    public Single<HttpResponse<List<AuthorView>>> list(@QueryValue(value = "after") @Nullable String after,
+                                                       @QueryValue(value = "max") @Nullable @Positive Integer max,
+                                                       @QueryValue(value = "ids") @Nullable List<Long> ids,
+                                                       @QueryValue(value = "fields") @Nullable String fields) {
+        if (ids != null || fields != null) {
+            return Single.just(ReactiveResponses.notImplemented(ids != null ? "ids" : "fields"));
+        }
+
+        long afterId = 0L;
+        if (after != null) {
+            Optional<Long> decoded = Cursor.decode(after);
+            if (!decoded.isPresent()) {
+                return Single.just(HttpResponse.status(HttpStatus.BAD_REQUEST));
+            }
+            afterId = decoded.get();
+        }
+
+        // ページサイズは設定値を上限とする
+        int limit = max == null ? configuration.getMax() : Math.min(max, configuration.getMax());
+        return authorRepository.findAll(afterId, limit)
+                .toList()
+                .<HttpResponse<List<AuthorView>>>map(authors -> {
+                    MutableHttpResponse<List<AuthorView>> response = HttpResponse.ok(authors);
+                    if (authors.size() == limit) {
+                        Long lastId = authors.get(authors.size() - 1).getId();
+                        response.header(HttpHeaders.LINK, Cursor.nextLink("/authors", lastId, limit));
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * 登録済みの著者のうち、名前にキーワードを含む著者を返却します
+     *
+     * @return 登録済みの著者リスト
+     */
+    @Get("/search")
+    public Single<HttpResponse<List<AuthorView>>> search(@QueryValue(value = "keyword") @NotNull String keyword,
+                                                         @QueryValue(value = "fields") @Nullable String fields) {
+        if (fields != null) {
+            return Single.just(ReactiveResponses.notImplemented("fields"));
+        }
+        return authorRepository.findByKeyword(keyword).toList().<HttpResponse<List<AuthorView>>>map(HttpResponse::ok);
+    }
+
+    /**
+     * IDを指定したまとめての取得は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Post("/ids")
+    public HttpResponse showAll() {
+        return ReactiveResponses.notImplemented("POST /authors/ids");
+    }
+
+    /**
+     * 著者の書籍の取得は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Get("/{id}/books")
+    public HttpResponse books(Long id) {
+        return ReactiveResponses.notImplemented("GET /authors/{id}/books");
+    }
+
+    /**
+     * 著者を登録します
+     * 登録できた場合はOK、できない場合はCONFLICTを返却します
+     *
+     * @return OK、またはCONFLICT
+     */
+    @Post("/")
+    public Single<HttpResponse<AuthorView>> save(@Body @Valid AuthorSaveCommand cmd) {
+        return authorRepository.save(cmd.getName())
+                .<HttpResponse<AuthorView>>map(author -> HttpResponse.created(author).headers(headers -> headers.location(location(author.getId()))))
+                .onErrorResumeNext(ReactiveResponses.conflictOnViolation());
+    }
+
+    /**
+     * 著者を削除します
+     * 削除が成功しても失敗してもNO_CONTENTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/{id}")
+    public Single<HttpResponse> delete(Long id) {
+        return authorRepository.deleteById(id)
+                .onErrorComplete()
+                .toSingleDefault(HttpResponse.noContent());
+    }
+
+    /**
+     * 指定されたIDの著者をまとめて削除します
+     * 著者の書籍も一緒に削除します
+     * 登録済みでないIDは無視し、削除が成功しても失敗してもNO_CONTENTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/")
+    public Single<HttpResponse> deleteAll(@QueryValue("ids") @NotEmpty List<Long> ids) {
+        return authorRepository.deleteAllById(ids)
+                .onErrorComplete()
+                .toSingleDefault(HttpResponse.noContent());
+    }
+
+    /**
+     * 著者を更新します
+     * 更新が成功したらNO_CONTENT、失敗したらCONFLICTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Put("/")
+    public Single<HttpResponse<Object>> update(@Body @Valid AuthorUpdateCommand command) {
+        return authorRepository.update(command.getId(), command.getName())
+                .<HttpResponse<Object>>map(updated -> updated == 0
+                        ? HttpResponse.status(HttpStatus.CONFLICT)
+                        : HttpResponse.noContent().header(HttpHeaders.LOCATION, location(command.getId()).getPath()))
+                .onErrorResumeNext(ReactiveResponses.conflictOnViolation());
+    }
+
+    private URI location(Long id) {
+        return URI.create("/authors/" + id);
+    }
+}
@@ -0,0 +1,240 @@
+package example.micronaut.controller;
+
+import example.micronaut.ApplicationConfiguration;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.controller.request.BookUpdateCommand;
+import example.micronaut.domain.ReactiveBookRepository;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.*;
+import io.micronaut.validation.Validated;
+import io.reactivex.Single;
+
+import javax.annotation.Nullable;
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
+import java.net.URI;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Non-blocking controller of Book
+ * r2dbc.default.enabledがtrueの場合に、BookControllerの代わりに使います
+ * <p>
+ * ISBNによる取得、IDを指定した取得、エクスポート、まとめての登録、部分更新、fieldsとidsの指定は提供せず、
+ * NOT_IMPLEMENTEDを返却します
+ * 条件付き取得のヘッダーは無視し、常に本文を返却します
+ *
+ * @author Yudai Tokunaga
+ */
+@Validated
+@Requires(property = "r2dbc.default.enabled", value = "true")
+@Controller("/books")
+public class ReactiveBookController {
+
+    private final ReactiveBookRepository bookRepository;
+    private final ApplicationConfiguration configuration;
+
+    public ReactiveBookController(ReactiveBookRepository bookRepository,
+                                  ApplicationConfiguration configuration) {
+        this.bookRepository = bookRepository;
+        this.configuration = configuration;
+    }
+
+    /**
+     * 登録済みの書籍を返却します
+     *
+     * @return 登録済みの書籍
+     */
+    @Get("/{id}")
+    public Single<HttpResponse<BookView>> show(Long id,
+                                               @QueryValue(value = "fields") @Nullable String fields) {
+        if (fields != null) {
+            return Single.just(ReactiveResponses.notImplemented("fields"));
+        }
+        return bookRepository.findById(id)
+                .<HttpResponse<BookView>>map(HttpResponse::ok)
+                .toSingle(HttpResponse.notFound());
+    }
+
+    /**
+     * 登録済みの書籍をID順に1ページ分返却します
+     * 続きがある場合は次のページを指すLinkヘッダーを付与します
+     * 不正なカーソルの場合はBAD_REQUESTを返却します
+     *
+     * @return 登録済みの書籍リスト
+     */
+    @Get("/")
+    public Single<HttpResponse<List<BookView>>> list(@QueryValue(value = "after") @Nullable String after,
+                                                     @QueryValue(value = "max") @Nullable @Positive Integer max,
+                                                     @QueryValue(value = "ids") @Nullable List<Long> ids,
+                                                     @QueryValue(value = "fields") @Nullable String fields) {
+        if (ids != null || fields != null) {
+            return Single.just(ReactiveResponses.notImplemented(ids != null ? "ids" : "fields"));
+        }
+
+        long afterId = 0L;
+        if (after != null) {
+            Optional<Long> decoded = Cursor.decode(after);
+            if (!decoded.isPresent()) {
+                return Single.just(HttpResponse.status(HttpStatus.BAD_REQUEST));
+            }
+            afterId = decoded.get();
+        }
+
+        // ページサイズは設定値を上限とする
+        int limit = max == null ? configuration.getMax() : Math.min(max, configuration.getMax());
+        return bookRepository.findAll(afterId, limit)
+                .toList()
+                .<HttpResponse<List<BookView>>>map(books -> {
+                    MutableHttpResponse<List<BookView>> response = HttpResponse.ok(books);
+                    if (books.size() == limit) {
+                        Long lastId = books.get(books.size() - 1).getId();
+                        response.header(HttpHeaders.LINK, Cursor.nextLink("/books", lastId, limit));
+                    }
+                    return response;
+                });
+    }
+
+    /**
+     * 登録済みの書籍のうち、名前にキーワードを含む書籍を返却します
+     *
+     * @return 登録済みの書籍リスト
+     */
+    @Get("/search")
+    public Single<HttpResponse<List<BookView>>> search(@QueryValue(value = "keyword") @NotNull String keyword,
+                                                       @QueryValue(value = "fields") @Nullable String fields) {
+        if (fields != null) {
+            return Single.just(ReactiveResponses.notImplemented("fields"));
+        }
+        return bookRepository.findByKeyword(keyword).toList().<HttpResponse<List<BookView>>>map(HttpResponse::ok);
+    }
+
+    /**
+     * ISBNによる取得は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Get("/isbn/{isbn}")
+    public HttpResponse showByIsbn(String isbn) {
+        return ReactiveResponses.notImplemented("GET /books/isbn/{isbn}");
+    }
+
+    /**
+     * ISBNによるまとめての取得は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Post("/isbn")
+    public HttpResponse showAllByIsbn() {
+        return ReactiveResponses.notImplemented("POST /books/isbn");
+    }
+
+    /**
+     * IDを指定したまとめての取得は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Post("/ids")
+    public HttpResponse showAll() {
+        return ReactiveResponses.notImplemented("POST /books/ids");
+    }
+
+    /**
+     * エクスポートは提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Get("/export")
+    public HttpResponse export() {
+        return ReactiveResponses.notImplemented("GET /books/export");
+    }
+
+    /**
+     * まとめての登録は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Post("/batch")
+    public HttpResponse saveAll() {
+        return ReactiveResponses.notImplemented("POST /books/batch");
+    }
+
+    /**
+     * 部分更新は提供しません
+     *
+     * @return NOT_IMPLEMENTED
+     */
+    @Patch("/")
+    public HttpResponse patch() {
+        return ReactiveResponses.notImplemented("PATCH /books");
+    }
+
+    /**
+     * 書籍を登録します
+     * 登録できた場合はOKを返却します
+     * 著者が登録済みでない場合はBAD_REQUEST、
+     * それ以外の理由で登録できない場合はCONFLICTを返却します
+     *
+     * @return OK、またはCONFLICT
+     */
+    @Post("/")
+    public Single<HttpResponse<BookView>> save(@Body @Valid BookSaveCommand cmd) {
+        return bookRepository.save(cmd.getIsbn(), cmd.getTitle(), cmd.getAuthorId())
+                .<HttpResponse<BookView>>map(book -> HttpResponse.created(book).headers(headers -> headers.location(location(book.getId()))))
+                .toSingle(HttpResponse.status(HttpStatus.BAD_REQUEST))
+                .onErrorResumeNext(ReactiveResponses.conflictOnViolation());
+    }
+
+    /**
+     * 書籍を削除します
+     * 削除が成功しても失敗してもNO_CONTENTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/{id}")
+    public Single<HttpResponse> delete(Long id) {
+        return bookRepository.deleteById(id)
+                .onErrorComplete()
+                .toSingleDefault(HttpResponse.noContent());
+    }
+
+    /**
+     * 指定されたIDの書籍をまとめて削除します
+     * 登録済みでないIDは無視し、削除が成功しても失敗してもNO_CONTENTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Delete("/")
+    public Single<HttpResponse> deleteAll(@QueryValue("ids") @NotEmpty List<Long> ids) {
+        return bookRepository.deleteAllById(ids)
+                .onErrorComplete()
+                .toSingleDefault(HttpResponse.noContent());
+    }
+
+    /**
+     * 書籍を更新します
+     * 指定された項目のみを更新し、成功したらNO_CONTENTを返却します
+     * 書籍が登録済みでない場合や、ISBNの重複、著者が登録済みでない場合はCONFLICTを返却します
+     *
+     * @return NO_CONTENT
+     */
+    @Put("/")
+    public Single<HttpResponse<Object>> update(@Body @Valid BookUpdateCommand cmd) {
+        return bookRepository.update(cmd.getId(), cmd.getIsbn(), cmd.getTitle(), cmd.getAuthorId())
+                .<HttpResponse<Object>>map(updated -> updated == 0
+                        ? HttpResponse.status(HttpStatus.CONFLICT)
+                        : HttpResponse.noContent().header(HttpHeaders.LOCATION, location(cmd.getId()).getPath()))
+                .onErrorResumeNext(ReactiveResponses.conflictOnViolation());
+    }
+
+    private URI location(Long id) {
+        return URI.create("/books/" + id);
+    }
+}
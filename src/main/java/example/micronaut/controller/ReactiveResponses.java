@@ -0,0 +1,42 @@
+package example.micronaut.controller;
+
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.r2dbc.spi.R2dbcDataIntegrityViolationException;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+
+/**
+ * Utility of responses on the reactive controllers
+ *
+ * @author Yudai Tokunaga
+ */
+final class ReactiveResponses {
+
+    private ReactiveResponses() {
+    }
+
+    /**
+     * このモードで提供しない機能へのリクエストに、NOT_IMPLEMENTEDを返却します
+     * 理由には機能の名前を含めるため、ルートがないことによるNOT_FOUNDと区別できます
+     *
+     * @param feature 機能の名前
+     * @return NOT_IMPLEMENTED
+     */
+    static <T> MutableHttpResponse<T> notImplemented(String feature) {
+        return HttpResponse.status(HttpStatus.NOT_IMPLEMENTED, feature + " is not available with r2dbc.default.enabled");
+    }
+
+    /**
+     * 一意制約や外部キー制約の違反をCONFLICTに変換します
+     * それ以外のエラーはそのまま返却します
+     *
+     * @return CONFLICT
+     */
+    static <T> Function<Throwable, Single<HttpResponse<T>>> conflictOnViolation() {
+        return e -> e instanceof R2dbcDataIntegrityViolationException
+                ? Single.just(HttpResponse.status(HttpStatus.CONFLICT))
+                : Single.error(e);
+    }
+}
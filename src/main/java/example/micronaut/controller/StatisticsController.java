@@ -0,0 +1,80 @@
+package example.micronaut.controller;
+
+import example.micronaut.domain.stats.CatalogStatistics;
+import example.micronaut.domain.view.AuthorBookCount;
+import example.micronaut.domain.view.CatalogSummary;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.annotation.Controller;
+import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.QueryValue;
+import io.micronaut.validation.Validated;
+
+import javax.annotation.Nullable;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Positive;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Controller of catalog statistics
+ * 件数はリクエストごとに数えず、メモリ上で増減している値を返却します
+ *
+ * @author Yudai Tokunaga
+ */
+@Validated
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
+@Controller("/statistics")
+public class StatisticsController {
+
+    /**
+     * 上位の著者を返却する人数の既定値
+     */
+    private static final int DEFAULT_TOP = 10;
+
+    /**
+     * 上位の著者を返却する人数の上限
+     */
+    private static final int MAX_TOP = 100;
+
+    private final CatalogStatistics statistics;
+
+    public StatisticsController(CatalogStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * 書籍と著者の件数を返却します
+     *
+     * @return 書籍と著者の件数
+     */
+    @Get("/")
+    public CatalogSummary summary() {
+        return statistics.summary();
+    }
+
+    /**
+     * 書籍の件数の多い順に著者を返却します
+     *
+     * @return 著者の書籍の件数
+     */
+    @Get("/authors")
+    public List<AuthorBookCount> top(@QueryValue(value = "top") @Nullable @Positive @Max(MAX_TOP) Integer top) {
+        return statistics.top(top == null ? DEFAULT_TOP : top);
+    }
+
+    /**
+     * 著者の書籍の件数を返却します
+     * 著者が登録済みでない場合はNOT_FOUNDを返却します
+     *
+     * @return 著者の書籍の件数
+     */
+    @Get("/authors/{id}")
+    public HttpResponse<AuthorBookCount> author(Long id) {
+        Optional<AuthorBookCount> author = statistics.author(id);
+        if (!author.isPresent()) {
+            return HttpResponse.notFound();
+        }
+        return HttpResponse.ok(author.get());
+    }
+}
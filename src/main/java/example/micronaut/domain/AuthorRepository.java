@@ -1,10 +1,14 @@
 package example.micronaut.domain;
 
 import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.view.AuthorView;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -14,15 +18,29 @@ import java.util.Optional;
  */
 public interface AuthorRepository {
 
-    List<Author> findAll();
+    List<AuthorView> findAll(long after, int max);
+
+    List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields);
 
     Optional<Author> findById(@NotNull Long id);
 
-    List<Author> findByKeyword(@NotNull String keyword);
+    List<Author> findAllById(@NotNull Collection<Long> ids);
+
+    long countAll();
+
+    List<AuthorView> findByKeyword(@NotNull String keyword);
+
+    List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields);
+
+    Map<String, Long> findIdsByName(@NotNull Collection<String> names);
 
     Author save(@NotBlank String name);
 
+    List<Author> saveAll(@NotNull Collection<String> names);
+
     void deleteById(@NotNull Long id);
 
+    int deleteAllById(@NotNull Collection<Long> ids);
+
     int update(@NotNull Long id, @NotBlank String name);
 }
\ No newline at end of file
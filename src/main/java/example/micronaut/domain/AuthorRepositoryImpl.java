@@ -1,16 +1,35 @@
 package example.micronaut.domain;
 
+import example.micronaut.domain.cache.AuthorCache;
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.coalesce.Coalesced;
 import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.index.IsbnIndex;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.stats.CatalogCounts;
+import example.micronaut.domain.view.AuthorView;
 import io.micronaut.configuration.hibernate.jpa.scope.CurrentSession;
 import io.micronaut.spring.tx.annotation.Transactional;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
 
 import javax.inject.Singleton;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Implementation of author repository interface
@@ -20,57 +39,304 @@ import java.util.Optional;
 @Singleton
 public class AuthorRepositoryImpl implements AuthorRepository {
 
+    /**
+     * in句に並べるIDの最大数
+     */
+    private static final int IN_CLAUSE_SIZE = 500;
+
+    /**
+     * 著者を読み取りモデルとして取得するクエリ
+     */
+    private static final String SELECT_AUTHOR_VIEW = "select new example.micronaut.domain.view.AuthorView("
+            + "author.id, author.name, author.version, author.modifiedAt) "
+            + "from Author author";
+
     @PersistenceContext
     private EntityManager entityManager;
 
-    public AuthorRepositoryImpl(@CurrentSession EntityManager entityManager) {
+    private final SessionFactory sessionFactory;
+    private final TitleIndex titleIndex;
+    private final IsbnIndex isbnIndex;
+    private final AuthorCache authorCache;
+    private final BookCache bookCache;
+    private final CatalogCounts catalogCounts;
+    private final TableRevisions revisions;
+
+    public AuthorRepositoryImpl(@CurrentSession EntityManager entityManager,
+                                SessionFactory sessionFactory,
+                                TitleIndex titleIndex,
+                                IsbnIndex isbnIndex,
+                                AuthorCache authorCache,
+                                BookCache bookCache,
+                                CatalogCounts catalogCounts,
+                                TableRevisions revisions) {
         this.entityManager = entityManager;
+        this.sessionFactory = sessionFactory;
+        this.titleIndex = titleIndex;
+        this.isbnIndex = isbnIndex;
+        this.authorCache = authorCache;
+        this.bookCache = bookCache;
+        this.catalogCounts = catalogCounts;
+        this.revisions = revisions;
     }
 
+    /**
+     * 著者を読み取りモデルとしてID順に返却します
+     */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
-    public List<Author> findAll() {
+    public List<AuthorView> findAll(long after, int max) {
         return entityManager
-                .createQuery("select author from Author as author", Author.class)
+                .createQuery(SELECT_AUTHOR_VIEW + " where author.id > :after order by author.id", AuthorView.class)
+                .setParameter("after", after)
+                .setMaxResults(max)
                 .getResultList();
     }
 
+    /**
+     * 著者の選択された属性のみをID順に返却します
+     */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields) {
+        return fields.toMaps(entityManager
+                .createQuery(fields.query() + " where author.id > :after order by author.id")
+                .setParameter("after", after)
+                .setMaxResults(max)
+                .getResultList());
+    }
+
+    /**
+     * 著者をキャッシュから返却します
+     * キャッシュにない場合のみDBから読み込みます
+     * 返却する著者は永続化コンテキストに属さないインスタンスです
+     * 同時の同じ呼び出しとは同じインスタンスを共有するため、呼び出し元で変更しないでください
+     */
+    @Override
+    @Coalesced
     public Optional<Author> findById(@NotNull Long id) {
-        return Optional.ofNullable(entityManager.find(Author.class, id));
+        return authorCache
+                .getOrLoad(id, () -> loadView(id))
+                .map(AuthorRepositoryImpl::toEntity);
     }
 
+    /**
+     * 指定されたIDの著者を指定された順序で返却します
+     * キャッシュにない著者のみを、in句ごとに1回のクエリでまとめて読み込みます
+     * 登録済みでないIDは含まず、重複したIDは1件として扱います
+     * 同時の同じ呼び出しとは同じリストを共有するため、呼び出し元で変更しないでください
+     */
     @Override
+    @Coalesced
+    public List<Author> findAllById(@NotNull Collection<Long> ids) {
+        Map<Long, AuthorView> views = authorCache.getAllOrLoad(ids, this::loadViews);
+        List<Author> authors = new ArrayList<>(views.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            AuthorView view = views.get(id);
+            if (view != null) {
+                authors.add(toEntity(view));
+            }
+        }
+        return authors;
+    }
+
+    @Override
+    @Coalesced
     @Transactional(readOnly = true)
-    public List<Author> findByKeyword(@NotNull String keyword) {
+    public long countAll() {
         return entityManager
-                .createQuery("select author from Author as author where author.name like :keyword", Author.class)
+                .createQuery("select count(author) from Author author", Long.class)
+                .getSingleResult();
+    }
+
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<AuthorView> findByKeyword(@NotNull String keyword) {
+        return entityManager
+                .createQuery(SELECT_AUTHOR_VIEW + " where author.name like :keyword", AuthorView.class)
                 .setParameter("keyword", "%" + keyword + "%")
                 .getResultList();
     }
 
+    /**
+     * 名前にキーワードを含む著者の、選択された属性のみを返却します
+     */
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields) {
+        return fields.toMaps(entityManager
+                .createQuery(fields.query() + " where author.name like :keyword")
+                .setParameter("keyword", "%" + keyword + "%")
+                .getResultList());
+    }
+
+    /**
+     * 著者名からIDを引く対応表を、in句ごとに1回のクエリで作成します
+     * 登録済みでない著者名は含まれません
+     *
+     * @return 著者名とIDの対応表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Long> findIdsByName(@NotNull Collection<String> names) {
+        List<String> remaining = new ArrayList<>(names);
+        Map<String, Long> ids = new HashMap<>();
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_SIZE) {
+            List<Object[]> authors = entityManager
+                    .createQuery("select author.name, author.id from Author author where author.name in :names", Object[].class)
+                    .setParameter("names", remaining.subList(from, Math.min(from + IN_CLAUSE_SIZE, remaining.size())))
+                    .getResultList();
+            for (Object[] author : authors) {
+                ids.put((String) author[0], (Long) author[1]);
+            }
+        }
+        return ids;
+    }
+
     @Override
     @Transactional
     public Author save(@NotBlank String name) {
         Author author = new Author(name);
         entityManager.persist(author);
+        revisions.authorsChanged();
+        TransactionCallbacks.afterCommit(() -> catalogCounts.authorsAdded(1));
         return author;
     }
 
+    /**
+     * 著者をまとめて登録します
+     * INSERTはフラッシュ時にhibernate.jdbc.batch_size件ずつJDBCバッチで発行されます
+     */
+    @Override
+    @Transactional
+    public List<Author> saveAll(@NotNull Collection<String> names) {
+        List<Author> authors = new ArrayList<>();
+        for (String name : names) {
+            Author author = new Author(name);
+            entityManager.persist(author);
+            authors.add(author);
+        }
+        revisions.authorsChanged();
+        TransactionCallbacks.afterCommit(() -> catalogCounts.authorsAdded(authors.size()));
+        return authors;
+    }
+
     @Override
     @Transactional
     public void deleteById(@NotNull Long id) {
-        findById(id).ifPresent(author -> entityManager.remove(author));
+        deleteAllById(Collections.singletonList(id));
+    }
+
+    /**
+     * 指定されたIDの著者と、その著者の書籍をin句ごとに1回ずつのDELETEで削除します
+     * 著者の書籍のコレクションは読み込まず、索引から削除するためのID、タイトル、ISBNのみを取得します
+     *
+     * @return 著者の削除件数
+     */
+    @Override
+    @Transactional
+    public int deleteAllById(@NotNull Collection<Long> ids) {
+        List<Long> remaining = new ArrayList<>(ids);
+        int deleted = 0;
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_SIZE) {
+            List<Long> chunk = remaining.subList(from, Math.min(from + IN_CLAUSE_SIZE, remaining.size()));
+            List<Object[]> titles = entityManager
+                    .createQuery("select book.id, book.title, book.isbn from Book book where book.author.id in :ids", Object[].class)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+            if (!titles.isEmpty()) {
+                entityManager
+                        .createQuery("delete from Book book where book.author.id in :ids")
+                        .setParameter("ids", chunk)
+                        .executeUpdate();
+                revisions.booksChanged();
+                TransactionCallbacks.afterCommit(() -> titles.forEach(book -> {
+                    titleIndex.remove((Long) book[0], (String) book[1]);
+                    isbnIndex.remove((String) book[2], (Long) book[0]);
+                }));
+            }
+            int authors = entityManager
+                    .createQuery("delete from Author author where author.id in :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            if (authors > 0) {
+                List<Long> authorIds = new ArrayList<>(chunk);
+                invalidate(authorIds);
+                TransactionCallbacks.afterCommit(() -> catalogCounts.authorsDeleted(authorIds, authors));
+                deleted += authors;
+            }
+        }
+        return deleted;
     }
 
     @Override
     @Transactional
     public int update(@NotNull Long id, @NotBlank String name) {
-        return entityManager
-                .createQuery("update Author author set author.name = :name where author.id = :id")
+        int updated = entityManager
+                .createQuery("update Author author set author.name = :name, "
+                        + "author.version = author.version + 1, author.modifiedAt = :modifiedAt where author.id = :id")
                 .setParameter("name", name)
+                .setParameter("modifiedAt", Instant.now())
                 .setParameter("id", id)
                 .executeUpdate();
+        invalidate(Collections.singleton(id));
+        return updated;
+    }
+
+    /**
+     * 著者と、著者の書籍をキャッシュから削除します
+     * 書籍はコミット後にキャッシュ全体を1回走査し、指定された著者の書籍をまとめて削除します
+     * コミット前に読み込まれた古い値は、読み込み中の無効化としてキャッシュされないか、この走査で削除されます
+     */
+    private void invalidate(Collection<Long> ids) {
+        Set<Long> authorIds = new HashSet<>(ids);
+        TransactionCallbacks.afterCommit(() -> {
+            authorIds.forEach(authorCache::invalidate);
+            bookCache.invalidateIf(book -> authorIds.contains(book.getAuthor().getId()));
+        });
+        revisions.authorsChanged();
+    }
+
+    private Optional<AuthorView> loadView(Long id) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            return session
+                    .createQuery(SELECT_AUTHOR_VIEW + " where author.id = :id", AuthorView.class)
+                    .setParameter("id", id)
+                    .uniqueResultOptional();
+        } finally {
+            session.close();
+        }
+    }
+
+    private Map<Long, AuthorView> loadViews(List<Long> ids) {
+        Map<Long, AuthorView> views = new HashMap<>();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            for (int from = 0; from < ids.size(); from += IN_CLAUSE_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_SIZE, ids.size()));
+                for (AuthorView view : session
+                        .createQuery(SELECT_AUTHOR_VIEW + " where author.id in :ids", AuthorView.class)
+                        .setParameterList("ids", chunk)
+                        .getResultList()) {
+                    views.put(view.getId(), view);
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return views;
+    }
+
+    private static Author toEntity(AuthorView view) {
+        Author author = new Author(view.getName());
+        author.setId(view.getId());
+        author.setVersion(view.getVersion());
+        author.setModifiedAt(view.getModifiedAt());
+        return author;
     }
 }
\ No newline at end of file
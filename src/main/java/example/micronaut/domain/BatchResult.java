@@ -0,0 +1,51 @@
+package example.micronaut.domain;
+
+/**
+ * Result of one item of a batch registration
+ *
+ * @author Yudai Tokunaga
+ */
+public final class BatchResult {
+
+    public enum Status {
+        CREATED,
+        CONFLICT,
+        UNKNOWN_AUTHOR
+    }
+
+    private final Status status;
+
+    private final String isbn;
+
+    private final Long id;
+
+    private BatchResult(Status status, String isbn, Long id) {
+        this.status = status;
+        this.isbn = isbn;
+        this.id = id;
+    }
+
+    public static BatchResult created(String isbn, Long id) {
+        return new BatchResult(Status.CREATED, isbn, id);
+    }
+
+    public static BatchResult conflict(String isbn) {
+        return new BatchResult(Status.CONFLICT, isbn, null);
+    }
+
+    public static BatchResult unknownAuthor(String isbn) {
+        return new BatchResult(Status.UNKNOWN_AUTHOR, isbn, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public Long getId() {
+        return id;
+    }
+}
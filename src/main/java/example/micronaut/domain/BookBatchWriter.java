@@ -0,0 +1,109 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import org.springframework.dao.DataAccessException;
+
+import javax.inject.Singleton;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registers many books in chunked transactions
+ * 1チャンクごとに著者と重複ISBNをまとめて確認し、残りをJDBCバッチで登録します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class BookBatchWriter {
+
+    /**
+     * 1トランザクションで登録する最大件数
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+
+    public BookBatchWriter(BookRepository bookRepository, AuthorRepository authorRepository) {
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+    }
+
+    /**
+     * 書籍をまとめて登録し、1件ごとの結果を入力と同じ順序で返却します
+     *
+     * @return 登録結果
+     */
+    public List<BatchResult> write(List<NewBook> books) {
+        BatchResult[] results = new BatchResult[books.size()];
+        for (int from = 0; from < books.size(); from += CHUNK_SIZE) {
+            int to = Math.min(from + CHUNK_SIZE, books.size());
+            writeChunk(books.subList(from, to), results, from);
+        }
+        return Arrays.asList(results);
+    }
+
+    private void writeChunk(List<NewBook> chunk, BatchResult[] results, int offset) {
+
+        // 著者と登録済みのISBNをそれぞれ1回のクエリで取得する
+        Set<Long> authorIds = new HashSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (NewBook book : chunk) {
+            authorIds.add(book.getAuthorId());
+            isbns.add(book.getIsbn());
+        }
+        Map<Long, Author> authors = new HashMap<>();
+        for (Author author : authorRepository.findAllById(authorIds)) {
+            authors.put(author.getId(), author);
+        }
+        Set<String> taken = new HashSet<>(bookRepository.findExistingIsbns(isbns));
+
+        List<Book> inserts = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            NewBook book = chunk.get(i);
+            Author author = authors.get(book.getAuthorId());
+            if (author == null) {
+                results[offset + i] = BatchResult.unknownAuthor(book.getIsbn());
+            } else if (!taken.add(book.getIsbn())) {
+                results[offset + i] = BatchResult.conflict(book.getIsbn());
+            } else {
+                inserts.add(new Book(book.getIsbn(), book.getTitle(), author));
+                positions.add(offset + i);
+            }
+        }
+        if (inserts.isEmpty()) {
+            return;
+        }
+
+        try {
+            bookRepository.saveAll(inserts);
+            for (int i = 0; i < inserts.size(); i++) {
+                Book book = inserts.get(i);
+                results[positions.get(i)] = BatchResult.created(book.getIsbn(), book.getId());
+            }
+        } catch (PersistenceException | DataAccessException e) {
+            // 確認後に他の登録と競合した場合は、競合した書籍を特定するため1件ずつ登録し直す
+            for (int i = 0; i < inserts.size(); i++) {
+                Book book = inserts.get(i);
+                results[positions.get(i)] = saveOne(book);
+            }
+        }
+    }
+
+    private BatchResult saveOne(Book book) {
+        try {
+            Book saved = bookRepository.save(book.getIsbn(), book.getTitle(), book.getAuthor());
+            return BatchResult.created(saved.getIsbn(), saved.getId());
+        } catch (PersistenceException | DataAccessException e) {
+            return BatchResult.conflict(book.getIsbn());
+        }
+    }
+}
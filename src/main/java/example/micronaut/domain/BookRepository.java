@@ -2,9 +2,14 @@ package example.micronaut.domain;
 
 import example.micronaut.domain.entity.Author;
 import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.view.BookView;
+import io.reactivex.Flowable;
 
 import javax.validation.constraints.NotNull;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -14,15 +19,43 @@ import java.util.Optional;
  */
 public interface BookRepository {
 
-    List<Book> findAll();
+    List<BookView> findAll(long after, int max);
+
+    List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields);
 
     Optional<Book> findById(@NotNull Long id);
 
-    List<Book> findByKeyword(@NotNull String keyword);
+    List<Book> findAllById(@NotNull Collection<Long> ids);
+
+    List<BookView> findByAuthor(@NotNull Long authorId, long after, int max);
+
+    List<Map<String, Object>> findByAuthor(@NotNull Long authorId, long after, int max, @NotNull FieldSelection fields);
+
+    long countByAuthor(@NotNull Long authorId);
+
+    Map<Long, Long> countAllByAuthor();
+
+    Optional<Book> findByIsbn(long isbn);
+
+    Map<Long, Book> findAllByIsbn(@NotNull Collection<Long> isbns);
+
+    List<BookView> findByKeyword(@NotNull String keyword);
+
+    List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields);
+
+    Flowable<BookView> streamAll();
+
+    List<String> findExistingIsbns(@NotNull Collection<String> isbns);
 
     Book save(@NotNull String isbn, @NotNull String title, @NotNull Author author);
 
+    List<Book> saveAll(@NotNull List<Book> books);
+
     void deleteById(@NotNull Long id);
 
+    int deleteAllById(@NotNull Collection<Long> ids);
+
     int update(@NotNull Long id, String isbn, String title, Long authorId);
+
+    int patch(@NotNull Long id, String isbn, String title, Long authorId, Long expectedVersion);
 }
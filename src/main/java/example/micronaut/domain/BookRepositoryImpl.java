@@ -1,15 +1,41 @@
 package example.micronaut.domain;
 
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.coalesce.Coalesced;
 import example.micronaut.domain.entity.Author;
 import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.index.Isbn;
+import example.micronaut.domain.index.IsbnIndex;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.stats.CatalogCounts;
+import example.micronaut.domain.view.BookView;
 import io.micronaut.configuration.hibernate.jpa.scope.CurrentSession;
 import io.micronaut.spring.tx.annotation.Transactional;
+import io.reactivex.Flowable;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
 
 /**
  * Implementation of book repository interface
@@ -18,33 +44,279 @@ import java.util.Optional;
  */
 public class BookRepositoryImpl implements BookRepository {
 
+    /**
+     * 全件読み出し時に1回の通信で取得する行数
+     */
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    /**
+     * in句に並べるIDの最大数
+     */
+    private static final int IN_CLAUSE_SIZE = 500;
+
+    /**
+     * 索引の候補をin句で検索する最大件数
+     * 候補がこれより多いキーワードでは、in句のクエリを何度も発行するより1回のlike検索の方が速いため、索引を使いません
+     */
+    private static final int MAX_INDEX_CANDIDATES = 2_000;
+
+    /**
+     * 書籍を著者名付きの読み取りモデルとして取得するクエリ
+     */
+    private static final String SELECT_BOOK_VIEW = "select new example.micronaut.domain.view.BookView("
+            + "book.id, book.isbn, book.title, book.version, book.modifiedAt, "
+            + "author.id, author.name, author.version, author.modifiedAt) "
+            + "from Book book join book.author author";
+
     @PersistenceContext
     private EntityManager entityManager;
 
-    public BookRepositoryImpl(@CurrentSession EntityManager entityManager) {
+    private final SessionFactory sessionFactory;
+    private final TitleIndex titleIndex;
+    private final IsbnIndex isbnIndex;
+    private final BookCache bookCache;
+    private final CatalogCounts catalogCounts;
+    private final TableRevisions revisions;
+
+    public BookRepositoryImpl(@CurrentSession EntityManager entityManager,
+                              SessionFactory sessionFactory,
+                              TitleIndex titleIndex,
+                              IsbnIndex isbnIndex,
+                              BookCache bookCache,
+                              CatalogCounts catalogCounts,
+                              TableRevisions revisions) {
         this.entityManager = entityManager;
+        this.sessionFactory = sessionFactory;
+        this.titleIndex = titleIndex;
+        this.isbnIndex = isbnIndex;
+        this.bookCache = bookCache;
+        this.catalogCounts = catalogCounts;
+        this.revisions = revisions;
     }
 
+    /**
+     * 書籍を著者名付きの読み取りモデルとしてID順に返却します
+     * 著者は同じクエリで結合して取得するため、1回のSQLで完結します
+     */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
-    public List<Book> findAll() {
+    public List<BookView> findAll(long after, int max) {
         return entityManager
-                .createQuery("select book from Book book", Book.class)
+                .createQuery(SELECT_BOOK_VIEW + " where book.id > :after order by book.id", BookView.class)
+                .setParameter("after", after)
+                .setMaxResults(max)
                 .getResultList();
     }
 
+    /**
+     * 選択された属性のみをID順に返却します
+     * 著者の属性を選択しない場合は著者を結合しません
+     */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
+    public List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields) {
+        return fields.toMaps(entityManager
+                .createQuery(fields.query() + " where book.id > :after order by book.id")
+                .setParameter("after", after)
+                .setMaxResults(max)
+                .getResultList());
+    }
+
+    /**
+     * 書籍をキャッシュから返却します
+     * キャッシュにない場合のみDBから読み込みます
+     * 返却する書籍は永続化コンテキストに属さないインスタンスです
+     * 同時の同じ呼び出しとは同じインスタンスを共有するため、呼び出し元で変更しないでください
+     */
+    @Override
+    @Coalesced
     public Optional<Book> findById(@NotNull Long id) {
-        return Optional.ofNullable(entityManager.find(Book.class, id));
+        return bookCache
+                .getOrLoad(id, () -> loadView(id))
+                .map(BookRepositoryImpl::toEntity);
+    }
+
+    /**
+     * 指定されたIDの書籍を指定された順序で返却します
+     * キャッシュにない書籍のみを、in句ごとに1回のクエリで著者名付きでまとめて読み込みます
+     * 登録済みでないIDは含まず、重複したIDは1件として扱います
+     */
+    @Override
+    @Coalesced
+    public List<Book> findAllById(@NotNull Collection<Long> ids) {
+        Map<Long, BookView> views = bookCache.getAllOrLoad(ids, this::loadViews);
+        List<Book> books = new ArrayList<>(views.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            BookView view = views.get(id);
+            if (view != null) {
+                books.add(toEntity(view));
+            }
+        }
+        return books;
+    }
+
+    /**
+     * 著者の書籍を著者名付きの読み取りモデルとしてID順に返却します
+     * 著者の書籍のコレクションは読み込まず、(author_id, id)の索引の範囲読み込みで取得します
+     */
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<BookView> findByAuthor(@NotNull Long authorId, long after, int max) {
+        return entityManager
+                .createQuery(SELECT_BOOK_VIEW + " where book.author.id = :authorId and book.id > :after order by book.id", BookView.class)
+                .setParameter("authorId", authorId)
+                .setParameter("after", after)
+                .setMaxResults(max)
+                .getResultList();
+    }
+
+    /**
+     * 著者の書籍の選択された属性のみをID順に返却します
+     */
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> findByAuthor(@NotNull Long authorId, long after, int max, @NotNull FieldSelection fields) {
+        return fields.toMaps(entityManager
+                .createQuery(fields.query() + " where book.author.id = :authorId and book.id > :after order by book.id")
+                .setParameter("authorId", authorId)
+                .setParameter("after", after)
+                .setMaxResults(max)
+                .getResultList());
+    }
+
+    /**
+     * 著者の書籍の件数を返却します
+     * 件数の読み込みが完了していない場合のみDBで数えます
+     */
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public long countByAuthor(@NotNull Long authorId) {
+        OptionalLong count = catalogCounts.get(authorId);
+        if (count.isPresent()) {
+            return count.getAsLong();
+        }
+        return entityManager
+                .createQuery("select count(book) from Book book where book.author.id = :authorId", Long.class)
+                .setParameter("authorId", authorId)
+                .getSingleResult();
+    }
+
+    /**
+     * 著者ごとの書籍の件数を1回のクエリで数えます
+     *
+     * @return 著者IDをキーとする件数
+     */
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public Map<Long, Long> countAllByAuthor() {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : entityManager
+                .createQuery("select book.author.id, count(book) from Book book group by book.author.id", Object[].class)
+                .getResultList()) {
+            counts.put((Long) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    @Override
+    @Coalesced
+    public Optional<Book> findByIsbn(long isbn) {
+        return Optional.ofNullable(findAllByIsbn(Collections.singletonList(isbn)).get(isbn));
+    }
+
+    /**
+     * ISBN-13の数値に対応する書籍を返却します
+     * 索引で特定した書籍はキャッシュから取得し、キャッシュにない書籍はin句ごとに1回のクエリでまとめて読み込んで、
+     * 書籍のISBNと照合します
+     * 索引の構築前は、索引にない書籍をハイフンなしのISBN-13、ISBN-10の表記でDBから検索します
+     * 見つからなかったISBNは返却する表に含みません
+     *
+     * @return ISBN-13の数値をキーとする、指定された順序の書籍
+     */
+    @Override
+    @Coalesced
+    public Map<Long, Book> findAllByIsbn(@NotNull Collection<Long> isbns) {
+        Map<Long, Long> hits = new LinkedHashMap<>();
+        Set<Long> misses = new LinkedHashSet<>();
+        for (Long isbn : isbns) {
+            OptionalLong id = isbnIndex.get(isbn);
+            if (id.isPresent()) {
+                hits.put(isbn, id.getAsLong());
+            } else {
+                misses.add(isbn);
+            }
+        }
+        Map<Long, BookView> views = hits.isEmpty()
+                ? Collections.emptyMap()
+                : bookCache.getAllOrLoad(hits.values(), this::loadViews);
+        Map<Long, Book> books = new LinkedHashMap<>();
+        hits.forEach((isbn, id) -> {
+            BookView view = views.get(id);
+            if (view != null && Isbn.parse(view.getIsbn()).equals(OptionalLong.of(isbn))) {
+                books.put(isbn, toEntity(view));
+            } else {
+                // 変更前のISBNが分からずに残った古い項目は、ここで削除する
+                isbnIndex.remove(Isbn.format(isbn), id);
+                misses.add(isbn);
+            }
+        });
+        if (!misses.isEmpty() && !isbnIndex.isReady()) {
+            books.putAll(loadByIsbn(misses));
+        }
+        return books;
+    }
+
+    @Override
+    @Coalesced
+    @Transactional(readOnly = true)
+    public List<BookView> findByKeyword(@NotNull String keyword) {
+        return selectByKeyword(SELECT_BOOK_VIEW, keyword);
     }
 
+    /**
+     * 名前にキーワードを含む書籍の、選択された属性のみを返却します
+     */
     @Override
+    @Coalesced
     @Transactional(readOnly = true)
-    public List<Book> findByKeyword(@NotNull String keyword) {
+    public List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields) {
+        return fields.toMaps(selectByKeyword(fields.query(), keyword));
+    }
+
+    /**
+     * 全ての書籍を著者名付きでID順に読み出します
+     * StatelessSessionの前方専用カーソルから購読者の要求した分だけ取り出すため、
+     * 件数に関わらずメモリ使用量は一定です
+     */
+    @Override
+    public Flowable<BookView> streamAll() {
+        return Flowable.generate(
+                () -> new BookCursor(sessionFactory.openStatelessSession()),
+                (cursor, emitter) -> {
+                    if (cursor.results.next()) {
+                        emitter.onNext((BookView) cursor.results.get(0));
+                    } else {
+                        emitter.onComplete();
+                    }
+                },
+                BookCursor::close);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<String> findExistingIsbns(@NotNull Collection<String> isbns) {
+        if (isbns.isEmpty()) {
+            return Collections.emptyList();
+        }
         return entityManager
-                .createQuery("select book from Book as book where book.title like :keyword", Book.class)
-                .setParameter("keyword", "%" + keyword + "%")
+                .createQuery("select book.isbn from Book as book where book.isbn in :isbns", String.class)
+                .setParameter("isbns", isbns)
                 .getResultList();
     }
 
@@ -53,25 +325,323 @@ public class BookRepositoryImpl implements BookRepository {
     public Book save(@NotNull String isbn, @NotNull String title, @NotNull Author author) {
         Book book = new Book(isbn, title, author);
         entityManager.persist(book);
+        revisions.booksChanged();
+        TransactionCallbacks.afterCommit(() -> {
+            titleIndex.add(book.getId(), title);
+            isbnIndex.add(isbn, book.getId());
+            catalogCounts.added(author.getId());
+        });
         return book;
     }
 
+    /**
+     * 書籍をまとめて登録します
+     * INSERTはフラッシュ時にhibernate.jdbc.batch_size件ずつJDBCバッチで発行されます
+     */
+    @Override
+    @Transactional
+    public List<Book> saveAll(@NotNull List<Book> books) {
+        for (Book book : books) {
+            entityManager.persist(book);
+        }
+        revisions.booksChanged();
+        TransactionCallbacks.afterCommit(() -> books.forEach(book -> {
+            titleIndex.add(book.getId(), book.getTitle());
+            isbnIndex.add(book.getIsbn(), book.getId());
+            catalogCounts.added(book.getAuthor().getId());
+        }));
+        return books;
+    }
+
     @Override
     @Transactional
     public void deleteById(@NotNull Long id) {
-        findById(id).ifPresent(book -> entityManager.remove(book));
+        deleteAllById(Collections.singletonList(id));
+    }
+
+    /**
+     * 指定されたIDの書籍をin句ごとに1回のDELETEで削除します
+     * 索引と件数から削除するためにID、タイトル、ISBN、著者IDのみを取得し、エンティティは読み込みません
+     *
+     * @return 削除件数
+     */
+    @Override
+    @Transactional
+    public int deleteAllById(@NotNull Collection<Long> ids) {
+        List<Long> remaining = new ArrayList<>(ids);
+        int deleted = 0;
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_SIZE) {
+            List<Long> chunk = remaining.subList(from, Math.min(from + IN_CLAUSE_SIZE, remaining.size()));
+            List<Object[]> titles = entityManager
+                    .createQuery("select book.id, book.title, book.isbn, book.author.id from Book book where book.id in :ids", Object[].class)
+                    .setParameter("ids", chunk)
+                    .getResultList();
+            if (titles.isEmpty()) {
+                continue;
+            }
+            deleted += entityManager
+                    .createQuery("delete from Book book where book.id in :ids")
+                    .setParameter("ids", chunk)
+                    .executeUpdate();
+            for (Object[] book : titles) {
+                Long id = (Long) book[0];
+                String title = (String) book[1];
+                String isbn = (String) book[2];
+                Long authorId = (Long) book[3];
+                invalidate(id);
+                TransactionCallbacks.afterCommit(() -> {
+                    titleIndex.remove(id, title);
+                    isbnIndex.remove(isbn, id);
+                    catalogCounts.removed(authorId);
+                });
+            }
+        }
+        return deleted;
     }
 
     @Override
     @Transactional
     public int update(@NotNull Long id, String isbn, String title, Long authorId) {
-        Optional<Book> book = findById(id);
-        return entityManager
-                .createQuery("update Book book set book.isbn = :isbn, book.title = :title, book.author.id = :authorId where book.id = :id")
+        Optional<Book> book = Optional.ofNullable(entityManager.find(Book.class, id, LockModeType.PESSIMISTIC_WRITE));
+        int updated = entityManager
+                .createQuery("update Book book set book.isbn = :isbn, book.title = :title, book.author.id = :authorId, "
+                        + "book.version = book.version + 1, book.modifiedAt = :modifiedAt where book.id = :id")
                 .setParameter("isbn", isbn)
                 .setParameter("title", title)
                 .setParameter("authorId", authorId)
+                .setParameter("modifiedAt", Instant.now())
                 .setParameter("id", id)
                 .executeUpdate();
+        book.ifPresent(before -> {
+            String oldTitle = before.getTitle();
+            String oldIsbn = before.getIsbn();
+            Long oldAuthorId = before.getAuthor().getId();
+            TransactionCallbacks.afterCommit(() -> {
+                titleIndex.replace(id, oldTitle, title);
+                isbnIndex.replace(id, oldIsbn, isbn);
+                catalogCounts.moved(oldAuthorId, authorId);
+            });
+        });
+        invalidate(id);
+        return updated;
+    }
+
+    /**
+     * nullでない項目のみを、バージョンの確認を含む1つのUPDATE文で更新します
+     * 著者の存在は外部キー制約で確認します
+     * expectedVersionを指定した場合は、バージョンが一致する場合のみ更新します
+     * <p>
+     * 索引と件数の更新に使う変更前のタイトル、ISBN、著者は、UPDATEの前に行ロック付き(select ... for update)で読み込みます
+     * 同じ書籍への同時の更新はこのロックで順に実行されるため、変更前の値を他の更新と重ねて読むことはありません
+     * そのためDBへの往復は、読み込みとUPDATEの2回です
+     *
+     * @return 更新件数
+     */
+    @Override
+    @Transactional
+    public int patch(@NotNull Long id, String isbn, String title, Long authorId, Long expectedVersion) {
+        StringBuilder jpql = new StringBuilder(
+                "update Book book set book.version = book.version + 1, book.modifiedAt = :modifiedAt");
+        if (isbn != null) {
+            jpql.append(", book.isbn = :isbn");
+        }
+        if (title != null) {
+            jpql.append(", book.title = :title");
+        }
+        if (authorId != null) {
+            jpql.append(", book.author.id = :authorId");
+        }
+        jpql.append(" where book.id = :id");
+        if (expectedVersion != null) {
+            jpql.append(" and book.version = :version");
+        }
+
+        Query query = entityManager.createQuery(jpql.toString())
+                .setParameter("modifiedAt", Instant.now())
+                .setParameter("id", id);
+        if (isbn != null) {
+            query.setParameter("isbn", isbn);
+        }
+        if (title != null) {
+            query.setParameter("title", title);
+        }
+        if (authorId != null) {
+            query.setParameter("authorId", authorId);
+        }
+        if (expectedVersion != null) {
+            query.setParameter("version", expectedVersion);
+        }
+
+        Optional<Book> book = isbn == null && title == null && authorId == null
+                ? Optional.empty()
+                : Optional.ofNullable(entityManager.find(Book.class, id, LockModeType.PESSIMISTIC_WRITE));
+        int updated = query.executeUpdate();
+        if (updated > 0) {
+            book.ifPresent(before -> {
+                String oldTitle = before.getTitle();
+                String oldIsbn = before.getIsbn();
+                Long oldAuthorId = before.getAuthor().getId();
+                if (title != null) {
+                    TransactionCallbacks.afterCommit(() -> titleIndex.replace(id, oldTitle, title));
+                }
+                if (isbn != null) {
+                    TransactionCallbacks.afterCommit(() -> isbnIndex.replace(id, oldIsbn, isbn));
+                }
+                if (authorId != null) {
+                    TransactionCallbacks.afterCommit(() -> catalogCounts.moved(oldAuthorId, authorId));
+                }
+            });
+            invalidate(id);
+        }
+        return updated;
+    }
+
+    /**
+     * 書籍のキャッシュを無効化します
+     * コミット前に読み込まれた古い値が残らないよう、コミット後にもう一度無効化します
+     */
+    private void invalidate(Long id) {
+        bookCache.invalidate(id);
+        TransactionCallbacks.afterCommit(() -> bookCache.invalidate(id));
+        revisions.booksChanged();
+    }
+
+    private Optional<BookView> loadView(Long id) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            return session
+                    .createQuery(SELECT_BOOK_VIEW + " where book.id = :id", BookView.class)
+                    .setParameter("id", id)
+                    .uniqueResultOptional();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * タイトルにキーワードを含む書籍を、指定されたselect句でID順に取得します
+     * 索引が使える場合は、索引で絞り込んだ候補に対してのみlike検索を行います
+     * 候補がMAX_INDEX_CANDIDATES件を超える場合は、索引を使わずにlike検索を行います
+     *
+     * @return 検索結果の行
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> selectByKeyword(String select, String keyword) {
+        Optional<long[]> candidates = titleIndex.candidates(keyword);
+        if (!candidates.isPresent() || candidates.get().length > MAX_INDEX_CANDIDATES) {
+            return entityManager
+                    .createQuery(select + " where book.title like :keyword order by book.id")
+                    .setParameter("keyword", "%" + keyword + "%")
+                    .getResultList();
+        }
+
+        long[] ids = candidates.get();
+        List<T> rows = new ArrayList<>();
+        for (int from = 0; from < ids.length; from += IN_CLAUSE_SIZE) {
+            List<Long> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(from + IN_CLAUSE_SIZE, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            rows.addAll(entityManager
+                    .createQuery(select + " where book.id in :ids and book.title like :keyword order by book.id")
+                    .setParameter("ids", chunk)
+                    .setParameter("keyword", "%" + keyword + "%")
+                    .getResultList());
+        }
+        return rows;
+    }
+
+    private Map<Long, BookView> loadViews(List<Long> ids) {
+        Map<Long, BookView> views = new HashMap<>();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            for (int from = 0; from < ids.size(); from += IN_CLAUSE_SIZE) {
+                List<Long> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_SIZE, ids.size()));
+                for (BookView view : session
+                        .createQuery(SELECT_BOOK_VIEW + " where book.id in :ids", BookView.class)
+                        .setParameterList("ids", chunk)
+                        .getResultList()) {
+                    views.put(view.getId(), view);
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return views;
+    }
+
+    /**
+     * ISBN-13の数値に対応する書籍を、ハイフンなしの表記でDBから検索します
+     *
+     * @return ISBN-13の数値をキーとする書籍
+     */
+    private Map<Long, Book> loadByIsbn(Collection<Long> isbns) {
+        List<String> notations = new ArrayList<>();
+        for (Long isbn : isbns) {
+            notations.addAll(Isbn.notations(isbn));
+        }
+        Map<Long, Book> books = new HashMap<>();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            for (int from = 0; from < notations.size(); from += IN_CLAUSE_SIZE) {
+                List<String> chunk = notations.subList(from, Math.min(from + IN_CLAUSE_SIZE, notations.size()));
+                List<BookView> views = session
+                        .createQuery(SELECT_BOOK_VIEW + " where book.isbn in :isbns", BookView.class)
+                        .setParameterList("isbns", chunk)
+                        .getResultList();
+                for (BookView view : views) {
+                    Isbn.parse(view.getIsbn()).ifPresent(isbn -> books.put(isbn, toEntity(view)));
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return books;
+    }
+
+    private static Book toEntity(BookView view) {
+        Author author = new Author(view.getAuthor().getName());
+        author.setId(view.getAuthor().getId());
+        author.setVersion(view.getAuthor().getVersion());
+        author.setModifiedAt(view.getAuthor().getModifiedAt());
+        Book book = new Book(view.getIsbn(), view.getTitle(), author);
+        book.setId(view.getId());
+        book.setVersion(view.getVersion());
+        book.setModifiedAt(view.getModifiedAt());
+        return book;
+    }
+
+    /**
+     * 全件読み出し中のセッションとカーソル
+     */
+    private static class BookCursor {
+
+        private final StatelessSession session;
+        private final Transaction transaction;
+        private final ScrollableResults results;
+
+        BookCursor(StatelessSession session) {
+            this.session = session;
+            try {
+                this.transaction = session.beginTransaction();
+                this.results = session
+                        .createQuery(SELECT_BOOK_VIEW + " order by book.id")
+                        .setFetchSize(STREAM_FETCH_SIZE)
+                        .setReadOnly(true)
+                        .scroll(ScrollMode.FORWARD_ONLY);
+            } catch (RuntimeException e) {
+                session.close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                results.close();
+                transaction.commit();
+            } finally {
+                session.close();
+            }
+        }
     }
 }
@@ -0,0 +1,60 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.entity.Book;
+
+/**
+ * Result of one item of a batch ISBN lookup
+ *
+ * @author Yudai Tokunaga
+ */
+public final class IsbnResult {
+
+    public enum Status {
+        FOUND,
+        NOT_FOUND,
+        INVALID
+    }
+
+    private final Status status;
+
+    private final String isbn;
+
+    private final String normalized;
+
+    private final Book book;
+
+    private IsbnResult(Status status, String isbn, String normalized, Book book) {
+        this.status = status;
+        this.isbn = isbn;
+        this.normalized = normalized;
+        this.book = book;
+    }
+
+    public static IsbnResult found(String isbn, String normalized, Book book) {
+        return new IsbnResult(Status.FOUND, isbn, normalized, book);
+    }
+
+    public static IsbnResult notFound(String isbn, String normalized) {
+        return new IsbnResult(Status.NOT_FOUND, isbn, normalized, null);
+    }
+
+    public static IsbnResult invalid(String isbn) {
+        return new IsbnResult(Status.INVALID, isbn, null, null);
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getNormalized() {
+        return normalized;
+    }
+
+    public Book getBook() {
+        return book;
+    }
+}
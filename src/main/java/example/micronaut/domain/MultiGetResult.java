@@ -0,0 +1,57 @@
+package example.micronaut.domain;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Result of fetching many entities by id
+ * 見つかったエンティティを指定された順序で返却し、見つからなかったIDを別に返却します
+ *
+ * @author Yudai Tokunaga
+ */
+public final class MultiGetResult<T> {
+
+    private final List<T> items;
+
+    private final List<Long> missing;
+
+    private MultiGetResult(List<T> items, List<Long> missing) {
+        this.items = items;
+        this.missing = missing;
+    }
+
+    /**
+     * 指定されたIDと見つかったエンティティから結果を作成します
+     *
+     * @param ids   指定されたID
+     * @param found 見つかったエンティティ(指定された順序)
+     * @param id    エンティティのIDを取り出す関数
+     * @return 結果
+     */
+    public static <T> MultiGetResult<T> of(Collection<Long> ids, List<T> found, Function<T, Long> id) {
+        Set<Long> foundIds = new HashSet<>();
+        for (T item : found) {
+            foundIds.add(id.apply(item));
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long requested : new LinkedHashSet<>(ids)) {
+            if (!foundIds.contains(requested)) {
+                missing.add(requested);
+            }
+        }
+        return new MultiGetResult<>(found, missing);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public List<Long> getMissing() {
+        return missing;
+    }
+}
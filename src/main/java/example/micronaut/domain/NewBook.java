@@ -0,0 +1,33 @@
+package example.micronaut.domain;
+
+/**
+ * Data class of a book to be registered
+ *
+ * @author Yudai Tokunaga
+ */
+public final class NewBook {
+
+    private final String isbn;
+
+    private final String title;
+
+    private final Long authorId;
+
+    public NewBook(String isbn, String title, Long authorId) {
+        this.isbn = isbn;
+        this.title = title;
+        this.authorId = authorId;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+}
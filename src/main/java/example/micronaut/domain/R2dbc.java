@@ -0,0 +1,135 @@
+package example.micronaut.domain;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.functions.Function;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Utility of R2DBC connections and statements
+ *
+ * @author Yudai Tokunaga
+ */
+final class R2dbc {
+
+    private static final Logger LOG = LoggerFactory.getLogger(R2dbc.class);
+
+    /**
+     * in句に並べるIDの最大数
+     */
+    private static final int IN_CLAUSE_SIZE = 500;
+
+    private R2dbc() {
+    }
+
+    /**
+     * コネクションを取得して処理を行います
+     * 完了、エラー、キャンセルのいずれの場合もコネクションを返却します
+     *
+     * @return 処理結果
+     */
+    static <T> Flowable<T> withConnection(ConnectionFactory connectionFactory, Function<Connection, Publisher<T>> work) {
+        return Flowable.fromPublisher(connectionFactory.create()).concatMap(connection -> {
+            Completable close = Completable.fromPublisher(connection.close())
+                    .doOnError(e -> LOG.warn("Failed to close the R2DBC connection", e))
+                    .onErrorComplete();
+            Function<Throwable, Publisher<T>> closeAndFail = e -> close.andThen(Flowable.<T>error(e));
+            return Flowable.fromPublisher(work.apply(connection))
+                    .onErrorResumeNext(closeAndFail)
+                    .concatWith(close)
+                    .doOnCancel(() -> close.subscribe(() -> {
+                    }, e -> LOG.warn("Failed to close the R2DBC connection on cancel", e)));
+        });
+    }
+
+    /**
+     * トランザクション内で処理を行います
+     * エラーの場合はロールバックします
+     *
+     * @return 処理結果
+     */
+    static <T> Flowable<T> inTransaction(ConnectionFactory connectionFactory, Function<Connection, Publisher<T>> work) {
+        return withConnection(connectionFactory, connection -> {
+            Function<Throwable, Publisher<T>> rollbackAndFail = e -> Completable
+                    .fromPublisher(connection.rollbackTransaction())
+                    .onErrorComplete()
+                    .andThen(Flowable.<T>error(e));
+            return Completable.fromPublisher(connection.beginTransaction())
+                    .andThen(Flowable.fromPublisher(work.apply(connection)))
+                    .concatWith(Completable.fromPublisher(connection.commitTransaction()))
+                    .onErrorResumeNext(rollbackAndFail);
+        });
+    }
+
+    /**
+     * クエリを実行し、1行ごとに変換して返却します
+     *
+     * @return 変換した行
+     */
+    static <T> Flowable<T> query(Statement statement, java.util.function.Function<Row, T> mapper) {
+        return Flowable.fromPublisher(statement.execute())
+                .concatMap(result -> result.map((row, metadata) -> mapper.apply(row)));
+    }
+
+    /**
+     * 更新を実行し、更新件数を返却します
+     *
+     * @return 更新件数
+     */
+    static Single<Integer> update(Statement statement) {
+        return Flowable.fromPublisher(statement.execute())
+                .concatMap(Result::getRowsUpdated)
+                .reduce(0, Integer::sum);
+    }
+
+    /**
+     * IDをin句1つ分ずつに分割します
+     *
+     * @return 分割したID
+     */
+    static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> remaining = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_SIZE) {
+            chunks.add(remaining.subList(from, Math.min(from + IN_CLAUSE_SIZE, remaining.size())));
+        }
+        return chunks;
+    }
+
+    /**
+     * IDを1つずつバインドするin句を作成します
+     *
+     * @return in句
+     */
+    static String in(String column, List<Long> ids) {
+        StringBuilder clause = new StringBuilder(column).append(" in (");
+        for (int i = 1; i <= ids.size(); i++) {
+            clause.append(i == 1 ? "$" : ", $").append(i);
+        }
+        return clause.append(")").toString();
+    }
+
+    /**
+     * in句のIDを先頭から順にバインドします
+     *
+     * @return バインドしたステートメント
+     */
+    static Statement bindAll(Statement statement, List<Long> ids) {
+        for (int i = 0; i < ids.size(); i++) {
+            statement.bind(i, ids.get(i));
+        }
+        return statement;
+    }
+}
@@ -0,0 +1,32 @@
+package example.micronaut.domain;
+
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+
+import javax.inject.Singleton;
+
+/**
+ * Factory of the R2DBC connection factory
+ * r2dbc.default.enabledがtrueの場合のみ作成します
+ *
+ * @author Yudai Tokunaga
+ */
+@Factory
+public class R2dbcConnectionFactory {
+
+    @Singleton
+    @Requires(property = "r2dbc.default.enabled", value = "true")
+    public ConnectionFactory connectionFactory(@Value("${r2dbc.default.url}") String url,
+                                               @Value("${r2dbc.default.username}") String username,
+                                               @Value("${r2dbc.default.password}") String password) {
+        return ConnectionFactories.get(ConnectionFactoryOptions.parse(url)
+                .mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build());
+    }
+}
@@ -0,0 +1,33 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.view.AuthorView;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+
+/**
+ * Interface of non-blocking author repository
+ *
+ * @author Yudai Tokunaga
+ */
+public interface ReactiveAuthorRepository {
+
+    Flowable<AuthorView> findAll(long after, int max);
+
+    Maybe<AuthorView> findById(@NotNull Long id);
+
+    Flowable<AuthorView> findByKeyword(@NotNull String keyword);
+
+    Single<AuthorView> save(@NotBlank String name);
+
+    Completable deleteById(@NotNull Long id);
+
+    Completable deleteAllById(@NotNull Collection<Long> ids);
+
+    Single<Integer> update(@NotNull Long id, @NotBlank String name);
+}
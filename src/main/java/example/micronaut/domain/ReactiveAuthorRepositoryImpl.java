@@ -0,0 +1,188 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.cache.AuthorCache;
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.index.IsbnIndex;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.stats.CatalogCounts;
+import example.micronaut.domain.view.AuthorView;
+import io.micronaut.context.annotation.Requires;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import javax.inject.Singleton;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Implementation of non-blocking author repository on R2DBC
+ * JPAのリポジトリと同じく、コミット後に索引、キャッシュ、件数、リビジョンに変更を反映します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+@Requires(beans = ConnectionFactory.class)
+public class ReactiveAuthorRepositoryImpl implements ReactiveAuthorRepository {
+
+    private static final String SELECT_AUTHOR = "select id, name, version from author";
+
+    private final ConnectionFactory connectionFactory;
+    private final TitleIndex titleIndex;
+    private final IsbnIndex isbnIndex;
+    private final AuthorCache authorCache;
+    private final BookCache bookCache;
+    private final CatalogCounts catalogCounts;
+    private final TableRevisions revisions;
+    private final ReactiveIdGenerator idGenerator;
+
+    public ReactiveAuthorRepositoryImpl(ConnectionFactory connectionFactory,
+                                        TitleIndex titleIndex,
+                                        IsbnIndex isbnIndex,
+                                        AuthorCache authorCache,
+                                        BookCache bookCache,
+                                        CatalogCounts catalogCounts,
+                                        TableRevisions revisions,
+                                        ReactiveIdGenerator idGenerator) {
+        this.connectionFactory = connectionFactory;
+        this.titleIndex = titleIndex;
+        this.isbnIndex = isbnIndex;
+        this.authorCache = authorCache;
+        this.bookCache = bookCache;
+        this.catalogCounts = catalogCounts;
+        this.revisions = revisions;
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public Flowable<AuthorView> findAll(long after, int max) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement(SELECT_AUTHOR + " where id > $1 order by id limit $2")
+                .bind(0, after)
+                .bind(1, max), ReactiveAuthorRepositoryImpl::toView));
+    }
+
+    @Override
+    public Maybe<AuthorView> findById(@NotNull Long id) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement(SELECT_AUTHOR + " where id = $1")
+                .bind(0, id), ReactiveAuthorRepositoryImpl::toView))
+                .firstElement();
+    }
+
+    @Override
+    public Flowable<AuthorView> findByKeyword(@NotNull String keyword) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement(SELECT_AUTHOR + " where name like $1")
+                .bind(0, "%" + keyword + "%"), ReactiveAuthorRepositoryImpl::toView));
+    }
+
+    @Override
+    public Single<AuthorView> save(@NotBlank String name) {
+        return R2dbc.withConnection(connectionFactory, connection -> idGenerator.nextId(connection)
+                .flatMap(id -> R2dbc.update(connection
+                        .createStatement("insert into author (id, name, version, modified_at) values ($1, $2, 0, $3)")
+                        .bind(0, id)
+                        .bind(1, name)
+                        .bind(2, LocalDateTime.now()))
+                        .map(inserted -> new AuthorView(id, name, 0L, null)))
+                .toFlowable())
+                .singleOrError()
+                .doOnSuccess(author -> {
+                    catalogCounts.authorsAdded(1);
+                    revisions.authorsChanged();
+                });
+    }
+
+    @Override
+    public Completable deleteById(@NotNull Long id) {
+        return deleteAllById(Collections.singletonList(id));
+    }
+
+    /**
+     * 指定されたIDの著者と、その著者の書籍をin句ごとに1回ずつのDELETEで、1つのトランザクションで削除します
+     * 索引から削除するため、削除前の書籍のID、タイトル、ISBNを同じトランザクションで取得します
+     */
+    @Override
+    public Completable deleteAllById(@NotNull Collection<Long> ids) {
+        List<Long> authorIds = new ArrayList<>(ids);
+        return R2dbc.inTransaction(connectionFactory, connection -> Flowable.fromIterable(R2dbc.chunks(authorIds))
+                .concatMapSingle(chunk -> R2dbc.query(R2dbc.bindAll(connection
+                        .createStatement("select id, title, isbn from book where " + R2dbc.in("author_id", chunk)), chunk),
+                        row -> new Object[]{row.get("id", Long.class), row.get("title", String.class), row.get("isbn", String.class)})
+                        .toList()
+                        .flatMap(books -> R2dbc.update(R2dbc.bindAll(connection
+                                .createStatement("delete from book where " + R2dbc.in("author_id", chunk)), chunk))
+                                .flatMap(deletedBooks -> R2dbc.update(R2dbc.bindAll(connection
+                                        .createStatement("delete from author where " + R2dbc.in("id", chunk)), chunk)))
+                                .map(authors -> new Deleted(books, authors)))))
+                .toList()
+                .doOnSuccess(chunks -> {
+                    // inTransactionはコミット後に完了するため、ここではコミット済み
+                    int authors = 0;
+                    for (Deleted deleted : chunks) {
+                        for (Object[] book : deleted.books) {
+                            titleIndex.remove((Long) book[0], (String) book[1]);
+                            isbnIndex.remove((String) book[2], (Long) book[0]);
+                        }
+                        authors += deleted.authors;
+                    }
+                    if (authors == 0) {
+                        return;
+                    }
+                    Set<Long> removed = new HashSet<>(authorIds);
+                    removed.forEach(authorCache::invalidate);
+                    bookCache.invalidateIf(book -> removed.contains(book.getAuthor().getId()));
+                    catalogCounts.authorsDeleted(authorIds, authors);
+                    revisions.booksChanged();
+                    revisions.authorsChanged();
+                })
+                .ignoreElement();
+    }
+
+    @Override
+    public Single<Integer> update(@NotNull Long id, @NotBlank String name) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.update(connection
+                .createStatement("update author set name = $1, version = version + 1, modified_at = $2 where id = $3")
+                .bind(0, name)
+                .bind(1, LocalDateTime.now())
+                .bind(2, id))
+                .toFlowable())
+                .singleOrError()
+                .doOnSuccess(updated -> {
+                    if (updated > 0) {
+                        authorCache.invalidate(id);
+                        bookCache.invalidateIf(book -> id.equals(book.getAuthor().getId()));
+                        revisions.authorsChanged();
+                    }
+                });
+    }
+
+    private static AuthorView toView(Row row) {
+        return new AuthorView(row.get("id", Long.class), row.get("name", String.class), row.get("version", Long.class), null);
+    }
+
+    /**
+     * 1チャンク分の削除結果
+     */
+    private static final class Deleted {
+
+        private final List<Object[]> books;
+        private final int authors;
+
+        Deleted(List<Object[]> books, int authors) {
+            this.books = books;
+            this.authors = authors;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.view.BookView;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+
+/**
+ * Interface of non-blocking book repository
+ *
+ * @author Yudai Tokunaga
+ */
+public interface ReactiveBookRepository {
+
+    Flowable<BookView> findAll(long after, int max);
+
+    Maybe<BookView> findById(@NotNull Long id);
+
+    Flowable<BookView> findByKeyword(@NotNull String keyword);
+
+    Maybe<BookView> save(@NotNull String isbn, @NotNull String title, @NotNull Long authorId);
+
+    Completable deleteById(@NotNull Long id);
+
+    Completable deleteAllById(@NotNull Collection<Long> ids);
+
+    Single<Integer> update(@NotNull Long id, String isbn, String title, Long authorId);
+}
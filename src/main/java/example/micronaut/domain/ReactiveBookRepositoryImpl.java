@@ -0,0 +1,215 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.index.IsbnIndex;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.stats.CatalogCounts;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.annotation.Requires;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.Statement;
+import io.reactivex.Completable;
+import io.reactivex.Flowable;
+import io.reactivex.Maybe;
+import io.reactivex.Single;
+
+import javax.inject.Singleton;
+import javax.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Implementation of non-blocking book repository on R2DBC
+ * JPAのリポジトリと同じく、コミット後に索引、キャッシュ、件数、リビジョンに変更を反映します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+@Requires(beans = ConnectionFactory.class)
+public class ReactiveBookRepositoryImpl implements ReactiveBookRepository {
+
+    /**
+     * 書籍を著者名付きで取得するクエリ
+     */
+    private static final String SELECT_BOOK = "select book.id, book.isbn, book.title, book.version, "
+            + "author.id as author_id, author.name as author_name, author.version as author_version "
+            + "from book join author on author.id = book.author_id";
+
+    private final ConnectionFactory connectionFactory;
+    private final TitleIndex titleIndex;
+    private final IsbnIndex isbnIndex;
+    private final BookCache bookCache;
+    private final CatalogCounts catalogCounts;
+    private final TableRevisions revisions;
+    private final ReactiveIdGenerator idGenerator;
+
+    public ReactiveBookRepositoryImpl(ConnectionFactory connectionFactory,
+                                      TitleIndex titleIndex,
+                                      IsbnIndex isbnIndex,
+                                      BookCache bookCache,
+                                      CatalogCounts catalogCounts,
+                                      TableRevisions revisions,
+                                      ReactiveIdGenerator idGenerator) {
+        this.connectionFactory = connectionFactory;
+        this.titleIndex = titleIndex;
+        this.isbnIndex = isbnIndex;
+        this.bookCache = bookCache;
+        this.catalogCounts = catalogCounts;
+        this.revisions = revisions;
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public Flowable<BookView> findAll(long after, int max) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement(SELECT_BOOK + " where book.id > $1 order by book.id limit $2")
+                .bind(0, after)
+                .bind(1, max), ReactiveBookRepositoryImpl::toView));
+    }
+
+    @Override
+    public Maybe<BookView> findById(@NotNull Long id) {
+        return R2dbc.withConnection(connectionFactory, connection -> select(connection, id).toFlowable())
+                .firstElement();
+    }
+
+    @Override
+    public Flowable<BookView> findByKeyword(@NotNull String keyword) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement(SELECT_BOOK + " where book.title like $1 order by book.id")
+                .bind(0, "%" + keyword + "%"), ReactiveBookRepositoryImpl::toView));
+    }
+
+    /**
+     * 書籍を登録し、著者名付きで返却します
+     * 著者が登録済みでない場合は空を返却します
+     */
+    @Override
+    public Maybe<BookView> save(@NotNull String isbn, @NotNull String title, @NotNull Long authorId) {
+        return R2dbc.withConnection(connectionFactory, connection -> R2dbc.query(connection
+                .createStatement("select id from author where id = $1")
+                .bind(0, authorId), row -> row.get("id", Long.class))
+                .flatMapMaybe(author -> idGenerator.nextId(connection)
+                        .flatMap(id -> R2dbc.update(connection
+                                .createStatement("insert into book (id, isbn, title, author_id, version, modified_at) values ($1, $2, $3, $4, 0, $5)")
+                                .bind(0, id)
+                                .bind(1, isbn)
+                                .bind(2, title)
+                                .bind(3, authorId)
+                                .bind(4, LocalDateTime.now()))
+                                .map(inserted -> id))
+                        .flatMapMaybe(id -> select(connection, id))))
+                .firstElement()
+                .doOnSuccess(book -> {
+                    titleIndex.add(book.getId(), book.getTitle());
+                    isbnIndex.add(book.getIsbn(), book.getId());
+                    catalogCounts.added(book.getAuthor().getId());
+                    revisions.booksChanged();
+                });
+    }
+
+    @Override
+    public Completable deleteById(@NotNull Long id) {
+        return deleteAllById(Collections.singletonList(id));
+    }
+
+    /**
+     * 指定されたIDの書籍をin句ごとに1回のDELETEで、1つのトランザクションで削除します
+     * 索引と件数から削除するため、削除前の書籍を同じトランザクションで取得します
+     */
+    @Override
+    public Completable deleteAllById(@NotNull Collection<Long> ids) {
+        return R2dbc.inTransaction(connectionFactory, connection -> Flowable.fromIterable(R2dbc.chunks(ids))
+                .concatMap(chunk -> R2dbc.query(R2dbc.bindAll(connection
+                        .createStatement(SELECT_BOOK + " where " + R2dbc.in("book.id", chunk)), chunk), ReactiveBookRepositoryImpl::toView)
+                        .toList()
+                        .flatMapPublisher(books -> R2dbc.update(R2dbc.bindAll(connection
+                                .createStatement("delete from book where " + R2dbc.in("id", chunk)), chunk))
+                                .flatMapPublisher(deleted -> Flowable.fromIterable(books)))))
+                .toList()
+                .doOnSuccess(books -> {
+                    // inTransactionはコミット後に完了するため、ここではコミット済み
+                    for (BookView book : books) {
+                        titleIndex.remove(book.getId(), book.getTitle());
+                        isbnIndex.remove(book.getIsbn(), book.getId());
+                        catalogCounts.removed(book.getAuthor().getId());
+                        bookCache.invalidate(book.getId());
+                    }
+                    if (!books.isEmpty()) {
+                        revisions.booksChanged();
+                    }
+                })
+                .ignoreElement();
+    }
+
+    /**
+     * nullでない項目のみを1回のUPDATEで更新します
+     * 著者の存在は外部キー制約で確認します
+     * 索引と件数を更新するため、変更前の書籍を同じトランザクションで取得します
+     */
+    @Override
+    public Single<Integer> update(@NotNull Long id, String isbn, String title, Long authorId) {
+        List<Object> values = new ArrayList<>();
+        StringBuilder sql = new StringBuilder("update book set version = version + 1, modified_at = $1");
+        values.add(LocalDateTime.now());
+        if (isbn != null) {
+            values.add(isbn);
+            sql.append(", isbn = $").append(values.size());
+        }
+        if (title != null) {
+            values.add(title);
+            sql.append(", title = $").append(values.size());
+        }
+        if (authorId != null) {
+            values.add(authorId);
+            sql.append(", author_id = $").append(values.size());
+        }
+        values.add(id);
+        sql.append(" where id = $").append(values.size());
+
+        return R2dbc.inTransaction(connectionFactory, connection -> select(connection, id)
+                .toFlowable()
+                .toList()
+                .flatMap(before -> {
+                    Statement statement = connection.createStatement(sql.toString());
+                    for (int i = 0; i < values.size(); i++) {
+                        statement.bind(i, values.get(i));
+                    }
+                    return R2dbc.update(statement).map(updated -> updated > 0 ? before : Collections.<BookView>emptyList());
+                })
+                .toFlowable())
+                .singleOrError()
+                .doOnSuccess(updated -> updated.forEach(before -> {
+                    if (title != null) {
+                        titleIndex.replace(id, before.getTitle(), title);
+                    }
+                    if (isbn != null) {
+                        isbnIndex.replace(id, before.getIsbn(), isbn);
+                    }
+                    if (authorId != null) {
+                        catalogCounts.moved(before.getAuthor().getId(), authorId);
+                    }
+                    bookCache.invalidate(id);
+                    revisions.booksChanged();
+                }))
+                .map(List::size);
+    }
+
+    private static Maybe<BookView> select(Connection connection, Long id) {
+        return R2dbc.query(connection
+                .createStatement(SELECT_BOOK + " where book.id = $1")
+                .bind(0, id), ReactiveBookRepositoryImpl::toView)
+                .firstElement();
+    }
+
+    private static BookView toView(Row row) {
+        return new BookView(row.get("id", Long.class), row.get("isbn", String.class), row.get("title", String.class),
+                row.get("version", Long.class), null,
+                row.get("author_id", Long.class), row.get("author_name", String.class), row.get("author_version", Long.class), null);
+    }
+}
@@ -0,0 +1,64 @@
+package example.micronaut.domain;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.reactivex.Single;
+
+import javax.inject.Singleton;
+
+/**
+ * Id generator of the R2DBC repositories using the pooled optimizer
+ * エンティティと同じくhibernate_sequenceの1回の呼び出しでhibernate.id.increment_size件のIDを確保し、
+ * その範囲はDBへの問い合わせなしで採番します
+ * <p>
+ * シーケンスの値を範囲の上限とするHibernateのpooledと同じ範囲を使うため、Hibernateが確保する範囲とは重なりません
+ * 範囲の残りがない時に同時に確保した場合は、後に確保した範囲に切り替え、先の範囲の残りは使いません
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+@Requires(beans = ConnectionFactory.class)
+public class ReactiveIdGenerator {
+
+    private final int incrementSize;
+
+    /**
+     * 次に返却するIDと、確保した範囲の上限
+     */
+    private long next = 1L;
+    private long hi = 0L;
+
+    public ReactiveIdGenerator(@Value("${jpa.default.properties.hibernate.id.increment_size:50}") int incrementSize) {
+        this.incrementSize = incrementSize;
+    }
+
+    /**
+     * 新しいIDを返却します
+     * 確保した範囲に残りがない場合のみ、このコネクションでシーケンスを呼び出します
+     *
+     * @return 新しいID
+     */
+    public Single<Long> nextId(Connection connection) {
+        synchronized (this) {
+            if (next <= hi) {
+                return Single.just(next++);
+            }
+        }
+        return R2dbc.query(connection.createStatement("select nextval('hibernate_sequence')"), row -> row.get(0, Long.class))
+                .singleOrError()
+                .map(this::allocate);
+    }
+
+    /**
+     * シーケンスの値を上限とする範囲を確保し、その先頭のIDを返却します
+     * シーケンスの最初の値は範囲の下限が1未満になるため、1から始めます
+     */
+    private synchronized long allocate(long value) {
+        long low = Math.max(1L, value - incrementSize + 1);
+        next = low + 1;
+        hi = value;
+        return low;
+    }
+}
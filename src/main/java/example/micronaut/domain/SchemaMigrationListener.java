@@ -0,0 +1,122 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.entity.PooledSequenceGenerator;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.List;
+
+/**
+ * Migrates an existing schema when the session factory is created
+ * hbm2ddl.autoがupdateの場合、既存のシーケンスの増分とカラムの制約は変更されず、追加したカラムの既存の行は値がありません
+ * セッションファクトリを他のBeanに渡す前に以下を行うため、起動後の処理は常に移行後のスキーマを前提にできます
+ * <p>
+ * ・hibernate_sequenceの増分をhibernate.id.increment_sizeに合わせます
+ * 増分が異なると、確保したIDの範囲が前回の範囲と重なり同じIDを採番します
+ * ・書籍と著者のversionとmodified_atがない行に、0と現在日時を設定します
+ * ・versionとmodified_atをNOT NULLにします
+ * <p>
+ * いずれも移行済みの場合は何もしないため、複数のノードが同時に起動しても問題ありません
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class SchemaMigrationListener implements BeanCreatedEventListener<SessionFactory> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SchemaMigrationListener.class);
+
+    private static final String SEQUENCE = "hibernate_sequence";
+
+    private static final String[] TABLES = {"author", "book"};
+
+    @Override
+    public SessionFactory onCreated(BeanCreatedEvent<SessionFactory> event) {
+        SessionFactory sessionFactory = event.getBean();
+        int incrementSize = ConfigurationHelper.getInt(PooledSequenceGenerator.INCREMENT_SIZE_SETTING,
+                sessionFactory.getProperties(), PooledSequenceGenerator.DEFAULT_INCREMENT_SIZE);
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            migrateSequence(session, incrementSize);
+            for (String table : TABLES) {
+                migrateColumns(session, table);
+            }
+        } finally {
+            session.close();
+        }
+        return sessionFactory;
+    }
+
+    /**
+     * シーケンスの増分を変更します
+     * 変更後の最初の呼び出しは現在値から新しい増分だけ進むため、確保する範囲は採番済みのIDと重なりません
+     */
+    private static void migrateSequence(StatelessSession session, int incrementSize) {
+        List<?> increments;
+        try {
+            increments = session
+                    .createNativeQuery("select increment from information_schema.sequences where lower(sequence_name) = :name")
+                    .setParameter("name", SEQUENCE)
+                    .getResultList();
+        } catch (RuntimeException e) {
+            LOG.warn("Could not read the increment of {}, skipping its migration", SEQUENCE, e);
+            return;
+        }
+        if (increments.isEmpty()) {
+            LOG.warn("Sequence {} was not found, skipping its migration", SEQUENCE);
+            return;
+        }
+        long increment = Long.parseLong(String.valueOf(increments.get(0)).trim());
+        if (increment != incrementSize) {
+            LOG.info("Changing the increment of {} from {} to {}", SEQUENCE, increment, incrementSize);
+            execute(session, "alter sequence " + SEQUENCE + " increment by " + incrementSize);
+        }
+    }
+
+    /**
+     * versionとmodified_atの値がない行を埋め、NOT NULLにします
+     */
+    private static void migrateColumns(StatelessSession session, String table) {
+        int versions = execute(session, "update " + table + " set version = 0 where version is null");
+        int modifiedAts = execute(session, "update " + table + " set modified_at = current_timestamp where modified_at is null");
+        if (versions > 0 || modifiedAts > 0) {
+            LOG.info("Filled {} versions and {} modification times of {}", versions, modifiedAts, table);
+        }
+        for (String column : new String[]{"version", "modified_at"}) {
+            if (isNullable(session, table, column)) {
+                LOG.info("Making {}.{} not null", table, column);
+                execute(session, "alter table " + table + " alter column " + column + " set not null");
+            }
+        }
+    }
+
+    private static boolean isNullable(StatelessSession session, String table, String column) {
+        List<?> nullables = session
+                .createNativeQuery("select is_nullable from information_schema.columns "
+                        + "where lower(table_name) = :table and lower(column_name) = :column")
+                .setParameter("table", table)
+                .setParameter("column", column)
+                .getResultList();
+        return nullables.stream().anyMatch(nullable -> "YES".equalsIgnoreCase(String.valueOf(nullable).trim()));
+    }
+
+    private static int execute(StatelessSession session, String sql) {
+        Transaction transaction = session.beginTransaction();
+        try {
+            int updated = session.createNativeQuery(sql).executeUpdate();
+            transaction.commit();
+            return updated;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        }
+    }
+}
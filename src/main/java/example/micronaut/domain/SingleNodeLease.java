@@ -0,0 +1,147 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.entity.NodeLease;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.scheduling.annotation.Scheduled;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.PersistenceException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Restricts the database to a single running node
+ * application.single-node.enabledの場合のみ有効です
+ * キャッシュ、索引、件数、スナップショットはノードのメモリに保持し、他のノードの書き込みを検知しないため、
+ * これらを全て正しく保つ必要がある場合に、同じDBを使うノードを1つに限ります
+ * 有効な場合は一覧のリビジョン(ETag)もDBに問い合わせずに、このノードの書き込みから求めます
+ * <p>
+ * 起動時にnode_leaseテーブルの行を取得し、renew-intervalごとに更新します
+ * 他のノードが行を更新し続けている場合は、leaseの2倍の時間待った後に起動に失敗します
+ * 異常終了したノードの行は、最後の更新からleaseが経過すると取得できます
+ *
+ * @author Yudai Tokunaga
+ */
+@Context
+@Requires(property = "application.single-node.enabled", value = "true")
+public class SingleNodeLease {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SingleNodeLease.class);
+
+    private static final long LEASE_ID = 1L;
+
+    private final SessionFactory sessionFactory;
+    private final Duration lease;
+    private final String node = UUID.randomUUID().toString();
+
+    public SingleNodeLease(SessionFactory sessionFactory,
+                           @Value("${application.single-node.lease:30s}") Duration lease) {
+        this.sessionFactory = sessionFactory;
+        this.lease = lease;
+    }
+
+    @PostConstruct
+    void acquire() throws InterruptedException {
+        Instant deadline = Instant.now().plus(lease.multipliedBy(2));
+        while (!tryAcquire()) {
+            if (Instant.now().isAfter(deadline)) {
+                throw new IllegalStateException("Another node is using the database. "
+                        + "Caches and revisions are kept in memory, so only one node may run against a database");
+            }
+            LOG.info("Waiting for the lease held by another node");
+            Thread.sleep(lease.toMillis() / 3);
+        }
+        LOG.info("Acquired the database lease as node {}", node);
+    }
+
+    /**
+     * 行の更新日時を更新します
+     * 他のノードに取得されていた場合はエラーを出力します
+     */
+    @Scheduled(fixedDelay = "${application.single-node.renew-interval:10s}")
+    public void renew() {
+        int renewed = execute("update NodeLease lease set lease.renewedAt = :now "
+                + "where lease.id = :id and lease.node = :node", Instant.now());
+        if (renewed == 0) {
+            LOG.error("Lost the database lease to another node. Caches and revisions of this node may be stale");
+        }
+    }
+
+    /**
+     * 停止時に行を手放し、次のノードがすぐに取得できるようにします
+     */
+    @PreDestroy
+    void release() {
+        try {
+            execute("update NodeLease lease set lease.renewedAt = :now "
+                    + "where lease.id = :id and lease.node = :node", Instant.EPOCH);
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to release the database lease", e);
+        }
+    }
+
+    /**
+     * 行がない場合、自分の行の場合、期限が切れている場合に行を取得します
+     *
+     * @return 取得できた場合はtrue
+     */
+    private boolean tryAcquire() {
+        Instant now = Instant.now();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        Transaction transaction = session.beginTransaction();
+        try {
+            int acquired = session
+                    .createQuery("update NodeLease lease set lease.node = :node, lease.renewedAt = :now "
+                            + "where lease.id = :id and (lease.node = :node or lease.renewedAt < :expired)")
+                    .setParameter("node", node)
+                    .setParameter("now", now)
+                    .setParameter("id", LEASE_ID)
+                    .setParameter("expired", now.minus(lease))
+                    .executeUpdate();
+            if (acquired == 0 && session.get(NodeLease.class, LEASE_ID) == null) {
+                session.insert(new NodeLease(LEASE_ID, node, now));
+                acquired = 1;
+            }
+            transaction.commit();
+            return acquired > 0;
+        } catch (PersistenceException e) {
+            // 他のノードが同時に行を作成した
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            return false;
+        } finally {
+            session.close();
+        }
+    }
+
+    private int execute(String jpql, Instant now) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        Transaction transaction = session.beginTransaction();
+        try {
+            int updated = session.createQuery(jpql)
+                    .setParameter("now", now)
+                    .setParameter("id", LEASE_ID)
+                    .setParameter("node", node)
+                    .executeUpdate();
+            transaction.commit();
+            return updated;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package example.micronaut.domain;
+
+import example.micronaut.domain.view.Revision;
+import io.micronaut.context.annotation.Value;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import javax.inject.Singleton;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Revisions of the book and author tables
+ * 一覧のETagとLast-Modifiedに使います
+ * <p>
+ * 既定ではDBのテーブルの件数、最大のID、最大の更新日時から求めるため、他のノードやSQLによる書き込みも反映されます
+ * 登録はIDの増加、削除は件数の減少、更新は更新日時の増加として検知します
+ * 更新日時が最大の行の削除ではLast-Modifiedが戻るため、削除はETagでのみ検知します
+ * <p>
+ * application.single-node.enabledの場合は、このノードでコミットした書き込みの回数から求め、DBに問い合わせません
+ * 起動ごとに異なる値から始まるため、再起動後に古いETagが一致することはありません
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class TableRevisions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+
+    private final AtomicLong books = new AtomicLong();
+    private final AtomicLong authors = new AtomicLong();
+
+    private volatile Instant booksModifiedAt = Instant.now();
+    private volatile Instant authorsModifiedAt = booksModifiedAt;
+
+    private final SessionFactory sessionFactory;
+    private final boolean singleNode;
+
+    public TableRevisions(SessionFactory sessionFactory,
+                          @Value("${application.single-node.enabled:false}") boolean singleNode) {
+        this.sessionFactory = sessionFactory;
+        this.singleNode = singleNode;
+    }
+
+    /**
+     * 書籍テーブルへの書き込みを、トランザクションのコミット後に記録します
+     */
+    public void booksChanged() {
+        TransactionCallbacks.afterCommit(() -> {
+            books.incrementAndGet();
+            booksModifiedAt = Instant.now();
+        });
+    }
+
+    /**
+     * 著者テーブルへの書き込みを、トランザクションのコミット後に記録します
+     */
+    public void authorsChanged() {
+        TransactionCallbacks.afterCommit(() -> {
+            authors.incrementAndGet();
+            authorsModifiedAt = Instant.now();
+        });
+    }
+
+    /**
+     * 書籍一覧のリビジョンを返却します
+     * 書籍には著者名が含まれるため、著者テーブルへの書き込みでも変化します
+     *
+     * @return 書籍一覧のリビジョン
+     */
+    public Revision books() {
+        if (!singleNode) {
+            StatelessSession session = sessionFactory.openStatelessSession();
+            try {
+                Revision books = stored(session, "Book");
+                Revision authors = stored(session, "Author");
+                return new Revision("b" + books.getTag() + "-a" + authors.getTag(),
+                        latest(books.getLastModified(), authors.getLastModified()));
+            } finally {
+                session.close();
+            }
+        }
+        return new Revision(localTag(), latest(booksModifiedAt, authorsModifiedAt));
+    }
+
+    /**
+     * 著者一覧のリビジョンを返却します
+     *
+     * @return 著者一覧のリビジョン
+     */
+    public Revision authors() {
+        if (!singleNode) {
+            StatelessSession session = sessionFactory.openStatelessSession();
+            try {
+                Revision authors = stored(session, "Author");
+                return new Revision("a" + authors.getTag(), authors.getLastModified());
+            } finally {
+                session.close();
+            }
+        }
+        return new Revision(epoch + "-" + authors.get(), authorsModifiedAt);
+    }
+
+    /**
+     * このノードでコミットした書籍と著者への書き込みの回数を返却します
+     * DBに問い合わせないため、呼び出しごとに書き込みの有無を確認する処理に使います
+     *
+     * @return 書き込みの回数を表す値
+     */
+    public String localTag() {
+        return epoch + "-" + books.get() + "-" + authors.get();
+    }
+
+    /**
+     * テーブルの件数、最大のID、最大の更新日時を1回のクエリで集計します
+     * 最大のIDは主キー、最大の更新日時はmodified_atの索引から求まります
+     */
+    private static Revision stored(StatelessSession session, String entity) {
+        Object[] row = session
+                .createQuery("select count(e), max(e.id), max(e.modifiedAt) from " + entity + " e", Object[].class)
+                .uniqueResult();
+        long count = (Long) row[0];
+        long maxId = row[1] == null ? 0L : (Long) row[1];
+        Instant modifiedAt = row[2] == null ? Instant.EPOCH : (Instant) row[2];
+        String tag = Long.toString(count, Character.MAX_RADIX)
+                + "." + Long.toString(maxId, Character.MAX_RADIX)
+                + "." + Long.toString(modifiedAt.getEpochSecond() * 1_000_000L + modifiedAt.getNano() / 1_000, Character.MAX_RADIX);
+        return new Revision(tag, modifiedAt);
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,51 @@
+package example.micronaut.domain;
+
+import org.springframework.core.Ordered;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Utility of transaction callbacks
+ *
+ * @author Yudai Tokunaga
+ */
+public final class TransactionCallbacks {
+
+    private TransactionCallbacks() {
+    }
+
+    /**
+     * 現在のトランザクションがコミットされた後に処理を実行します
+     * トランザクション外で呼ばれた場合は即座に実行します
+     */
+    public static void afterCommit(Runnable action) {
+        register(action, Ordered.LOWEST_PRECEDENCE);
+    }
+
+    /**
+     * 現在のトランザクションがコミットされた後に、afterCommitで登録された処理より先に処理を実行します
+     * リビジョンの更新より前に読み出し元へ変更を反映する場合に使います
+     * トランザクション外で呼ばれた場合は即座に実行します
+     */
+    public static void afterCommitFirst(Runnable action) {
+        register(action, Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    private static void register(Runnable action, int order) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+
+            @Override
+            public int getOrder() {
+                return order;
+            }
+        });
+    }
+}
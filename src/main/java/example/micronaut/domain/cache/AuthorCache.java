@@ -0,0 +1,19 @@
+package example.micronaut.domain.cache;
+
+import example.micronaut.ApplicationConfiguration;
+import example.micronaut.domain.view.AuthorView;
+
+import javax.inject.Singleton;
+
+/**
+ * Cache of author snapshots
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class AuthorCache extends SnapshotCache<AuthorView> {
+
+    public AuthorCache(ApplicationConfiguration configuration) {
+        super(configuration.getCacheSize());
+    }
+}
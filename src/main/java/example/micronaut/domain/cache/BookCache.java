@@ -0,0 +1,19 @@
+package example.micronaut.domain.cache;
+
+import example.micronaut.ApplicationConfiguration;
+import example.micronaut.domain.view.BookView;
+
+import javax.inject.Singleton;
+
+/**
+ * Cache of book snapshots
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class BookCache extends SnapshotCache<BookView> {
+
+    public BookCache(ApplicationConfiguration configuration) {
+        super(configuration.getCacheSize());
+    }
+}
@@ -0,0 +1,225 @@
+package example.micronaut.domain.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bounded LRU cache of immutable entity snapshots keyed by id
+ * 管理対象のエンティティではなく、不変のスナップショットを保持します
+ * <p>
+ * IDごとにセグメントに分け、セグメントごとのロックとLRUで管理します
+ * 異なるセグメントのIDの読み込みは互いに待たないため、キャッシュのヒットが1つのロックに集中しません
+ * 追い出しはセグメントごとに行うため、全体の件数はmaximumSizeを超えませんが、
+ * 最も古い値から追い出されるとは限りません
+ *
+ * @author Yudai Tokunaga
+ */
+public class SnapshotCache<V> {
+
+    /**
+     * CPU数あたりのセグメントの数
+     */
+    private static final int SEGMENTS_PER_CPU = 4;
+
+    private final int maximumSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private final Segment<V>[] segments;
+    private final int mask;
+
+    /**
+     * 無効化の回数
+     * 読み込み中に無効化が行われた場合、読み込んだ値は古い可能性があるためキャッシュしません
+     * 値の追加と無効化による削除は同じセグメントのロックの中で行い、この回数を比べます
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public SnapshotCache(int maximumSize) {
+        this(maximumSize, Runtime.getRuntime().availableProcessors() * SEGMENTS_PER_CPU);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    SnapshotCache(int maximumSize, int concurrency) {
+        this.maximumSize = maximumSize;
+
+        // セグメントあたり1件以上を保持できる範囲で、concurrency以上の2の累乗に分ける
+        int count = 1;
+        while (count < concurrency && count * 2 <= Math.max(maximumSize, 1)) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        this.mask = count - 1;
+        for (int i = 0; i < count; i++) {
+            int capacity = maximumSize / count + (i < maximumSize % count ? 1 : 0);
+            segments[i] = new Segment<>(capacity, evictions);
+        }
+    }
+
+    /**
+     * キャッシュされた値を返却します
+     * キャッシュされていない場合は読み込んでキャッシュします
+     *
+     * @return キャッシュされた値、または読み込んだ値
+     */
+    public Optional<V> getOrLoad(Long id, Supplier<Optional<V>> loader) {
+        Segment<V> segment = segment(id);
+        long stamp = invalidations.get();
+        V value = segment.get(id);
+        if (value != null) {
+            hits.increment();
+            return Optional.of(value);
+        }
+        misses.increment();
+
+        Optional<V> loaded = loader.get();
+        if (loaded.isPresent() && maximumSize > 0) {
+            segment.putIfUnchanged(id, loaded.get(), stamp, invalidations);
+        }
+        return loaded;
+    }
+
+    /**
+     * 複数のIDの値を返却します
+     * キャッシュされていないIDのみをまとめて読み込み、キャッシュします
+     *
+     * @param loader キャッシュされていないIDの値を読み込む処理。見つからないIDは含めません
+     * @return IDをキーとする値。見つからないIDは含みません
+     */
+    public Map<Long, V> getAllOrLoad(Collection<Long> ids, Function<List<Long>, Map<Long, V>> loader) {
+        Map<Long, V> values = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        long stamp = invalidations.get();
+        for (Long id : ids) {
+            if (values.containsKey(id) || missing.contains(id)) {
+                continue;
+            }
+            V value = segment(id).get(id);
+            if (value != null) {
+                hits.increment();
+                values.put(id, value);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return values;
+        }
+        misses.add(missing.size());
+
+        Map<Long, V> loaded = loader.apply(new ArrayList<>(missing));
+        if (maximumSize > 0) {
+            for (Map.Entry<Long, V> entry : loaded.entrySet()) {
+                segment(entry.getKey()).putIfUnchanged(entry.getKey(), entry.getValue(), stamp, invalidations);
+            }
+        }
+        values.putAll(loaded);
+        return values;
+    }
+
+    /**
+     * キャッシュされた値を読み込みなしで返却します
+     *
+     * @return キャッシュされた値
+     */
+    public Optional<V> getIfPresent(Long id) {
+        V value = segment(id).get(id);
+        if (value == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        return Optional.of(value);
+    }
+
+    public void invalidate(Long id) {
+        segment(id).remove(id, invalidations);
+    }
+
+    /**
+     * 条件に一致する値を全て無効化します
+     * セグメントを1つずつロックして走査します
+     */
+    public void invalidateIf(Predicate<V> predicate) {
+        invalidations.incrementAndGet();
+        for (Segment<V> segment : segments) {
+            segment.removeIf(predicate);
+        }
+    }
+
+    public CacheStats stats() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            size += segment.size();
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size);
+    }
+
+    private Segment<V> segment(Long id) {
+
+        // 連番のIDが同じセグメントに偏らないよう、上位のビットを混ぜる
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return segments[(int) (hash >>> 32) & mask];
+    }
+
+    /**
+     * 1つのロックで保護する、アクセス順のLRU
+     */
+    private static final class Segment<V> {
+
+        private final LinkedHashMap<Long, V> entries;
+
+        Segment(int capacity, LongAdder evictions) {
+            this.entries = new LinkedHashMap<Long, V>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, V> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized V get(Long id) {
+            return entries.get(id);
+        }
+
+        /**
+         * 読み込みを始めてから無効化が行われていない場合のみ追加します
+         */
+        synchronized void putIfUnchanged(Long id, V value, long stamp, AtomicLong invalidations) {
+            if (stamp == invalidations.get()) {
+                entries.put(id, value);
+            }
+        }
+
+        synchronized void remove(Long id, AtomicLong invalidations) {
+            invalidations.incrementAndGet();
+            entries.remove(id);
+        }
+
+        synchronized void removeIf(Predicate<V> predicate) {
+            entries.values().removeIf(predicate);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
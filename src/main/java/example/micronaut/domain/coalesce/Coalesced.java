@@ -0,0 +1,29 @@
+package example.micronaut.domain.coalesce;
+
+import io.micronaut.aop.Around;
+import io.micronaut.context.annotation.Type;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Coalesces concurrent calls of the annotated read method with equal arguments
+ * 同じ引数で同時に呼び出された場合は、最初の呼び出しだけを実行し、他の呼び出しはその結果を受け取ります
+ * 完了した結果は保持しないため、完了後の呼び出しは改めて実行されます
+ * <p>
+ * 結果は呼び出し元の間で共有されるため、変更されない値を返却するメソッドにのみ付与します
+ * また、他の呼び出しの結果を受け取る場合は呼び出し元のトランザクションに参加しないため、
+ * 書き込みのトランザクションの中から呼び出すメソッドには付与しません
+ *
+ * @author Yudai Tokunaga
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD})
+@Around
+@Type(CoalescingInterceptor.class)
+public @interface Coalesced {
+}
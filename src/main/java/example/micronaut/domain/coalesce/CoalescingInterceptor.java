@@ -0,0 +1,153 @@
+package example.micronaut.domain.coalesce;
+
+import example.micronaut.domain.TableRevisions;
+import io.micronaut.aop.InterceptPhase;
+import io.micronaut.aop.MethodInterceptor;
+import io.micronaut.aop.MethodInvocationContext;
+import io.micronaut.inject.ExecutableMethod;
+
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interceptor sharing one in-flight call among concurrent identical calls
+ * トランザクションより外側で実行するため、結果を待つ呼び出しはDBの接続を取得しません
+ * <p>
+ * 実行中の呼び出しの開始後に書籍、または著者への書き込みがコミットされている場合は、
+ * 書き込み前の結果を返却しないよう、その呼び出しには合流せずに改めて実行します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class CoalescingInterceptor implements MethodInterceptor<Object, Object> {
+
+    private final Map<Call, Flight> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+
+    private final LongAdder coalesced = new LongAdder();
+
+    private final TableRevisions revisions;
+
+    public CoalescingInterceptor(TableRevisions revisions) {
+        this.revisions = revisions;
+    }
+
+    /**
+     * 入力検証の後、トランザクションの開始より前に実行します
+     */
+    @Override
+    public int getOrder() {
+        return InterceptPhase.CACHE.getPosition();
+    }
+
+    @Override
+    public Object intercept(MethodInvocationContext<Object, Object> context) {
+        Call call = new Call(context.getExecutableMethod(), context.getParameterValues());
+        String revision = revisions.localTag();
+        Flight flight = new Flight(revision);
+        Flight leader = inFlight.compute(call, (key, current) ->
+                current != null && current.revision.equals(revision) ? current : flight);
+        if (leader != flight) {
+            coalesced.increment();
+            return await(leader.result);
+        }
+
+        executions.increment();
+        try {
+            Object result = context.proceed();
+            flight.result.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(call, flight);
+        }
+    }
+
+    /**
+     * 実際に実行された呼び出しの数を返却します
+     *
+     * @return 実行された呼び出しの数
+     */
+    public long executions() {
+        return executions.sum();
+    }
+
+    /**
+     * 実行中の呼び出しの結果を受け取った呼び出しの数を返却します
+     *
+     * @return 結果を共有した呼び出しの数
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+
+    private static Object await(CompletableFuture<Object> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            // 最初の呼び出しで発生した例外をそのまま送出する
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 実行中の呼び出しと、その開始時のリビジョン
+     */
+    private static final class Flight {
+
+        private final String revision;
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Flight(String revision) {
+            this.revision = revision;
+        }
+    }
+
+    /**
+     * メソッドと引数の組
+     */
+    private static final class Call {
+
+        private final ExecutableMethod<?, ?> method;
+        private final Object[] arguments;
+        private final int hash;
+
+        Call(ExecutableMethod<?, ?> method, Object[] arguments) {
+            this.method = method;
+            this.arguments = arguments;
+            this.hash = 31 * method.hashCode() + Arrays.deepHashCode(arguments);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Call)) {
+                return false;
+            }
+            Call other = (Call) o;
+            return method.equals(other.method) && Arrays.deepEquals(arguments, other.arguments);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
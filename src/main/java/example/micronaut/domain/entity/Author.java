@@ -1,33 +1,55 @@
 package example.micronaut.domain.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Set;
 
 /**
  * Entity of author table
+ * 一覧のリビジョンとして最大の更新日時を求めるため、modified_atに索引を作成します
  *
  * @author Yudai Tokunaga
  */
 @Entity
-@Table(name = "author")
+@Table(name = "author", indexes = @Index(name = "author_modified_at_idx", columnList = "modified_at"))
 public class Author {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "author_id")
+    @GenericGenerator(name = "author_id", strategy = "example.micronaut.domain.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "hibernate_sequence"))
     private Long id;
 
     @NotNull
     @Column(name = "name", nullable = false, unique = true)
     private String name;
 
+    /**
+     * 複数の著者の書籍を読み込む場合は、BatchSize件の著者分をまとめて1回で取得します
+     * APIからは読み込まず、著者の書籍の一覧はBookRepository#findByAuthorで取得します
+     */
     @JsonIgnore
+    @BatchSize(size = 50)
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL)
     private Set<Book> books = new HashSet<>();
 
+    @JsonIgnore
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "modified_at", nullable = false)
+    private Instant modifiedAt;
+
     public Author() {
     }
 
@@ -59,6 +81,28 @@ public class Author {
         this.books = books;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(Instant modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        modifiedAt = Instant.now();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -1,19 +1,31 @@
 package example.micronaut.domain.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
+import java.time.Instant;
 
 /**
  * Entity of book table
+ * 著者ごとの書籍をID順に範囲で読み込むため、(author_id, id)に索引を作成します
+ * 一覧のリビジョンとして最大の更新日時を求めるため、modified_atにも索引を作成します
  *
  * @author Yudai Tokunaga
  */
 @Entity
-@Table(name = "book")
+@Table(name = "book", indexes = {
+        @Index(name = "book_author_id_idx", columnList = "author_id, id"),
+        @Index(name = "book_modified_at_idx", columnList = "modified_at")})
 public class Book {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "book_id")
+    @GenericGenerator(name = "book_id", strategy = "example.micronaut.domain.entity.PooledSequenceGenerator",
+            parameters = @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "hibernate_sequence"))
     private Long id;
 
     @NotNull
@@ -24,10 +36,22 @@ public class Book {
     @Column(name = "title", nullable = false)
     private String title;
 
+    /**
+     * 読み取りは著者を結合した射影で行うため、エンティティからは必要な場合のみ読み込みます
+     */
     @NotNull
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Author author;
 
+    @JsonIgnore
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    @JsonIgnore
+    @Column(name = "modified_at", nullable = false)
+    private Instant modifiedAt;
+
     public Book() {
     }
 
@@ -69,6 +93,28 @@ public class Book {
         this.author = author;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(Instant modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        modifiedAt = Instant.now();
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,64 @@
+package example.micronaut.domain.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import java.time.Instant;
+
+/**
+ * Entity of node_lease table
+ * DBを使っているノードと、そのノードが最後に更新した日時を保持します
+ *
+ * @author Yudai Tokunaga
+ */
+@Entity
+@Table(name = "node_lease")
+public class NodeLease {
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @NotNull
+    @Column(name = "node", nullable = false)
+    private String node;
+
+    @NotNull
+    @Column(name = "renewed_at", nullable = false)
+    private Instant renewedAt;
+
+    public NodeLease() {
+    }
+
+    public NodeLease(Long id, @NotNull String node, @NotNull Instant renewedAt) {
+        this.id = id;
+        this.node = node;
+        this.renewedAt = renewedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getNode() {
+        return node;
+    }
+
+    public void setNode(String node) {
+        this.node = node;
+    }
+
+    public Instant getRenewedAt() {
+        return renewedAt;
+    }
+
+    public void setRenewedAt(Instant renewedAt) {
+        this.renewedAt = renewedAt;
+    }
+}
@@ -0,0 +1,37 @@
+package example.micronaut.domain.entity;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence based id generator using the pooled optimizer
+ * 1回のシーケンス呼び出しでhibernate.id.increment_size件のIDを確保し、
+ * その範囲はDBへの問い合わせなしで採番します
+ * <p>
+ * DBのシーケンスの増分は、この設定値と一致している必要があります
+ * 既存のシーケンスは起動時にSchemaMigrationListenerが合わせます
+ *
+ * @author Yudai Tokunaga
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String INCREMENT_SIZE_SETTING = "hibernate.id.increment_size";
+
+    public static final int DEFAULT_INCREMENT_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        ConfigurationService configuration = serviceRegistry.getService(ConfigurationService.class);
+        int incrementSize = ConfigurationHelper.getInt(INCREMENT_SIZE_SETTING, configuration.getSettings(), DEFAULT_INCREMENT_SIZE);
+        params.setProperty(INCREMENT_PARAM, String.valueOf(incrementSize));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
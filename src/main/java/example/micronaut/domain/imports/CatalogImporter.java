@@ -0,0 +1,210 @@
+package example.micronaut.domain.imports;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BatchResult;
+import example.micronaut.domain.BookBatchWriter;
+import example.micronaut.domain.NewBook;
+import example.micronaut.domain.entity.Author;
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+
+import javax.inject.Singleton;
+import javax.persistence.PersistenceException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports a catalog CSV (isbn,title,authorName) streamed from a request body
+ * 受信したバイト列をその場で行に分解し、CHUNK_SIZE行ごとに1トランザクションで登録します
+ * 登録待ちのチャンクがMAX_PENDING_CHUNKSに達すると受信の要求を止めるため、
+ * DBの登録が追いつかない場合はアップロードの読み込みも待たされます
+ * <p>
+ * 著者は著者名からIDを引く対応表をインポートごとに持ち、対応表にない著者のみDBで確認し、未登録であれば登録します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class CatalogImporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogImporter.class);
+
+    /**
+     * 1トランザクションで登録する行数
+     */
+    private static final int CHUNK_SIZE = 500;
+
+    /**
+     * 受信済みで登録を待っているチャンクの最大数
+     */
+    private static final int MAX_PENDING_CHUNKS = 2;
+
+    /**
+     * 状態を保持する完了済みのインポートの最大数
+     */
+    private static final int MAX_FINISHED_JOBS = 100;
+
+    private static final String[] HEADER = {"isbn", "title", "authorName"};
+
+    private final BookBatchWriter bookBatchWriter;
+    private final AuthorRepository authorRepository;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentNavigableMap<Long, ImportJob> jobs = new ConcurrentSkipListMap<>();
+
+    public CatalogImporter(BookBatchWriter bookBatchWriter, AuthorRepository authorRepository) {
+        this.bookBatchWriter = bookBatchWriter;
+        this.authorRepository = authorRepository;
+    }
+
+    /**
+     * インポートを開始し、開始したインポートをすぐに返却します
+     * 本文の受信と登録はバックグラウンドで続き、処理中と完了後の状態はfindByIdで取得できます
+     *
+     * @param contentLength 本文のサイズ。分からない場合は負の値
+     * @return 開始したインポート
+     */
+    public ImportJob start(Flowable<byte[]> body, long contentLength) {
+        ImportJob job = register(contentLength);
+        CsvReader reader = new CsvReader();
+        Map<String, Long> authorIds = new HashMap<>();
+        body.doOnNext(bytes -> job.received(bytes.length))
+                .concatMapIterable(reader::feed)
+                .concatWith(Flowable.defer(() -> Flowable.fromIterable(reader.finish())))
+                .buffer(CHUNK_SIZE)
+                .observeOn(Schedulers.io(), false, MAX_PENDING_CHUNKS)
+                .doOnNext(rows -> writeChunk(job, authorIds, rows))
+                .ignoreElements()
+                .subscribe(job::complete, e -> {
+                    LOG.error("Catalog import {} failed", job.getId(), e);
+                    job.abort(e);
+                });
+        return job;
+    }
+
+    public Optional<ImportJob> findById(long id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * @return 開始した順のインポート
+     */
+    public List<ImportJob> findAll() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    private ImportJob register(long contentLength) {
+        ImportJob job = new ImportJob(sequence.incrementAndGet(), contentLength < 0 ? null : contentLength);
+        jobs.put(job.getId(), job);
+
+        // 古い完了済みのインポートから破棄する
+        long finished = jobs.values().stream().filter(ImportJob::isFinished).count();
+        for (ImportJob old : jobs.values()) {
+            if (finished <= MAX_FINISHED_JOBS) {
+                break;
+            }
+            if (old.isFinished()) {
+                jobs.remove(old.getId());
+                finished--;
+            }
+        }
+        return job;
+    }
+
+    private void writeChunk(ImportJob job, Map<String, Long> authorIds, List<CsvReader.Row> rows) {
+        List<CsvReader.Row> valid = new ArrayList<>();
+        Set<String> names = new LinkedHashSet<>();
+        long count = 0;
+        for (CsvReader.Row row : rows) {
+            String[] fields = row.getFields();
+            if (row.getNumber() == 1 && isHeader(fields)) {
+                continue;
+            }
+            count++;
+            if (fields.length != 3 || fields[0].trim().isEmpty() || fields[1].trim().isEmpty() || fields[2].trim().isEmpty()) {
+                job.failed(row.getNumber(), "expected isbn,title,authorName");
+                continue;
+            }
+            valid.add(row);
+            names.add(fields[2].trim());
+        }
+        resolveAuthors(authorIds, names);
+
+        List<NewBook> books = new ArrayList<>(valid.size());
+        List<CsvReader.Row> written = new ArrayList<>(valid.size());
+        for (CsvReader.Row row : valid) {
+            String[] fields = row.getFields();
+            Long authorId = authorIds.get(fields[2].trim());
+            if (authorId == null) {
+                job.failed(row.getNumber(), BatchResult.Status.UNKNOWN_AUTHOR + " " + fields[0].trim());
+                continue;
+            }
+            books.add(new NewBook(fields[0].trim(), fields[1].trim(), authorId));
+            written.add(row);
+        }
+        List<BatchResult> results = bookBatchWriter.write(books);
+
+        long created = 0;
+        for (int i = 0; i < results.size(); i++) {
+            BatchResult result = results.get(i);
+            if (result.getStatus() == BatchResult.Status.CREATED) {
+                created++;
+            } else {
+                job.failed(written.get(i).getNumber(), result.getStatus() + " " + result.getIsbn());
+            }
+        }
+        job.processed(count, created);
+    }
+
+    /**
+     * 対応表にない著者名をDBで確認し、未登録の著者はまとめて登録します
+     */
+    private void resolveAuthors(Map<String, Long> authorIds, Set<String> names) {
+        names.removeAll(authorIds.keySet());
+        if (names.isEmpty()) {
+            return;
+        }
+        authorIds.putAll(authorRepository.findIdsByName(names));
+        names.removeAll(authorIds.keySet());
+        if (names.isEmpty()) {
+            return;
+        }
+        try {
+            for (Author author : authorRepository.saveAll(names)) {
+                authorIds.put(author.getName(), author.getId());
+            }
+        } catch (PersistenceException | DataAccessException e) {
+            // 確認後に他の登録と競合した場合は、1件ずつ登録し直し、競合した著者は登録済みのIDを使う
+            for (String name : names) {
+                try {
+                    authorIds.put(name, authorRepository.save(name).getId());
+                } catch (PersistenceException | DataAccessException conflict) {
+                    authorIds.putAll(authorRepository.findIdsByName(Collections.singleton(name)));
+                }
+            }
+        }
+    }
+
+    private static boolean isHeader(String[] fields) {
+        if (fields.length != HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < HEADER.length; i++) {
+            if (!HEADER[i].equalsIgnoreCase(fields[i].trim())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
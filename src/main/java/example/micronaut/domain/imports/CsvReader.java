@@ -0,0 +1,150 @@
+package example.micronaut.domain.imports;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Incremental CSV reader fed with chunks of UTF-8 bytes
+ * 受信した分だけを解析し、完成した行のみを返却します
+ * チャンクの境界で分割された文字や行は、次のチャンクと合わせて解析します
+ * <p>
+ * ダブルクォートで囲まれた項目には、カンマ、改行、2つ続けたダブルクォートを含められます
+ * 1つのリクエストの中で順番に呼び出す前提のため、スレッドセーフではありません
+ *
+ * @author Yudai Tokunaga
+ */
+class CsvReader {
+
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /**
+     * 前のチャンクの末尾にあった、文字として完成していないバイト列
+     */
+    private byte[] pending = new byte[0];
+
+    private final StringBuilder field = new StringBuilder();
+    private final List<String> fields = new ArrayList<>();
+    private boolean quoted;
+    private boolean quoteSeen;
+    private long number;
+
+    /**
+     * チャンクを解析し、完成した行を返却します
+     *
+     * @return 完成した行
+     */
+    List<Row> feed(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.allocate(pending.length + bytes.length);
+        in.put(pending).put(bytes).flip();
+        CharBuffer out = CharBuffer.allocate(in.remaining());
+        decoder.decode(in, out, false);
+        pending = new byte[in.remaining()];
+        in.get(pending);
+        out.flip();
+        return parse(out);
+    }
+
+    /**
+     * 入力の終わりまでを解析し、最後の行を返却します
+     * 最後の行は改行で終わっていなくても構いません
+     *
+     * @return 最後の行
+     */
+    List<Row> finish() {
+        ByteBuffer in = ByteBuffer.wrap(pending);
+        CharBuffer out = CharBuffer.allocate(pending.length + 1);
+        decoder.decode(in, out, true);
+        decoder.flush(out);
+        pending = new byte[0];
+        out.flip();
+        List<Row> rows = new ArrayList<>(parse(out));
+        if (quoted || field.length() > 0 || !fields.isEmpty()) {
+            quoted = false;
+            quoteSeen = false;
+            endRow(rows);
+        }
+        return rows;
+    }
+
+    private List<Row> parse(CharBuffer chars) {
+        List<Row> rows = Collections.emptyList();
+        while (chars.hasRemaining()) {
+            char c = chars.get();
+            if (quoted) {
+                if (quoteSeen) {
+                    quoteSeen = false;
+                    if (c == '"') {
+                        field.append('"');
+                        continue;
+                    }
+                    // 閉じたダブルクォートの後の文字は、囲まれていない項目として扱う
+                    quoted = false;
+                } else if (c == '"') {
+                    quoteSeen = true;
+                    continue;
+                } else {
+                    field.append(c);
+                    continue;
+                }
+            }
+            if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                if (rows.isEmpty()) {
+                    rows = new ArrayList<>();
+                }
+                endRow(rows);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        return rows;
+    }
+
+    private void endRow(List<Row> rows) {
+        fields.add(field.toString());
+        field.setLength(0);
+        number++;
+        // 空行は読み飛ばす
+        if (fields.size() > 1 || !fields.get(0).isEmpty()) {
+            rows.add(new Row(number, fields.toArray(new String[0])));
+        }
+        fields.clear();
+    }
+
+    /**
+     * CSVの1行
+     */
+    static final class Row {
+
+        private final long number;
+        private final String[] fields;
+
+        Row(long number, String[] fields) {
+            this.number = number;
+            this.fields = fields;
+        }
+
+        /**
+         * @return 1から始まる行番号
+         */
+        long getNumber() {
+            return number;
+        }
+
+        String[] getFields() {
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package example.micronaut.domain.imports;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one catalog import
+ * 受信、解析、登録はそれぞれ別のスレッドで進むため、カウンターはスレッドセーフに更新します
+ *
+ * @author Yudai Tokunaga
+ */
+public class ImportJob {
+
+    public enum State {
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * 保持するエラー内容の最大数
+     */
+    private static final int MAX_FAILURES = 20;
+
+    private final long id;
+    private final Instant startedAt = Instant.now();
+    private final Long bytesTotal;
+
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final List<String> failures = new ArrayList<>();
+
+    private volatile State state = State.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String message;
+
+    ImportJob(long id, Long bytesTotal) {
+        this.id = id;
+        this.bytesTotal = bytesTotal;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getStartedAt() {
+        return startedAt.toString();
+    }
+
+    public String getFinishedAt() {
+        Instant finished = finishedAt;
+        return finished == null ? null : finished.toString();
+    }
+
+    /**
+     * @return 処理した行数(エラーの行を含む)
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    public long getCreated() {
+        return created.get();
+    }
+
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return 先頭から最大20件のエラー内容
+     */
+    public List<String> getFailures() {
+        synchronized (failures) {
+            return new ArrayList<>(failures);
+        }
+    }
+
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return Content-Lengthで通知されたサイズ。チャンク転送の場合はnull
+     */
+    public Long getBytesTotal() {
+        return bytesTotal;
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = elapsed().toMillis() / 1000.0;
+        return seconds > 0 ? rows.get() / seconds : 0.0;
+    }
+
+    /**
+     * 受信済みのバイト数の増え方から、残りの受信にかかる秒数を見積もります
+     * 全体のサイズが分からない場合や、完了後はnullを返却します
+     *
+     * @return 残りの秒数の見積もり
+     */
+    public Long getEtaSeconds() {
+        long read = bytesRead.get();
+        if (state != State.RUNNING || bytesTotal == null || read == 0) {
+            return null;
+        }
+        double bytesPerMilli = (double) read / Math.max(1, elapsed().toMillis());
+        return Math.round(Math.max(0, bytesTotal - read) / bytesPerMilli / 1000);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    void received(int bytes) {
+        bytesRead.addAndGet(bytes);
+    }
+
+    void processed(long rows, long created) {
+        this.rows.addAndGet(rows);
+        this.created.addAndGet(created);
+    }
+
+    void failed(long row, String reason) {
+        errors.incrementAndGet();
+        synchronized (failures) {
+            if (failures.size() < MAX_FAILURES) {
+                failures.add("row " + row + ": " + reason);
+            }
+        }
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void abort(Throwable cause) {
+        message = cause.getMessage();
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    boolean isFinished() {
+        return state != State.RUNNING;
+    }
+
+    private Duration elapsed() {
+        Instant finished = finishedAt;
+        return Duration.between(startedAt, finished == null ? Instant.now() : finished);
+    }
+}
@@ -0,0 +1,49 @@
+package example.micronaut.domain.index;
+
+import example.micronaut.domain.BookRepository;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+
+/**
+ * Builds the in-memory book indexes at startup
+ * 構築はバックグラウンドで行い、完了までの検索はDBで処理されます
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class BookIndexLoader implements ApplicationEventListener<StartupEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookIndexLoader.class);
+
+    private final BookRepository bookRepository;
+    private final TitleIndex titleIndex;
+    private final IsbnIndex isbnIndex;
+
+    public BookIndexLoader(BookRepository bookRepository, TitleIndex titleIndex, IsbnIndex isbnIndex) {
+        this.bookRepository = bookRepository;
+        this.titleIndex = titleIndex;
+        this.isbnIndex = isbnIndex;
+    }
+
+    @Override
+    public void onApplicationEvent(StartupEvent event) {
+        bookRepository.streamAll()
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        book -> {
+                            titleIndex.add(book.getId(), book.getTitle());
+                            isbnIndex.add(book.getIsbn(), book.getId());
+                        },
+                        e -> LOG.error("Failed to build book indexes", e),
+                        () -> {
+                            titleIndex.markReady();
+                            isbnIndex.markReady();
+                            LOG.info("Book indexes are ready");
+                        });
+    }
+}
@@ -0,0 +1,134 @@
+package example.micronaut.domain.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Utility of ISBN-10 and ISBN-13
+ * ISBNはハイフンと空白を除いて検査数字を確認し、ISBN-13の13桁をlongで表します
+ *
+ * @author Yudai Tokunaga
+ */
+public final class Isbn {
+
+    private Isbn() {
+    }
+
+    /**
+     * ISBN-10、またはISBN-13をISBN-13の数値に変換します
+     * 桁数、接頭記号(978、979)、検査数字のいずれかが正しくない場合は空を返却します
+     *
+     * @return ISBN-13の数値
+     */
+    public static OptionalLong parse(String value) {
+        if (value == null) {
+            return OptionalLong.empty();
+        }
+        StringBuilder digits = new StringBuilder(13);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '-' && c != ' ') {
+                digits.append(c);
+            }
+        }
+        if (digits.length() == 10) {
+            return parse10(digits);
+        }
+        if (digits.length() == 13) {
+            return parse13(digits);
+        }
+        return OptionalLong.empty();
+    }
+
+    /**
+     * ISBN-13の数値を13桁の文字列に変換します
+     *
+     * @return ISBN-13
+     */
+    public static String format(long isbn) {
+        return Long.toString(isbn);
+    }
+
+    /**
+     * DBに格納されている可能性のある、ハイフンなしの表記を返却します
+     * 接頭記号が978の場合は、ISBN-13とISBN-10の表記を返却します
+     *
+     * @return ISBN-13とISBN-10の表記
+     */
+    public static List<String> notations(long isbn) {
+        List<String> notations = new ArrayList<>(2);
+        String isbn13 = format(isbn);
+        notations.add(isbn13);
+        if (isbn13.startsWith("978")) {
+            String body = isbn13.substring(3, 12);
+            int sum = 0;
+            for (int i = 0; i < 9; i++) {
+                sum += (10 - i) * (body.charAt(i) - '0');
+            }
+            int check = (11 - sum % 11) % 11;
+            notations.add(body + (check == 10 ? "X" : String.valueOf(check)));
+        }
+        return notations;
+    }
+
+    private static OptionalLong parse10(CharSequence digits) {
+        int sum = 0;
+        for (int i = 0; i < 10; i++) {
+            char c = digits.charAt(i);
+            int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (i == 9 && (c == 'X' || c == 'x')) {
+                digit = 10;
+            } else {
+                return OptionalLong.empty();
+            }
+            sum += (10 - i) * digit;
+        }
+        if (sum % 11 != 0) {
+            return OptionalLong.empty();
+        }
+
+        // 978を付けてISBN-13の検査数字を計算し直す
+        long isbn = 978;
+        for (int i = 0; i < 9; i++) {
+            isbn = isbn * 10 + (digits.charAt(i) - '0');
+        }
+        return OptionalLong.of(isbn * 10 + check13(isbn));
+    }
+
+    private static OptionalLong parse13(CharSequence digits) {
+        long isbn = 0;
+        for (int i = 0; i < 13; i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '9') {
+                return OptionalLong.empty();
+            }
+            isbn = isbn * 10 + (c - '0');
+        }
+        long prefix = isbn / 10_000_000_000L;
+        if (prefix != 978 && prefix != 979) {
+            return OptionalLong.empty();
+        }
+        if (check13(isbn / 10) != isbn % 10) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(isbn);
+    }
+
+    /**
+     * 検査数字を除いた12桁から、ISBN-13の検査数字を計算します
+     */
+    private static int check13(long first12) {
+        int sum = 0;
+        long rest = first12;
+        for (int i = 0; i < 12; i++) {
+            int digit = (int) (rest % 10);
+            // 末尾の桁から数えて奇数番目の桁は3倍する
+            sum += (i % 2 == 0) ? digit * 3 : digit;
+            rest /= 10;
+        }
+        return (10 - sum % 10) % 10;
+    }
+}
@@ -0,0 +1,199 @@
+package example.micronaut.domain.index;
+
+import javax.inject.Singleton;
+import java.util.OptionalLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index from ISBN-13 to book id
+ * ISBN-13をlongのまま、キーと値の2つのlong配列によるオープンアドレス法のハッシュ表で保持します
+ * 1件あたり約21バイト(負荷率0.75)のため、100万件でも20MB程度に収まります
+ * <p>
+ * ISBNとして正しくない値で登録された書籍は索引に含めません
+ * 索引は書籍IDの特定にのみ使い、返却前に書籍のISBNと照合します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class IsbnIndex {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    /**
+     * 空きを表すキー
+     * ISBN-13は978、または979で始まるため0になることはありません
+     */
+    private static final long EMPTY = 0L;
+
+    private long[] keys = new long[INITIAL_CAPACITY];
+
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    private int size;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    /**
+     * 書籍のISBNを索引に追加します
+     * ISBNとして正しくない場合は何もしません
+     */
+    public void add(String isbn, long id) {
+        OptionalLong key = Isbn.parse(isbn);
+        if (!key.isPresent()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(key.getAsLong(), id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 書籍のISBNを索引から削除します
+     * 同じISBNが既に別の書籍に割り当てられている場合は削除しません
+     */
+    public void remove(String isbn, long id) {
+        OptionalLong key = Isbn.parse(isbn);
+        if (!key.isPresent()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int slot = find(key.getAsLong());
+            if (slot >= 0 && values[slot] == id) {
+                delete(slot);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * ISBNが変更された書籍の索引を更新します
+     */
+    public void replace(long id, String oldIsbn, String newIsbn) {
+        if (oldIsbn != null && oldIsbn.equals(newIsbn)) {
+            return;
+        }
+        if (oldIsbn != null) {
+            remove(oldIsbn, id);
+        }
+        add(newIsbn, id);
+    }
+
+    /**
+     * 起動時の索引の構築が完了したことを記録します
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * 起動時の索引の構築が完了しているかを判定します
+     * 構築前は索引にない書籍も登録されている可能性があります
+     *
+     * @return 完了している場合はtrue
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * ISBN-13の数値に対応する書籍IDを返却します
+     *
+     * @return 書籍ID
+     */
+    public OptionalLong get(long isbn) {
+        lock.readLock().lock();
+        try {
+            int slot = find(isbn);
+            return slot < 0 ? OptionalLong.empty() : OptionalLong.of(values[slot]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(long key, long value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size > keys.length - (keys.length >> 2)) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * 線形探索の連なりが途切れないよう、後続の要素を空いた位置に詰めます
+     */
+    private void delete(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // 本来の位置からholeまでの範囲にnextがない場合のみ、holeへ移動できる
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[hole] = EMPTY;
+        values[hole] = 0L;
+        size--;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[capacity];
+        values = new long[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,165 @@
+package example.micronaut.domain.index;
+
+import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-gram inverted index of book titles
+ * 1文字(ユニグラム)と3文字(トライグラム)をキーに書籍IDを保持します
+ * <p>
+ * 索引は候補の絞り込みにのみ使い、最終的な判定はDBのlike検索で行います
+ * そのため索引が実際より多くの候補を返しても検索結果は変わりません
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class TitleIndex {
+
+    /**
+     * ユニグラムとトライグラムのキーを区別するビット
+     * トライグラムは16bitの文字3つで48bitを使うため、その上位に置きます
+     */
+    private static final long UNIGRAM = 1L << 48;
+
+    private final Map<Long, LongPostings> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean ready;
+
+    /**
+     * 書籍のタイトルを索引に追加します
+     */
+    public void add(long id, String title) {
+        long[] grams = grams(title);
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                postings.computeIfAbsent(gram, key -> new LongPostings()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 書籍のタイトルを索引から削除します
+     */
+    public void remove(long id, String title) {
+        long[] grams = grams(title);
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                LongPostings ids = postings.get(gram);
+                if (ids == null) {
+                    continue;
+                }
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * タイトルが変更された書籍の索引を更新します
+     */
+    public void replace(long id, String oldTitle, String newTitle) {
+        if (oldTitle != null && oldTitle.equals(newTitle)) {
+            return;
+        }
+        if (oldTitle != null) {
+            remove(id, oldTitle);
+        }
+        add(id, newTitle);
+    }
+
+    /**
+     * 起動時の索引の構築が完了したことを記録します
+     */
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * タイトルにキーワードを含む可能性のある書籍IDを昇順で返却します
+     * 索引の構築前や、like検索のワイルドカードを含むキーワードの場合は空を返却します
+     *
+     * @return 候補の書籍ID
+     */
+    public Optional<long[]> candidates(String keyword) {
+        if (!ready || keyword.isEmpty() || hasWildcard(keyword)) {
+            return Optional.empty();
+        }
+
+        long[] keys;
+        if (keyword.length() < 3) {
+            keys = new long[keyword.length()];
+            for (int i = 0; i < keyword.length(); i++) {
+                keys[i] = UNIGRAM | keyword.charAt(i);
+            }
+        } else {
+            keys = new long[keyword.length() - 2];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = trigram(keyword, i);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            LongPostings[] lists = new LongPostings[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                lists[i] = postings.get(keys[i]);
+                if (lists[i] == null) {
+                    return Optional.of(new long[0]);
+                }
+            }
+
+            // 件数の少ない順に積集合を取る
+            Arrays.sort(lists, Comparator.comparingInt(LongPostings::size));
+            long[] result = lists[0].toArray();
+            for (int i = 1; i < lists.length && result.length > 0; i++) {
+                result = lists[i].intersect(result);
+            }
+            return Optional.of(result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * like検索のワイルドカード、またはエスケープ文字を含むかを判定します
+     *
+     * @return 含む場合はtrue
+     */
+    public static boolean hasWildcard(String keyword) {
+        return keyword.indexOf('%') >= 0 || keyword.indexOf('_') >= 0 || keyword.indexOf('\\') >= 0;
+    }
+
+    private static long[] grams(String title) {
+        int length = title.length();
+        long[] grams = new long[length + Math.max(length - 2, 0)];
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            grams[count++] = UNIGRAM | title.charAt(i);
+        }
+        for (int i = 0; i + 2 < length; i++) {
+            grams[count++] = trigram(title, i);
+        }
+        Arrays.sort(grams, 0, count);
+        return Arrays.stream(grams, 0, count).distinct().toArray();
+    }
+
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+}
@@ -0,0 +1,62 @@
+package example.micronaut.domain.projection;
+
+import java.lang.reflect.Field;
+
+/**
+ * Attribute of an entity that can be selected with the fields parameter
+ * 関連先の属性の場合は、関連の属性名とフィールドも保持します
+ *
+ * @author Yudai Tokunaga
+ */
+final class EntityField {
+
+    private final String association;
+
+    private final Field associationMember;
+
+    private final String name;
+
+    private final Field member;
+
+    EntityField(String association, Field associationMember, String name, Field member) {
+        this.association = association;
+        this.associationMember = associationMember;
+        this.name = name;
+        this.member = member;
+    }
+
+    /**
+     * fieldsパラメータで指定する名前を返却します
+     *
+     * @return 属性名。関連先の属性の場合は「関連の属性名.属性名」
+     */
+    String path() {
+        return association == null ? name : association + "." + name;
+    }
+
+    String association() {
+        return association;
+    }
+
+    String name() {
+        return name;
+    }
+
+    /**
+     * エンティティからこの属性の値を読み出します
+     *
+     * @return 属性の値
+     */
+    Object read(Object entity) {
+        Object owner = association == null ? entity : get(associationMember, entity);
+        return owner == null ? null : get(member, owner);
+    }
+
+    private static Object get(Field field, Object target) {
+        try {
+            return field.get(target);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("Cannot read " + field, e);
+        }
+    }
+}
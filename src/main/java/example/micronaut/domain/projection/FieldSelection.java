@@ -0,0 +1,152 @@
+package example.micronaut.domain.projection;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Subset of entity attributes requested with the fields parameter
+ * 選択された属性のみをJPQLのselect句に並べ、結果の行をJSONに変換する表に詰め替えます
+ * IDは常に先頭に含めます
+ *
+ * @author Yudai Tokunaga
+ */
+public final class FieldSelection {
+
+    private final String entityName;
+
+    private final String alias;
+
+    private final List<EntityField> fields;
+
+    FieldSelection(String entityName, List<EntityField> fields) {
+        this.entityName = entityName;
+        this.alias = Character.toLowerCase(entityName.charAt(0)) + entityName.substring(1);
+        this.fields = fields;
+    }
+
+    /**
+     * 選択された属性のみを取得するクエリを返却します
+     * ルートの別名はエンティティ名の先頭を小文字にしたもの(bookなど)、関連先の別名は関連の属性名です
+     * 属性名はメタモデルで検証済みのため、そのままクエリに埋め込みます
+     *
+     * @return where句を含まないクエリ
+     */
+    public String query() {
+        StringBuilder query = new StringBuilder("select ");
+        Set<String> joins = new LinkedHashSet<>();
+        for (int i = 0; i < fields.size(); i++) {
+            EntityField field = fields.get(i);
+            if (i > 0) {
+                query.append(", ");
+            }
+            if (field.association() == null) {
+                query.append(alias);
+            } else {
+                query.append(field.association());
+                joins.add(field.association());
+            }
+            query.append('.').append(field.name());
+        }
+        query.append(" from ").append(entityName).append(' ').append(alias);
+        for (String join : joins) {
+            query.append(" join ").append(alias).append('.').append(join).append(' ').append(join);
+        }
+        return query.toString();
+    }
+
+    /**
+     * query()の結果の行を、選択された属性のみの表に詰め替えます
+     *
+     * @return 1行ごとの表
+     */
+    public List<Map<String, Object>> toMaps(List<?> rows) {
+        List<Map<String, Object>> maps = new ArrayList<>(rows.size());
+        for (Object row : rows) {
+            // 選択する属性が1つの場合は配列ではなく値そのものが返る
+            Object[] values = row instanceof Object[] ? (Object[]) row : new Object[]{row};
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (int i = 0; i < fields.size(); i++) {
+                put(map, fields.get(i), values[i]);
+            }
+            maps.add(map);
+        }
+        return maps;
+    }
+
+    /**
+     * エンティティから選択された属性のみを取り出します
+     *
+     * @return 選択された属性の表
+     */
+    public Map<String, Object> toMap(Object entity) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (EntityField field : fields) {
+            put(map, field, field.read(entity));
+        }
+        return map;
+    }
+
+    /**
+     * toMaps()で作成した行のIDを返却します
+     *
+     * @return ID
+     */
+    public Long idOf(Map<String, Object> row) {
+        return (Long) row.get(fields.get(0).path());
+    }
+
+    /**
+     * 選択された属性名を返却します
+     *
+     * @return 属性名のリスト
+     */
+    public List<String> getPaths() {
+        List<String> paths = new ArrayList<>(fields.size());
+        for (EntityField field : fields) {
+            paths.add(field.path());
+        }
+        return paths;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> map, EntityField field, Object value) {
+        if (field.association() == null) {
+            map.put(field.name(), value);
+        } else {
+            ((Map<String, Object>) map.computeIfAbsent(field.association(), key -> new LinkedHashMap<>()))
+                    .put(field.name(), value);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FieldSelection that = (FieldSelection) o;
+        return entityName.equals(that.entityName) && getPaths().equals(that.getPaths());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(entityName, getPaths());
+    }
+
+    /**
+     * fieldsパラメータの形式で返却します
+     *
+     * @return カンマ区切りの属性名
+     */
+    @Override
+    public String toString() {
+        return String.join(",", getPaths());
+    }
+}
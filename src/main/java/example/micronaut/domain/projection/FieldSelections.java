@@ -0,0 +1,137 @@
+package example.micronaut.domain.projection;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.SessionFactory;
+
+import javax.inject.Singleton;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.ManagedType;
+import javax.persistence.metamodel.Metamodel;
+import javax.persistence.metamodel.SingularAttribute;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses the fields parameter against the entity metamodel
+ * JSONに出力される単一値の属性と、単一値の関連先のそれらの属性のみを指定できます
+ * JsonIgnoreの属性(バージョン、更新日時など)とコレクションは指定できません
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class FieldSelections {
+
+    private final Metamodel metamodel;
+
+    /**
+     * エンティティごとの選択できる属性。IDが先頭に並びます
+     */
+    private final Map<Class<?>, Map<String, EntityField>> selectable = new ConcurrentHashMap<>();
+
+    public FieldSelections(SessionFactory sessionFactory) {
+        this.metamodel = sessionFactory.getMetamodel();
+    }
+
+    /**
+     * カンマ区切りの属性名を解析します
+     * 関連の属性名のみを指定した場合は、関連先の選択できる属性を全て選択します
+     * 選択できない属性名が含まれる場合や、属性名が1つもない場合は空を返却します
+     * 選択された属性は指定の順序や重複によらず、選択できる属性の順序(ID、属性名の順)に並べるため、
+     * 同じ属性の組み合わせからは同じJPQLを作ります
+     *
+     * @return 選択された属性
+     */
+    public Optional<FieldSelection> parse(Class<?> entity, String fields) {
+        Map<String, EntityField> available = selectable.computeIfAbsent(entity, this::selectableFields);
+        Set<String> selected = new HashSet<>();
+        selected.add(available.keySet().iterator().next());
+
+        boolean empty = true;
+        for (String token : fields.split(",")) {
+            String path = token.trim();
+            if (path.isEmpty()) {
+                continue;
+            }
+            empty = false;
+            if (available.containsKey(path)) {
+                selected.add(path);
+                continue;
+            }
+            boolean association = false;
+            for (EntityField candidate : available.values()) {
+                if (path.equals(candidate.association())) {
+                    selected.add(candidate.path());
+                    association = true;
+                }
+            }
+            if (!association) {
+                return Optional.empty();
+            }
+        }
+        if (empty) {
+            return Optional.empty();
+        }
+        List<EntityField> ordered = new ArrayList<>(selected.size());
+        for (EntityField field : available.values()) {
+            if (selected.contains(field.path())) {
+                ordered.add(field);
+            }
+        }
+        return Optional.of(new FieldSelection(metamodel.entity(entity).getName(), ordered));
+    }
+
+    private Map<String, EntityField> selectableFields(Class<?> entity) {
+        Map<String, EntityField> fields = new LinkedHashMap<>();
+        for (SingularAttribute<?, ?> attribute : exposed(metamodel.entity(entity))) {
+            Field member = field(attribute);
+            if (attribute.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                fields.put(attribute.getName(), new EntityField(null, null, attribute.getName(), member));
+            } else if (attribute.isAssociation() && attribute.getType() instanceof ManagedType) {
+                for (SingularAttribute<?, ?> nested : exposed((ManagedType<?>) attribute.getType())) {
+                    if (nested.getPersistentAttributeType() == Attribute.PersistentAttributeType.BASIC) {
+                        EntityField field = new EntityField(attribute.getName(), member, nested.getName(), field(nested));
+                        fields.put(field.path(), field);
+                    }
+                }
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * JSONに出力される単一値の属性を、ID、属性名の順に並べて返却します
+     *
+     * @return 属性のリスト
+     */
+    private static List<SingularAttribute<?, ?>> exposed(ManagedType<?> type) {
+        List<SingularAttribute<?, ?>> attributes = new ArrayList<>();
+        for (SingularAttribute<?, ?> attribute : type.getSingularAttributes()) {
+            if (!field(attribute).isAnnotationPresent(JsonIgnore.class)) {
+                attributes.add(attribute);
+            }
+        }
+        attributes.sort(Comparator
+                .comparing((SingularAttribute<?, ?> attribute) -> !attribute.isId())
+                .thenComparing(Attribute::getName));
+        return attributes;
+    }
+
+    private static Field field(Attribute<?, ?> attribute) {
+        Member member = attribute.getJavaMember();
+        if (!(member instanceof Field)) {
+            throw new IllegalStateException("Attribute is not mapped to a field: " + attribute.getName());
+        }
+        Field field = (Field) member;
+        field.setAccessible(true);
+        return field;
+    }
+}
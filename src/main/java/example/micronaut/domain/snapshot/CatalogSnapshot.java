@@ -0,0 +1,194 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.view.AuthorView;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Immutable catalog read from a memory-mapped snapshot file
+ * レコードはヒープの外にあり、IDからレコードの位置への索引もファイル内の配列を二分探索します
+ * ヒープに作るのは読み出したレコードのオブジェクトのみです
+ *
+ * @author Yudai Tokunaga
+ */
+final class CatalogSnapshot {
+
+    private final ByteBuffer buffer;
+    private final int authorCount;
+    private final int bookCount;
+    private final int authorIndex;
+    private final int bookIndex;
+    private final Instant authorsModifiedAt;
+    private final Instant booksModifiedAt;
+    private final long authorVersions;
+    private final long bookVersions;
+
+    private CatalogSnapshot(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < SnapshotWriter.HEADER_SIZE
+                || buffer.getInt(0) != SnapshotWriter.MAGIC || buffer.getInt(4) != SnapshotWriter.FORMAT) {
+            throw new IllegalArgumentException("Not a catalog snapshot");
+        }
+        this.authorCount = buffer.getInt(8);
+        this.bookCount = buffer.getInt(12);
+        this.authorIndex = (int) buffer.getLong(16);
+        this.bookIndex = (int) buffer.getLong(24);
+        this.authorsModifiedAt = instant(32);
+        this.booksModifiedAt = instant(44);
+        this.authorVersions = buffer.getLong(56);
+        this.bookVersions = buffer.getLong(64);
+        if ((long) bookIndex + (long) bookCount * SnapshotWriter.INDEX_ENTRY_SIZE != buffer.capacity()) {
+            throw new IllegalArgumentException("Truncated catalog snapshot");
+        }
+    }
+
+    /**
+     * スナップショットのファイルを読み取り専用でメモリにマップします
+     *
+     * @return スナップショット
+     */
+    static CatalogSnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Catalog snapshot exceeds 2GB");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new CatalogSnapshot(buffer);
+        }
+    }
+
+    /**
+     * 著者も書籍も含まないスナップショットを返却します
+     *
+     * @return 空のスナップショット
+     */
+    static CatalogSnapshot empty() {
+        ByteBuffer buffer = ByteBuffer.allocate(SnapshotWriter.HEADER_SIZE);
+        buffer.putInt(0, SnapshotWriter.MAGIC).putInt(4, SnapshotWriter.FORMAT)
+                .putLong(16, SnapshotWriter.HEADER_SIZE).putLong(24, SnapshotWriter.HEADER_SIZE)
+                .putLong(32, Long.MIN_VALUE).putLong(44, Long.MIN_VALUE);
+        return new CatalogSnapshot(buffer);
+    }
+
+    int authorCount() {
+        return authorCount;
+    }
+
+    int bookCount() {
+        return bookCount;
+    }
+
+    Instant authorsModifiedAt() {
+        return authorsModifiedAt;
+    }
+
+    Instant booksModifiedAt() {
+        return booksModifiedAt;
+    }
+
+    /**
+     * @return 全ての著者のバージョンの合計
+     */
+    long authorVersions() {
+        return authorVersions;
+    }
+
+    /**
+     * @return 全ての書籍のバージョンの合計
+     */
+    long bookVersions() {
+        return bookVersions;
+    }
+
+    /**
+     * @return 最大の著者ID。著者がない場合は0
+     */
+    long maxAuthorId() {
+        return authorCount == 0 ? 0L : authorId(authorCount - 1);
+    }
+
+    /**
+     * @return 最大の書籍ID。書籍がない場合は0
+     */
+    long maxBookId() {
+        return bookCount == 0 ? 0L : bookId(bookCount - 1);
+    }
+
+    long authorId(int index) {
+        return buffer.getLong(authorIndex + index * SnapshotWriter.INDEX_ENTRY_SIZE);
+    }
+
+    long bookId(int index) {
+        return buffer.getLong(bookIndex + index * SnapshotWriter.INDEX_ENTRY_SIZE);
+    }
+
+    /**
+     * @return IDが一致する著者の索引上の位置。ない場合は挿入位置を-(位置 + 1)で返却します
+     */
+    int searchAuthor(long id) {
+        return search(authorIndex, authorCount, id);
+    }
+
+    /**
+     * @return IDが一致する書籍の索引上の位置。ない場合は挿入位置を-(位置 + 1)で返却します
+     */
+    int searchBook(long id) {
+        return search(bookIndex, bookCount, id);
+    }
+
+    AuthorView author(int index) {
+        int offset = buffer.getInt(authorIndex + index * SnapshotWriter.INDEX_ENTRY_SIZE + Long.BYTES);
+        long id = buffer.getLong(offset);
+        long version = buffer.getLong(offset + 8);
+        Instant modifiedAt = instant(offset + 16);
+        String name = string(offset + 28);
+        return new AuthorView(id, name, version, modifiedAt);
+    }
+
+    SnapshotBook book(int index) {
+        int offset = buffer.getInt(bookIndex + index * SnapshotWriter.INDEX_ENTRY_SIZE + Long.BYTES);
+        long id = buffer.getLong(offset);
+        long version = buffer.getLong(offset + 8);
+        Instant modifiedAt = instant(offset + 16);
+        long authorId = buffer.getLong(offset + 28);
+        String isbn = string(offset + 36);
+        String title = string(offset + 40 + buffer.getInt(offset + 36));
+        return new SnapshotBook(id, isbn, title, version, modifiedAt, authorId);
+    }
+
+    private int search(int index, int count, long id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = buffer.getLong(index + mid * SnapshotWriter.INDEX_ENTRY_SIZE);
+            if (value < id) {
+                low = mid + 1;
+            } else if (value > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private Instant instant(int offset) {
+        long seconds = buffer.getLong(offset);
+        return seconds == Long.MIN_VALUE ? null : Instant.ofEpochSecond(seconds, buffer.getInt(offset + 8));
+    }
+
+    private String string(int offset) {
+        int length = buffer.getInt(offset);
+        ByteBuffer bytes = buffer.duplicate();
+        bytes.position(offset + 4).limit(offset + 4 + length);
+        return StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+}
@@ -0,0 +1,405 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.view.AuthorView;
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the current version of the catalog snapshot
+ * 起動時はファイルに保存されたスナップショットをメモリにマップし、DBの件数、最大のID、最終更新日時、
+ * バージョンの合計が全て一致すればそのまま使います
+ * 一致しない場合や、ファイルがない場合はバックグラウンドでDBから作成し、完了までの読み出しはDBで処理されます
+ * <p>
+ * 書き込みがコミットされると、変更された行だけをDBから読み直して新しい版を公開します
+ * 読み直しはロックの外で行い、後のコミットの読み直しが先に公開された場合はバージョンの古い行を捨てます
+ * 変更分がCOMPACT_THRESHOLD件を超えると、バックグラウンドで変更分をまとめた新しいファイルに書き出します
+ * 変更分は停止時にもファイルに書き出します
+ * <p>
+ * 起動後は他のノードからの書き込みを検知しないため、application.single-node.enabledを必須とし、
+ * 無効な場合は起動に失敗します
+ *
+ * @author Yudai Tokunaga
+ */
+@Context
+@Requires(property = "application.snapshot.enabled", value = "true")
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
+public class CatalogSnapshots {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogSnapshots.class);
+
+    /**
+     * ファイルに書き出すまでに溜める変更分の件数
+     */
+    private static final int COMPACT_THRESHOLD = 10_000;
+
+    /**
+     * DBから読み出す時に1回の通信で取得する行数
+     */
+    private static final int FETCH_SIZE = 500;
+
+    /**
+     * in句に並べるIDの最大数
+     */
+    private static final int IN_CLAUSE_SIZE = 500;
+
+    private static final String SELECT_AUTHOR = "select new example.micronaut.domain.view.AuthorView("
+            + "author.id, author.name, author.version, author.modifiedAt) from Author author";
+
+    private static final String SELECT_BOOK = "select book.id, book.isbn, book.title, book.version, book.modifiedAt, "
+            + "book.author.id from Book book";
+
+    private final SessionFactory sessionFactory;
+    private final Path file;
+
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private volatile CatalogVersion current;
+
+    /**
+     * 作成中に変更された著者と書籍のID。作成後に読み直します
+     */
+    private Set<Long> pendingAuthors = new HashSet<>();
+    private Set<Long> pendingBooks = new HashSet<>();
+
+    public CatalogSnapshots(SessionFactory sessionFactory,
+                            @Value("${application.snapshot.path:catalog.snapshot}") String path,
+                            @Value("${application.single-node.enabled:false}") boolean singleNode) {
+        if (!singleNode) {
+            throw new IllegalStateException("The catalog snapshot does not see writes from other nodes. "
+                    + "Set application.single-node.enabled to true to use application.snapshot.enabled");
+        }
+        this.sessionFactory = sessionFactory;
+        this.file = Paths.get(path).toAbsolutePath();
+    }
+
+    @PostConstruct
+    void load() {
+        if (Files.exists(file)) {
+            try {
+                CatalogSnapshot snapshot = CatalogSnapshot.map(file);
+                if (isUpToDate(snapshot)) {
+                    current = CatalogVersion.of(snapshot);
+                    LOG.info("Mapped catalog snapshot {} ({} authors, {} books)", file, snapshot.authorCount(), snapshot.bookCount());
+                    return;
+                }
+                LOG.info("Catalog snapshot {} is stale, rebuilding", file);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to map catalog snapshot {}, rebuilding", file, e);
+            }
+        }
+        Completable.fromAction(this::build)
+                .subscribeOn(Schedulers.io())
+                .subscribe(() -> { }, e -> LOG.error("Failed to build catalog snapshot", e));
+    }
+
+    /**
+     * 変更分をファイルに書き出します
+     */
+    @PreDestroy
+    void close() {
+        CatalogVersion version = current;
+        if (version != null && version.changes() > 0 && compacting.compareAndSet(false, true)) {
+            try {
+                compact(version);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("Failed to write catalog snapshot {}", file, e);
+            } finally {
+                compacting.set(false);
+            }
+        }
+    }
+
+    /**
+     * @return 最新の版。作成中の場合は空
+     */
+    Optional<CatalogVersion> current() {
+        return Optional.ofNullable(current);
+    }
+
+    /**
+     * コミットされた著者の変更を反映します
+     */
+    void authorsChanged(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (current == null) {
+                pendingAuthors.addAll(ids);
+                return;
+            }
+        }
+        Map<Long, Optional<AuthorView>> authors = loadAuthors(ids);
+        synchronized (this) {
+            publish(current.with(authors, Collections.emptyMap()));
+        }
+    }
+
+    /**
+     * コミットされた書籍の変更を反映します
+     */
+    void booksChanged(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            if (current == null) {
+                pendingBooks.addAll(ids);
+                return;
+            }
+        }
+        Map<Long, Optional<SnapshotBook>> books = loadBooks(ids);
+        synchronized (this) {
+            publish(current.with(Collections.emptyMap(), books));
+        }
+    }
+
+    private void publish(CatalogVersion version) {
+        current = version;
+        if (version.changes() > COMPACT_THRESHOLD && compacting.compareAndSet(false, true)) {
+            Completable.fromAction(() -> compact(version))
+                    .subscribeOn(Schedulers.io())
+                    .doFinally(() -> compacting.set(false))
+                    .subscribe(() -> { }, e -> LOG.error("Failed to write catalog snapshot {}", file, e));
+        }
+    }
+
+    /**
+     * DBの全ての著者と書籍からスナップショットを作成します
+     */
+    private void build() throws IOException {
+        Path temporary = temporaryFile();
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try (SnapshotWriter writer = new SnapshotWriter(temporary)) {
+            Transaction transaction = session.beginTransaction();
+            try (ScrollableResults authors = session.createQuery(SELECT_AUTHOR + " order by author.id")
+                    .setFetchSize(FETCH_SIZE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+                while (authors.next()) {
+                    writer.writeAuthor((AuthorView) authors.get(0));
+                }
+            }
+            try (ScrollableResults books = session.createQuery(SELECT_BOOK + " order by book.id")
+                    .setFetchSize(FETCH_SIZE).setReadOnly(true).scroll(ScrollMode.FORWARD_ONLY)) {
+                while (books.next()) {
+                    writer.writeBook(toBook(books.get()));
+                }
+            }
+            transaction.commit();
+            writer.finish();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        } finally {
+            session.close();
+        }
+        CatalogSnapshot snapshot = install(temporary);
+
+        // 作成中に変更された行を読み直す。読み直し中に変更された行は次の周回で読み直す
+        CatalogVersion version = CatalogVersion.of(snapshot);
+        while (true) {
+            Set<Long> authorIds;
+            Set<Long> bookIds;
+            synchronized (this) {
+                if (pendingAuthors.isEmpty() && pendingBooks.isEmpty()) {
+                    current = version;
+                    break;
+                }
+                authorIds = pendingAuthors;
+                bookIds = pendingBooks;
+                pendingAuthors = new HashSet<>();
+                pendingBooks = new HashSet<>();
+            }
+            version = version.with(loadAuthors(authorIds), loadBooks(bookIds));
+        }
+        LOG.info("Built catalog snapshot {} ({} authors, {} books)", file, snapshot.authorCount(), snapshot.bookCount());
+    }
+
+    /**
+     * 版のスナップショットと変更分をまとめた新しいファイルを書き出し、
+     * 書き出し中に加わった変更分のみを残した版に置き換えます
+     */
+    private void compact(CatalogVersion version) throws IOException {
+        Path temporary = temporaryFile();
+        try (SnapshotWriter writer = new SnapshotWriter(temporary)) {
+            version.forEachAuthor(author -> {
+                try {
+                    writer.writeAuthor(author);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            version.forEachBook(0L, book -> {
+                // 著者が削除された書籍は書き出さない
+                if (!version.findAuthor(book.getAuthorId()).isPresent()) {
+                    return;
+                }
+                try {
+                    writer.writeBook(book);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.finish();
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temporary);
+            throw e.getCause();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+        CatalogSnapshot snapshot = install(temporary);
+
+        synchronized (this) {
+            current = new CatalogVersion(snapshot,
+                    newerChanges(version.changedAuthors(), current.changedAuthors()),
+                    newerChanges(version.changedBooks(), current.changedBooks()));
+        }
+        LOG.info("Wrote catalog snapshot {} ({} authors, {} books)", file, snapshot.authorCount(), snapshot.bookCount());
+    }
+
+    private CatalogSnapshot install(Path temporary) throws IOException {
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        return CatalogSnapshot.map(file);
+    }
+
+    private Path temporaryFile() throws IOException {
+        Path directory = file.getParent();
+        Files.createDirectories(directory);
+        return Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+    }
+
+    /**
+     * スナップショットの件数、最大のID、最終更新日時、バージョンの合計が、DBと一致するかを確認します
+     * 削除と古い更新日時での登録が重なった場合は最大のIDで、更新日時を変えない更新はバージョンの合計で検知します
+     */
+    private boolean isUpToDate(CatalogSnapshot snapshot) {
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            Object[] authors = (Object[]) session
+                    .createQuery("select count(author), max(author.id), max(author.modifiedAt), "
+                            + "sum(author.version) from Author author")
+                    .uniqueResult();
+            Object[] books = (Object[]) session
+                    .createQuery("select count(book), max(book.id), max(book.modifiedAt), "
+                            + "sum(book.version) from Book book")
+                    .uniqueResult();
+            return ((Number) authors[0]).longValue() == snapshot.authorCount()
+                    && longValue(authors[1]) == snapshot.maxAuthorId()
+                    && Objects.equals(authors[2], snapshot.authorsModifiedAt())
+                    && longValue(authors[3]) == snapshot.authorVersions()
+                    && ((Number) books[0]).longValue() == snapshot.bookCount()
+                    && longValue(books[1]) == snapshot.maxBookId()
+                    && Objects.equals(books[2], snapshot.booksModifiedAt())
+                    && longValue(books[3]) == snapshot.bookVersions();
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * 集計の結果を返却します。行がない場合の集計(null)は0とします
+     */
+    private static long longValue(Object aggregate) {
+        return aggregate == null ? 0L : ((Number) aggregate).longValue();
+    }
+
+    private Map<Long, Optional<AuthorView>> loadAuthors(Collection<Long> ids) {
+        Map<Long, Optional<AuthorView>> authors = new HashMap<>();
+        for (Long id : ids) {
+            authors.put(id, Optional.empty());
+        }
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            for (List<Long> chunk : chunks(ids)) {
+                List<AuthorView> loaded = session
+                        .createQuery(SELECT_AUTHOR + " where author.id in :ids", AuthorView.class)
+                        .setParameterList("ids", chunk)
+                        .getResultList();
+                for (AuthorView author : loaded) {
+                    authors.put(author.getId(), Optional.of(author));
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return authors;
+    }
+
+    private Map<Long, Optional<SnapshotBook>> loadBooks(Collection<Long> ids) {
+        Map<Long, Optional<SnapshotBook>> books = new HashMap<>();
+        for (Long id : ids) {
+            books.put(id, Optional.empty());
+        }
+        StatelessSession session = sessionFactory.openStatelessSession();
+        try {
+            for (List<Long> chunk : chunks(ids)) {
+                List<Object[]> loaded = session
+                        .createQuery(SELECT_BOOK + " where book.id in :ids", Object[].class)
+                        .setParameterList("ids", chunk)
+                        .getResultList();
+                for (Object[] row : loaded) {
+                    SnapshotBook book = toBook(row);
+                    books.put(book.getId(), Optional.of(book));
+                }
+            }
+        } finally {
+            session.close();
+        }
+        return books;
+    }
+
+    private static <V> Overlay<V> newerChanges(Overlay<V> written, Overlay<V> latest) {
+        NavigableMap<Long, V> newer = new TreeMap<>();
+        for (Map.Entry<Long, V> change : latest.toMap().entrySet()) {
+            if (written.get(change.getKey()) != change.getValue()) {
+                newer.put(change.getKey(), change.getValue());
+            }
+        }
+        return Overlay.of(newer);
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> ids) {
+        List<Long> remaining = new ArrayList<>(ids);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < remaining.size(); from += IN_CLAUSE_SIZE) {
+            chunks.add(remaining.subList(from, Math.min(from + IN_CLAUSE_SIZE, remaining.size())));
+        }
+        return chunks;
+    }
+
+    private static SnapshotBook toBook(Object[] row) {
+        return new SnapshotBook((Long) row[0], (String) row[1], (String) row[2], (Long) row[3], (Instant) row[4], (Long) row[5]);
+    }
+}
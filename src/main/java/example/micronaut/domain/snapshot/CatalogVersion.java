@@ -0,0 +1,306 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.view.AuthorView;
+import example.micronaut.domain.view.BookView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * One immutable version of the catalog
+ * スナップショットと、スナップショットの作成後に変更された著者と書籍(変更分)から成ります
+ * 書き込みのたびに変更を加えた新しい版を作るため、読み出し中の版が変わることはありません
+ * 変更分はOverlayに保持し、書き込みごとのコピーは直近の変更のみに抑えます
+ * <p>
+ * 変更分のOptional.empty()は削除を表します
+ * 著者が削除された書籍は、書籍自体が変更分になくても存在しないものとして扱います
+ *
+ * @author Yudai Tokunaga
+ */
+final class CatalogVersion {
+
+    /**
+     * 全件読み出し時に1回で取り出す件数
+     */
+    private static final int PAGE_SIZE = 500;
+
+    private final CatalogSnapshot snapshot;
+    private final Overlay<Optional<AuthorView>> authors;
+    private final Overlay<Optional<SnapshotBook>> books;
+
+    CatalogVersion(CatalogSnapshot snapshot,
+                   Overlay<Optional<AuthorView>> authors,
+                   Overlay<Optional<SnapshotBook>> books) {
+        this.snapshot = snapshot;
+        this.authors = authors;
+        this.books = books;
+    }
+
+    static CatalogVersion of(CatalogSnapshot snapshot) {
+        return new CatalogVersion(snapshot, Overlay.empty(), Overlay.empty());
+    }
+
+    CatalogSnapshot snapshot() {
+        return snapshot;
+    }
+
+    Overlay<Optional<AuthorView>> changedAuthors() {
+        return authors;
+    }
+
+    Overlay<Optional<SnapshotBook>> changedBooks() {
+        return books;
+    }
+
+    /**
+     * @return 変更分の件数
+     */
+    int changes() {
+        return authors.size() + books.size();
+    }
+
+    /**
+     * 指定された変更のうち、この版より古くないものを加えた新しい版を返却します
+     * 変更はロックの外でDBから読み直すため、後のコミットの読み直しが先に反映されることがあります
+     * 削除は常に反映し、削除済みの行と、この版よりバージョンが古い行は反映しません
+     *
+     * @return 新しい版
+     */
+    CatalogVersion with(Map<Long, Optional<AuthorView>> changedAuthors, Map<Long, Optional<SnapshotBook>> changedBooks) {
+        Map<Long, Optional<AuthorView>> newerAuthors = new HashMap<>();
+        changedAuthors.forEach((id, author) -> {
+            if (isNewer(author.map(AuthorView::getVersion), authorVersion(id))) {
+                newerAuthors.put(id, author);
+            }
+        });
+        Map<Long, Optional<SnapshotBook>> newerBooks = new HashMap<>();
+        changedBooks.forEach((id, book) -> {
+            if (isNewer(book.map(SnapshotBook::getVersion), bookVersion(id))) {
+                newerBooks.put(id, book);
+            }
+        });
+        return new CatalogVersion(snapshot, authors.with(newerAuthors), books.with(newerBooks));
+    }
+
+    /**
+     * @param loaded  読み直した行のバージョン。削除された場合は空
+     * @param current この版の行のバージョン。削除済みの場合は空、この版にない場合はnull
+     */
+    private static boolean isNewer(Optional<Long> loaded, Optional<Long> current) {
+        if (current == null || !loaded.isPresent()) {
+            return true;
+        }
+        return current.isPresent() && loaded.get() >= current.get();
+    }
+
+    /**
+     * @return この版の著者のバージョン。削除済みの場合は空、この版にない場合はnull
+     */
+    private Optional<Long> authorVersion(long id) {
+        Optional<AuthorView> changed = authors.get(id);
+        if (changed != null) {
+            return changed.map(AuthorView::getVersion);
+        }
+        int index = snapshot.searchAuthor(id);
+        return index < 0 ? null : Optional.of(snapshot.author(index).getVersion());
+    }
+
+    /**
+     * @return この版の書籍のバージョン。削除済みの場合は空、この版にない場合はnull
+     */
+    private Optional<Long> bookVersion(long id) {
+        Optional<SnapshotBook> changed = books.get(id);
+        if (changed != null) {
+            return changed.map(SnapshotBook::getVersion);
+        }
+        int index = snapshot.searchBook(id);
+        return index < 0 ? null : Optional.of(snapshot.book(index).getVersion());
+    }
+
+    Optional<AuthorView> findAuthor(long id) {
+        Optional<AuthorView> changed = authors.get(id);
+        if (changed != null) {
+            return changed;
+        }
+        int index = snapshot.searchAuthor(id);
+        return index < 0 ? Optional.empty() : Optional.of(snapshot.author(index));
+    }
+
+    Optional<BookView> findBook(long id) {
+        Optional<SnapshotBook> changed = books.get(id);
+        if (changed != null) {
+            return changed.flatMap(this::view);
+        }
+        int index = snapshot.searchBook(id);
+        return index < 0 ? Optional.empty() : view(snapshot.book(index));
+    }
+
+    /**
+     * IDがafterより大きい著者をID順に最大max件返却します
+     *
+     * @return 著者のリスト
+     */
+    List<AuthorView> findAuthors(long after, int max) {
+        List<AuthorView> result = new ArrayList<>();
+        forEachAuthor(after, result::add, () -> result.size() >= max);
+        return result;
+    }
+
+    /**
+     * IDがafterより大きい書籍をID順に最大max件返却します
+     *
+     * @return 書籍のリスト
+     */
+    List<BookView> findBooks(long after, int max) {
+        List<BookView> result = new ArrayList<>();
+        forEachBook(after, book -> view(book).ifPresent(result::add), () -> result.size() >= max);
+        return result;
+    }
+
+    /**
+     * タイトルにキーワードを含む書籍をID順に返却します
+     * 索引の候補がある場合は候補のみを確認し、ない場合は全ての書籍を確認します
+     *
+     * @param candidates 昇順の候補の書籍ID
+     * @return 書籍のリスト
+     */
+    List<BookView> findBooksByKeyword(String keyword, Optional<long[]> candidates) {
+        List<BookView> result = new ArrayList<>();
+        if (candidates.isPresent()) {
+            for (long id : candidates.get()) {
+                findBook(id).filter(book -> book.getTitle().contains(keyword)).ifPresent(result::add);
+            }
+        } else {
+            forEachBook(0L, book -> {
+                if (book.getTitle().contains(keyword)) {
+                    view(book).ifPresent(result::add);
+                }
+            });
+        }
+        return result;
+    }
+
+    /**
+     * 名前にキーワードを含む著者をID順に返却します
+     *
+     * @return 著者のリスト
+     */
+    List<AuthorView> findAuthorsByKeyword(String keyword) {
+        List<AuthorView> result = new ArrayList<>();
+        forEachAuthor(author -> {
+            if (author.getName().contains(keyword)) {
+                result.add(author);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 全ての書籍をID順にPAGE_SIZE件ずつ取り出すイテレーターを返却します
+     *
+     * @return 書籍のイテレーター
+     */
+    Iterator<BookView> iterateBooks() {
+        return new Iterator<BookView>() {
+
+            private Iterator<BookView> page = Collections.emptyIterator();
+            private long after;
+            private boolean last;
+
+            @Override
+            public boolean hasNext() {
+                while (!page.hasNext() && !last) {
+                    List<BookView> books = findBooks(after, PAGE_SIZE);
+                    last = books.size() < PAGE_SIZE;
+                    if (!books.isEmpty()) {
+                        after = books.get(books.size() - 1).getId();
+                    }
+                    page = books.iterator();
+                }
+                return page.hasNext();
+            }
+
+            @Override
+            public BookView next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.next();
+            }
+        };
+    }
+
+    /**
+     * IDがafterより大きい全ての書籍をID順に処理します
+     */
+    void forEachBook(long after, Consumer<SnapshotBook> action) {
+        forEachBook(after, action, () -> false);
+    }
+
+    /**
+     * 書籍を著者名付きの読み取りモデルに変換します
+     * 著者が削除されている場合は空を返却します
+     *
+     * @return 読み取りモデル
+     */
+    Optional<BookView> view(SnapshotBook book) {
+        return findAuthor(book.getAuthorId()).map(author -> new BookView(book.getId(), book.getIsbn(), book.getTitle(),
+                book.getVersion(), book.getModifiedAt(),
+                author.getId(), author.getName(), author.getVersion(), author.getModifiedAt()));
+    }
+
+    /**
+     * 全ての著者をID順に処理します
+     */
+    void forEachAuthor(Consumer<AuthorView> action) {
+        forEachAuthor(0L, action, () -> false);
+    }
+
+    private void forEachAuthor(long after, Consumer<AuthorView> action, BooleanSupplier done) {
+        Iterator<Map.Entry<Long, Optional<AuthorView>>> changed = authors.tail(after);
+        Map.Entry<Long, Optional<AuthorView>> nextChanged = changed.hasNext() ? changed.next() : null;
+        int index = insertionPoint(snapshot.searchAuthor(after + 1));
+        while ((nextChanged != null || index < snapshot.authorCount()) && !done.getAsBoolean()) {
+            long nextBase = index < snapshot.authorCount() ? snapshot.authorId(index) : Long.MAX_VALUE;
+            if (nextChanged != null && nextChanged.getKey() <= nextBase) {
+                nextChanged.getValue().ifPresent(action);
+                if (nextChanged.getKey() == nextBase) {
+                    index++;
+                }
+                nextChanged = changed.hasNext() ? changed.next() : null;
+            } else {
+                action.accept(snapshot.author(index++));
+            }
+        }
+    }
+
+    private void forEachBook(long after, Consumer<SnapshotBook> action, BooleanSupplier done) {
+        Iterator<Map.Entry<Long, Optional<SnapshotBook>>> changed = books.tail(after);
+        Map.Entry<Long, Optional<SnapshotBook>> nextChanged = changed.hasNext() ? changed.next() : null;
+        int index = insertionPoint(snapshot.searchBook(after + 1));
+        while ((nextChanged != null || index < snapshot.bookCount()) && !done.getAsBoolean()) {
+            long nextBase = index < snapshot.bookCount() ? snapshot.bookId(index) : Long.MAX_VALUE;
+            if (nextChanged != null && nextChanged.getKey() <= nextBase) {
+                nextChanged.getValue().ifPresent(action);
+                if (nextChanged.getKey() == nextBase) {
+                    index++;
+                }
+                nextChanged = changed.hasNext() ? changed.next() : null;
+            } else {
+                action.accept(snapshot.book(index++));
+            }
+        }
+    }
+
+    private static int insertionPoint(int searchResult) {
+        return searchResult < 0 ? -(searchResult + 1) : searchResult;
+    }
+}
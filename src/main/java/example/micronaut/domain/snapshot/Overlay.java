@@ -0,0 +1,138 @@
+package example.micronaut.domain.snapshot;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Immutable map of changes keyed by id
+ * 変更分を、まとめ済みの変更(merged)と直近の変更(recent)の2段で保持します
+ * 書き込みのたびにコピーするのはRECENT_LIMIT件以下の直近の変更のみで、
+ * 超えた時だけ直近の変更をまとめ済みの変更に統合した新しいマップを作ります
+ *
+ * @author Yudai Tokunaga
+ */
+final class Overlay<V> {
+
+    /**
+     * 直近の変更として保持する最大件数
+     */
+    static final int RECENT_LIMIT = 256;
+
+    private static final Overlay<?> EMPTY = new Overlay<>(Collections.emptyNavigableMap(), Collections.emptyNavigableMap(), 0);
+
+    private final NavigableMap<Long, V> merged;
+    private final NavigableMap<Long, V> recent;
+    private final int size;
+
+    private Overlay(NavigableMap<Long, V> merged, NavigableMap<Long, V> recent, int size) {
+        this.merged = merged;
+        this.recent = recent;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> Overlay<V> empty() {
+        return (Overlay<V>) EMPTY;
+    }
+
+    static <V> Overlay<V> of(NavigableMap<Long, V> changes) {
+        if (changes.isEmpty()) {
+            return empty();
+        }
+        return new Overlay<>(Collections.unmodifiableNavigableMap(new TreeMap<>(changes)),
+                Collections.emptyNavigableMap(), changes.size());
+    }
+
+    /**
+     * 指定された変更を加えた新しい変更分を返却します
+     *
+     * @return 新しい変更分
+     */
+    Overlay<V> with(Map<Long, V> changes) {
+        if (changes.isEmpty()) {
+            return this;
+        }
+        NavigableMap<Long, V> nextRecent = new TreeMap<>(recent);
+        int nextSize = size;
+        for (Map.Entry<Long, V> change : changes.entrySet()) {
+            if (nextRecent.put(change.getKey(), change.getValue()) == null && !merged.containsKey(change.getKey())) {
+                nextSize++;
+            }
+        }
+        if (nextRecent.size() <= RECENT_LIMIT) {
+            return new Overlay<>(merged, Collections.unmodifiableNavigableMap(nextRecent), nextSize);
+        }
+        NavigableMap<Long, V> nextMerged = new TreeMap<>(merged);
+        nextMerged.putAll(nextRecent);
+        return new Overlay<>(Collections.unmodifiableNavigableMap(nextMerged), Collections.emptyNavigableMap(), nextSize);
+    }
+
+    /**
+     * @return 変更分の値。変更されていない場合はnull
+     */
+    V get(long id) {
+        V changed = recent.get(id);
+        return changed != null ? changed : merged.get(id);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return 全ての変更をまとめた新しいマップ
+     */
+    NavigableMap<Long, V> toMap() {
+        NavigableMap<Long, V> all = new TreeMap<>(merged);
+        all.putAll(recent);
+        return all;
+    }
+
+    /**
+     * IDがafterより大きい変更をID順に取り出すイテレーターを返却します
+     * 同じIDは直近の変更を優先します
+     *
+     * @return 変更のイテレーター
+     */
+    Iterator<Map.Entry<Long, V>> tail(long after) {
+        Iterator<Map.Entry<Long, V>> older = merged.tailMap(after, false).entrySet().iterator();
+        Iterator<Map.Entry<Long, V>> newer = recent.tailMap(after, false).entrySet().iterator();
+        if (!newer.hasNext()) {
+            return older;
+        }
+        return new Iterator<Map.Entry<Long, V>>() {
+
+            private Map.Entry<Long, V> nextOlder = older.hasNext() ? older.next() : null;
+            private Map.Entry<Long, V> nextNewer = newer.hasNext() ? newer.next() : null;
+
+            @Override
+            public boolean hasNext() {
+                return nextOlder != null || nextNewer != null;
+            }
+
+            @Override
+            public Map.Entry<Long, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<Long, V> next;
+                if (nextNewer == null || (nextOlder != null && nextOlder.getKey() < nextNewer.getKey())) {
+                    next = nextOlder;
+                    nextOlder = older.hasNext() ? older.next() : null;
+                } else {
+                    if (nextOlder != null && nextOlder.getKey().equals(nextNewer.getKey())) {
+                        nextOlder = older.hasNext() ? older.next() : null;
+                    }
+                    next = nextNewer;
+                    nextNewer = newer.hasNext() ? newer.next() : null;
+                }
+                return new AbstractMap.SimpleImmutableEntry<>(next);
+            }
+        };
+    }
+}
@@ -0,0 +1,156 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.AuthorRepositoryImpl;
+import example.micronaut.domain.TransactionCallbacks;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.view.AuthorView;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.spring.tx.annotation.Transactional;
+
+import javax.inject.Singleton;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Author repository serving reads from the catalog snapshot
+ * スナップショットの作成前や、ワイルドカードを含む検索はDBで処理します
+ * 書き込みはDBで処理し、コミット後に変更した著者をスナップショットに反映します
+ * 削除した著者の書籍は、著者が存在しないものとしてスナップショットから読み出されなくなります
+ *
+ * @author Yudai Tokunaga
+ */
+@Primary
+@Singleton
+@Requires(property = "application.snapshot.enabled", value = "true")
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
+public class SnapshotAuthorRepository implements AuthorRepository {
+
+    private final AuthorRepositoryImpl delegate;
+    private final CatalogSnapshots snapshots;
+
+    public SnapshotAuthorRepository(AuthorRepositoryImpl delegate, CatalogSnapshots snapshots) {
+        this.delegate = delegate;
+        this.snapshots = snapshots;
+    }
+
+    @Override
+    public List<AuthorView> findAll(long after, int max) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findAll(after, max);
+        }
+        return version.get().findAuthors(after, max);
+    }
+
+    /**
+     * スナップショットは全ての属性を持つ読み取りモデルのため、選択された属性のみの読み込みはDBで処理します
+     */
+    @Override
+    public List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields) {
+        return delegate.findAll(after, max, fields);
+    }
+
+    @Override
+    public Optional<Author> findById(@NotNull Long id) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findById(id);
+        }
+        return version.get().findAuthor(id).map(SnapshotAuthorRepository::toEntity);
+    }
+
+    @Override
+    public List<Author> findAllById(@NotNull Collection<Long> ids) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findAllById(ids);
+        }
+        return new LinkedHashSet<>(ids).stream()
+                .map(id -> version.get().findAuthor(id))
+                .filter(Optional::isPresent)
+                .map(author -> toEntity(author.get()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long countAll() {
+        return delegate.countAll();
+    }
+
+    @Override
+    public List<AuthorView> findByKeyword(@NotNull String keyword) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent() || TitleIndex.hasWildcard(keyword)) {
+            return delegate.findByKeyword(keyword);
+        }
+        return version.get().findAuthorsByKeyword(keyword);
+    }
+
+    @Override
+    public List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields) {
+        return delegate.findByKeyword(keyword, fields);
+    }
+
+    @Override
+    public Map<String, Long> findIdsByName(@NotNull Collection<String> names) {
+        return delegate.findIdsByName(names);
+    }
+
+    @Override
+    @Transactional
+    public Author save(@NotBlank String name) {
+        Author author = delegate.save(name);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.authorsChanged(Collections.singleton(author.getId())));
+        return author;
+    }
+
+    @Override
+    @Transactional
+    public List<Author> saveAll(@NotNull Collection<String> names) {
+        List<Author> authors = delegate.saveAll(names);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.authorsChanged(authors.stream().map(Author::getId).collect(Collectors.toList())));
+        return authors;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(@NotNull Long id) {
+        delegate.deleteById(id);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.authorsChanged(Collections.singleton(id)));
+    }
+
+    @Override
+    @Transactional
+    public int deleteAllById(@NotNull Collection<Long> ids) {
+        int deleted = delegate.deleteAllById(ids);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.authorsChanged(ids));
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int update(@NotNull Long id, @NotBlank String name) {
+        int updated = delegate.update(id, name);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.authorsChanged(Collections.singleton(id)));
+        return updated;
+    }
+
+    private static Author toEntity(AuthorView view) {
+        Author author = new Author(view.getName());
+        author.setId(view.getId());
+        author.setVersion(view.getVersion());
+        author.setModifiedAt(view.getModifiedAt());
+        return author;
+    }
+}
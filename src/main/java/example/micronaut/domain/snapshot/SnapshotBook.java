@@ -0,0 +1,52 @@
+package example.micronaut.domain.snapshot;
+
+import java.time.Instant;
+
+/**
+ * Book stored in the catalog snapshot
+ * 著者は著者IDのみを保持し、読み出し時に同じ版の著者と組み合わせます
+ *
+ * @author Yudai Tokunaga
+ */
+final class SnapshotBook {
+
+    private final long id;
+    private final String isbn;
+    private final String title;
+    private final long version;
+    private final Instant modifiedAt;
+    private final long authorId;
+
+    SnapshotBook(long id, String isbn, String title, Long version, Instant modifiedAt, long authorId) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.version = version == null ? 0L : version;
+        this.modifiedAt = modifiedAt;
+        this.authorId = authorId;
+    }
+
+    long getId() {
+        return id;
+    }
+
+    String getIsbn() {
+        return isbn;
+    }
+
+    String getTitle() {
+        return title;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    long getAuthorId() {
+        return authorId;
+    }
+}
@@ -0,0 +1,212 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.BookRepositoryImpl;
+import example.micronaut.domain.TransactionCallbacks;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import example.micronaut.domain.index.TitleIndex;
+import example.micronaut.domain.projection.FieldSelection;
+import example.micronaut.domain.view.BookView;
+import io.micronaut.context.annotation.Primary;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.spring.tx.annotation.Transactional;
+import io.reactivex.Flowable;
+
+import javax.inject.Singleton;
+import javax.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Book repository serving reads from the catalog snapshot
+ * スナップショットの作成前や、ワイルドカードを含む検索はDBで処理します
+ * 書き込みはDBで処理し、コミット後に変更した書籍をスナップショットに反映します
+ *
+ * @author Yudai Tokunaga
+ */
+@Primary
+@Singleton
+@Requires(property = "application.snapshot.enabled", value = "true")
+@Requires(property = "r2dbc.default.enabled", notEquals = "true")
+public class SnapshotBookRepository implements BookRepository {
+
+    private final BookRepositoryImpl delegate;
+    private final CatalogSnapshots snapshots;
+    private final TitleIndex titleIndex;
+
+    public SnapshotBookRepository(BookRepositoryImpl delegate, CatalogSnapshots snapshots, TitleIndex titleIndex) {
+        this.delegate = delegate;
+        this.snapshots = snapshots;
+        this.titleIndex = titleIndex;
+    }
+
+    @Override
+    public List<BookView> findAll(long after, int max) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findAll(after, max);
+        }
+        return version.get().findBooks(after, max);
+    }
+
+    /**
+     * スナップショットは全ての属性を持つ読み取りモデルのため、選択された属性のみの読み込みはDBで処理します
+     */
+    @Override
+    public List<Map<String, Object>> findAll(long after, int max, @NotNull FieldSelection fields) {
+        return delegate.findAll(after, max, fields);
+    }
+
+    @Override
+    public Optional<Book> findById(@NotNull Long id) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findById(id);
+        }
+        return version.get().findBook(id).map(SnapshotBookRepository::toEntity);
+    }
+
+    @Override
+    public List<BookView> findByAuthor(@NotNull Long authorId, long after, int max) {
+        return delegate.findByAuthor(authorId, after, max);
+    }
+
+    @Override
+    public List<Map<String, Object>> findByAuthor(@NotNull Long authorId, long after, int max, @NotNull FieldSelection fields) {
+        return delegate.findByAuthor(authorId, after, max, fields);
+    }
+
+    @Override
+    public long countByAuthor(@NotNull Long authorId) {
+        return delegate.countByAuthor(authorId);
+    }
+
+    @Override
+    public Map<Long, Long> countAllByAuthor() {
+        return delegate.countAllByAuthor();
+    }
+
+    @Override
+    public Optional<Book> findByIsbn(long isbn) {
+        return delegate.findByIsbn(isbn);
+    }
+
+    @Override
+    public Map<Long, Book> findAllByIsbn(@NotNull Collection<Long> isbns) {
+        return delegate.findAllByIsbn(isbns);
+    }
+
+    @Override
+    public List<Book> findAllById(@NotNull Collection<Long> ids) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent()) {
+            return delegate.findAllById(ids);
+        }
+        return new LinkedHashSet<>(ids).stream()
+                .map(id -> version.get().findBook(id))
+                .filter(Optional::isPresent)
+                .map(book -> toEntity(book.get()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<BookView> findByKeyword(@NotNull String keyword) {
+        Optional<CatalogVersion> version = snapshots.current();
+        if (!version.isPresent() || TitleIndex.hasWildcard(keyword)) {
+            return delegate.findByKeyword(keyword);
+        }
+        return version.get().findBooksByKeyword(keyword, titleIndex.candidates(keyword));
+    }
+
+    /**
+     * 全ての書籍を同じ版からID順に読み出します
+     */
+    @Override
+    public List<Map<String, Object>> findByKeyword(@NotNull String keyword, @NotNull FieldSelection fields) {
+        return delegate.findByKeyword(keyword, fields);
+    }
+
+    @Override
+    public Flowable<BookView> streamAll() {
+        return Flowable.defer(() -> {
+            Optional<CatalogVersion> version = snapshots.current();
+            if (!version.isPresent()) {
+                return delegate.streamAll();
+            }
+            Iterable<BookView> books = version.get()::iterateBooks;
+            return Flowable.fromIterable(books);
+        });
+    }
+
+    @Override
+    public List<String> findExistingIsbns(@NotNull Collection<String> isbns) {
+        return delegate.findExistingIsbns(isbns);
+    }
+
+    @Override
+    @Transactional
+    public Book save(@NotNull String isbn, @NotNull String title, @NotNull Author author) {
+        Book book = delegate.save(isbn, title, author);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(Collections.singleton(book.getId())));
+        return book;
+    }
+
+    @Override
+    @Transactional
+    public List<Book> saveAll(@NotNull List<Book> books) {
+        List<Book> saved = delegate.saveAll(books);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(saved.stream().map(Book::getId).collect(Collectors.toList())));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(@NotNull Long id) {
+        delegate.deleteById(id);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(Collections.singleton(id)));
+    }
+
+    @Override
+    @Transactional
+    public int deleteAllById(@NotNull Collection<Long> ids) {
+        int deleted = delegate.deleteAllById(ids);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(ids));
+        return deleted;
+    }
+
+    @Override
+    @Transactional
+    public int update(@NotNull Long id, String isbn, String title, Long authorId) {
+        int updated = delegate.update(id, isbn, title, authorId);
+        TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(Collections.singleton(id)));
+        return updated;
+    }
+
+    @Override
+    @Transactional
+    public int patch(@NotNull Long id, String isbn, String title, Long authorId, Long expectedVersion) {
+        int updated = delegate.patch(id, isbn, title, authorId, expectedVersion);
+        if (updated > 0) {
+            TransactionCallbacks.afterCommitFirst(() -> snapshots.booksChanged(Collections.singleton(id)));
+        }
+        return updated;
+    }
+
+    private static Book toEntity(BookView view) {
+        Author author = new Author(view.getAuthor().getName());
+        author.setId(view.getAuthor().getId());
+        author.setVersion(view.getAuthor().getVersion());
+        author.setModifiedAt(view.getAuthor().getModifiedAt());
+        Book book = new Book(view.getIsbn(), view.getTitle(), author);
+        book.setId(view.getId());
+        book.setVersion(view.getVersion());
+        book.setModifiedAt(view.getModifiedAt());
+        return book;
+    }
+}
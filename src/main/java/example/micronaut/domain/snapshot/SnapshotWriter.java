@@ -0,0 +1,184 @@
+package example.micronaut.domain.snapshot;
+
+import example.micronaut.domain.view.AuthorView;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Writes a catalog snapshot file
+ * 著者をID順に全て書き込んだ後、書籍をID順に書き込みます
+ * <p>
+ * ファイルの構成は次の通りです
+ * <pre>
+ * ヘッダー(HEADER_SIZEバイト。件数、索引の位置、最終更新日時、バージョンの合計)
+ * 著者のレコード、書籍のレコード
+ * 著者の索引(ID、レコードの位置)をID順に並べたもの
+ * 書籍の索引(ID、レコードの位置)をID順に並べたもの
+ * </pre>
+ *
+ * @author Yudai Tokunaga
+ */
+class SnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x43415453;
+    static final int FORMAT = 2;
+    static final int HEADER_SIZE = 80;
+
+    /**
+     * 索引の1件のサイズ(IDのlongと位置のint)
+     */
+    static final int INDEX_ENTRY_SIZE = 12;
+
+    private final Path file;
+    private final DataOutputStream out;
+    private long position = HEADER_SIZE;
+
+    private long[] authorIds = new long[1024];
+    private int[] authorOffsets = new int[1024];
+    private int authorCount;
+    private Instant authorsModifiedAt;
+    private long authorVersions;
+
+    private long[] bookIds = new long[1024];
+    private int[] bookOffsets = new int[1024];
+    private int bookCount;
+    private Instant booksModifiedAt;
+    private long bookVersions;
+
+    SnapshotWriter(Path file) throws IOException {
+        this.file = file;
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.write(new byte[HEADER_SIZE]);
+    }
+
+    void writeAuthor(AuthorView author) throws IOException {
+        if (bookCount > 0) {
+            throw new IllegalStateException("Authors must be written before books");
+        }
+        if (authorCount == authorIds.length) {
+            authorIds = Arrays.copyOf(authorIds, authorCount * 2);
+            authorOffsets = Arrays.copyOf(authorOffsets, authorCount * 2);
+        }
+        authorIds[authorCount] = author.getId();
+        authorOffsets[authorCount] = offset();
+        authorCount++;
+        authorsModifiedAt = latest(authorsModifiedAt, author.getModifiedAt());
+        authorVersions += author.getVersion();
+
+        writeLong(author.getId());
+        writeLong(author.getVersion());
+        writeInstant(author.getModifiedAt());
+        writeString(author.getName());
+    }
+
+    void writeBook(SnapshotBook book) throws IOException {
+        if (bookCount == bookIds.length) {
+            bookIds = Arrays.copyOf(bookIds, bookCount * 2);
+            bookOffsets = Arrays.copyOf(bookOffsets, bookCount * 2);
+        }
+        bookIds[bookCount] = book.getId();
+        bookOffsets[bookCount] = offset();
+        bookCount++;
+        booksModifiedAt = latest(booksModifiedAt, book.getModifiedAt());
+        bookVersions += book.getVersion();
+
+        writeLong(book.getId());
+        writeLong(book.getVersion());
+        writeInstant(book.getModifiedAt());
+        writeLong(book.getAuthorId());
+        writeString(book.getIsbn());
+        writeString(book.getTitle());
+    }
+
+    /**
+     * 索引とヘッダーを書き込んでファイルを閉じます
+     */
+    void finish() throws IOException {
+        long authorIndex = position;
+        for (int i = 0; i < authorCount; i++) {
+            writeLong(authorIds[i]);
+            writeInt(authorOffsets[i]);
+        }
+        long bookIndex = position;
+        for (int i = 0; i < bookCount; i++) {
+            writeLong(bookIds[i]);
+            writeInt(bookOffsets[i]);
+        }
+        out.close();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(FORMAT)
+                .putInt(authorCount).putInt(bookCount)
+                .putLong(authorIndex).putLong(bookIndex);
+        putInstant(header, authorsModifiedAt);
+        putInstant(header, booksModifiedAt);
+        header.putLong(authorVersions).putLong(bookVersions);
+        header.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private int offset() {
+        if (position > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Catalog snapshot exceeds 2GB");
+        }
+        return (int) position;
+    }
+
+    private void writeLong(long value) throws IOException {
+        out.writeLong(value);
+        position += Long.BYTES;
+    }
+
+    private void writeInt(int value) throws IOException {
+        out.writeInt(value);
+        position += Integer.BYTES;
+    }
+
+    private void writeInstant(Instant instant) throws IOException {
+        writeLong(instant == null ? Long.MIN_VALUE : instant.getEpochSecond());
+        writeInt(instant == null ? 0 : instant.getNano());
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeInt(bytes.length);
+        out.write(bytes);
+        position += bytes.length;
+    }
+
+    private static void putInstant(ByteBuffer buffer, Instant instant) {
+        buffer.putLong(instant == null ? Long.MIN_VALUE : instant.getEpochSecond());
+        buffer.putInt(instant == null ? 0 : instant.getNano());
+    }
+
+    private static Instant latest(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        return a.isAfter(b) ? a : b;
+    }
+}
@@ -0,0 +1,211 @@
+package example.micronaut.domain.stats;
+
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In-memory number of books per author and of the whole catalog
+ * DBで数えた件数を読み込み、以降は書籍と著者の登録、書籍の著者の変更、削除のコミット後に増減します
+ * <p>
+ * 読み込みの完了前は件数を返却せず、呼び出し側でDBから数えます
+ * 読み込み後のずれはCatalogCountsReconcilerが定期的に数え直して修正します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class CatalogCounts {
+
+    private final Map<Long, Long> books = new ConcurrentHashMap<>();
+
+    private final AtomicLong totalBooks = new AtomicLong();
+
+    private final AtomicLong totalAuthors = new AtomicLong();
+
+    private volatile boolean ready;
+
+    /**
+     * DBで数えた件数を読み込みます
+     * 読み込み中の増減と混ざらないよう、増減と同じロックで置き換えます
+     *
+     * @param booksPerAuthor 著者IDをキーとする書籍の件数
+     * @param authors        著者の件数
+     * @return 読み込み前と件数が異なっていた著者の数
+     */
+    public synchronized int load(Map<Long, Long> booksPerAuthor, long authors) {
+        return replace(booksPerAuthor, authors);
+    }
+
+    /**
+     * 数え始めた時点から書き込みがコミットされていない場合に限り、DBで数えた件数を読み込みます
+     * リビジョンは増減と同じロックの中で比べるため、比べてから置き換えるまでの間にコミットされた増減が
+     * 数えた件数に重ねて加わることはありません
+     *
+     * @param booksPerAuthor 著者IDをキーとする書籍の件数
+     * @param authors        著者の件数
+     * @param countedAt      数え始める前に取得したリビジョンのタグ
+     * @param revision       現在のリビジョンのタグ
+     * @return 読み込み前と件数が異なっていた著者の数。リビジョンが変化していた場合は空
+     */
+    public synchronized OptionalInt load(Map<Long, Long> booksPerAuthor, long authors,
+                                         String countedAt, Supplier<String> revision) {
+        if (!countedAt.equals(revision.get())) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(replace(booksPerAuthor, authors));
+    }
+
+    private int replace(Map<Long, Long> booksPerAuthor, long authors) {
+        int drifted = 0;
+        for (Map.Entry<Long, Long> entry : booksPerAuthor.entrySet()) {
+            if (!entry.getValue().equals(books.get(entry.getKey()))) {
+                drifted++;
+            }
+        }
+        for (Long authorId : books.keySet()) {
+            if (!booksPerAuthor.containsKey(authorId)) {
+                drifted++;
+            }
+        }
+
+        books.clear();
+        books.putAll(booksPerAuthor);
+        totalBooks.set(booksPerAuthor.values().stream().mapToLong(Long::longValue).sum());
+        totalAuthors.set(authors);
+        ready = true;
+        return drifted;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 著者の書籍の件数を返却します
+     * 読み込みの完了前は空を返却します
+     *
+     * @return 書籍の件数
+     */
+    public OptionalLong get(long authorId) {
+        if (!ready) {
+            return OptionalLong.empty();
+        }
+        return OptionalLong.of(books.getOrDefault(authorId, 0L));
+    }
+
+    /**
+     * 全ての書籍の件数を返却します
+     *
+     * @return 書籍の件数
+     */
+    public OptionalLong totalBooks() {
+        return ready ? OptionalLong.of(totalBooks.get()) : OptionalLong.empty();
+    }
+
+    /**
+     * 全ての著者の件数を返却します
+     *
+     * @return 著者の件数
+     */
+    public OptionalLong totalAuthors() {
+        return ready ? OptionalLong.of(totalAuthors.get()) : OptionalLong.empty();
+    }
+
+    /**
+     * 書籍の件数の多い順に、最大n人の著者の件数を返却します
+     * 件数が同じ場合はIDの小さい著者を先にします
+     * 読み込みの完了前は空を返却します
+     *
+     * @return 著者IDと書籍の件数
+     */
+    public Optional<List<Map.Entry<Long, Long>>> top(int n) {
+        if (!ready) {
+            return Optional.empty();
+        }
+        return Optional.of(top(books, n));
+    }
+
+    /**
+     * 著者の書籍が登録されたことを記録します
+     */
+    public synchronized void added(long authorId) {
+        books.merge(authorId, 1L, Long::sum);
+        totalBooks.incrementAndGet();
+    }
+
+    /**
+     * 著者の書籍が削除されたことを記録します
+     */
+    public synchronized void removed(long authorId) {
+        books.computeIfPresent(authorId, (key, count) -> count > 1 ? count - 1 : null);
+        totalBooks.decrementAndGet();
+    }
+
+    /**
+     * 書籍の著者が変更されたことを記録します
+     */
+    public synchronized void moved(long fromAuthorId, long toAuthorId) {
+        if (fromAuthorId == toAuthorId) {
+            return;
+        }
+        removed(fromAuthorId);
+        added(toAuthorId);
+    }
+
+    /**
+     * 著者が登録されたことを記録します
+     */
+    public synchronized void authorsAdded(int authors) {
+        totalAuthors.addAndGet(authors);
+    }
+
+    /**
+     * 著者が書籍とともに削除されたことを記録します
+     * 登録済みでないIDが含まれていても構いません
+     *
+     * @param authorIds 削除を指定した著者ID
+     * @param deleted   実際に削除された著者の件数
+     */
+    public synchronized void authorsDeleted(Collection<Long> authorIds, int deleted) {
+        for (Long authorId : authorIds) {
+            Long count = books.remove(authorId);
+            if (count != null) {
+                totalBooks.addAndGet(-count);
+            }
+        }
+        totalAuthors.addAndGet(-deleted);
+    }
+
+    /**
+     * 件数の多い順に、最大n件を返却します
+     * 件数が同じ場合はキーの小さい順にします
+     *
+     * @return キーと件数
+     */
+    static List<Map.Entry<Long, Long>> top(Map<Long, Long> counts, int n) {
+
+        // 件数の少ない順に並ぶ大きさnのヒープで、上位n件だけを残す
+        Comparator<Map.Entry<Long, Long>> order = Map.Entry.<Long, Long>comparingByValue()
+                .thenComparing(Map.Entry.<Long, Long>comparingByKey().reversed());
+        PriorityQueue<Map.Entry<Long, Long>> heap = new PriorityQueue<>(n + 1, order);
+        for (Map.Entry<Long, Long> entry : counts.entrySet()) {
+            heap.add(Map.entry(entry.getKey(), entry.getValue()));
+            if (heap.size() > n) {
+                heap.poll();
+            }
+        }
+        List<Map.Entry<Long, Long>> top = new ArrayList<>(heap);
+        top.sort(order.reversed());
+        return top;
+    }
+}
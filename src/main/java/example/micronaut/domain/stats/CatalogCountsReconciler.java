@@ -0,0 +1,89 @@
+package example.micronaut.domain.stats;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.TableRevisions;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.scheduling.annotation.Scheduled;
+import io.reactivex.Completable;
+import io.reactivex.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * Loads the catalog counts at startup and recounts them periodically
+ * 数え直しは著者ごとの件数を1回のgroup byで数え、増減の取りこぼしによるずれを修正します
+ * <p>
+ * 数えている間に書き込みがコミットされた場合は、その結果を使わずにやり直します
+ * リビジョンの比較は件数の置き換えと同じロックの中で行います
+ * 起動時は書き込みが続いても最後の結果を読み込み、残ったずれは次の数え直しで修正します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class CatalogCountsReconciler implements ApplicationEventListener<StartupEvent> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CatalogCountsReconciler.class);
+
+    /**
+     * 書き込みが続く場合に数え直しを試みる回数
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final CatalogCounts counts;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final TableRevisions revisions;
+
+    public CatalogCountsReconciler(CatalogCounts counts,
+                                   BookRepository bookRepository,
+                                   AuthorRepository authorRepository,
+                                   TableRevisions revisions) {
+        this.counts = counts;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+        this.revisions = revisions;
+    }
+
+    @Override
+    public void onApplicationEvent(StartupEvent event) {
+        Completable.fromAction(this::reconcile)
+                .subscribeOn(Schedulers.io())
+                .subscribe(
+                        () -> LOG.info("Catalog counts are ready"),
+                        e -> LOG.error("Failed to count the catalog", e));
+    }
+
+    /**
+     * 書籍と著者を数え直し、メモリ上の件数を置き換えます
+     */
+    @Scheduled(fixedDelay = "${application.statistics.reconcile-interval:10m}",
+            initialDelay = "${application.statistics.reconcile-interval:10m}")
+    public void reconcile() {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            String before = revisions.localTag();
+            Map<Long, Long> books = bookRepository.countAllByAuthor();
+            long authors = authorRepository.countAll();
+            boolean initial = !counts.isReady();
+            if (initial && attempt == MAX_ATTEMPTS - 1) {
+                counts.load(books, authors);
+                return;
+            }
+
+            OptionalInt drifted = counts.load(books, authors, before, revisions::localTag);
+            if (drifted.isEmpty()) {
+                continue;
+            }
+            if (!initial && drifted.getAsInt() > 0) {
+                LOG.warn("Repaired book counts of {} authors", drifted.getAsInt());
+            }
+            return;
+        }
+        LOG.info("Skipped recounting the catalog because of concurrent writes");
+    }
+}
@@ -0,0 +1,87 @@
+package example.micronaut.domain.stats;
+
+import example.micronaut.domain.AuthorRepository;
+import example.micronaut.domain.BookRepository;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.view.AuthorBookCount;
+import example.micronaut.domain.view.CatalogSummary;
+
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.stream.Collectors;
+
+/**
+ * Catalog statistics served from the in-memory counts
+ * 件数の読み込みが完了するまではDBで数えます
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class CatalogStatistics {
+
+    private final CatalogCounts counts;
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+
+    public CatalogStatistics(CatalogCounts counts, BookRepository bookRepository, AuthorRepository authorRepository) {
+        this.counts = counts;
+        this.bookRepository = bookRepository;
+        this.authorRepository = authorRepository;
+    }
+
+    /**
+     * 書籍と著者の件数を返却します
+     *
+     * @return 書籍と著者の件数
+     */
+    public CatalogSummary summary() {
+        OptionalLong books = counts.totalBooks();
+        OptionalLong authors = counts.totalAuthors();
+        if (books.isPresent() && authors.isPresent()) {
+            return new CatalogSummary(books.getAsLong(), authors.getAsLong());
+        }
+        long total = bookRepository.countAllByAuthor().values().stream().mapToLong(Long::longValue).sum();
+        return new CatalogSummary(total, authorRepository.countAll());
+    }
+
+    /**
+     * 著者の書籍の件数を返却します
+     * 著者が登録済みでない場合は空を返却します
+     *
+     * @return 著者の書籍の件数
+     */
+    public Optional<AuthorBookCount> author(Long id) {
+        return authorRepository.findById(id)
+                .map(author -> new AuthorBookCount(author.getId(), author.getName(), bookRepository.countByAuthor(id)));
+    }
+
+    /**
+     * 書籍の件数の多い順に、最大n人の著者を返却します
+     * 件数が同じ場合はIDの小さい著者を先にします
+     *
+     * @return 著者の書籍の件数
+     */
+    public List<AuthorBookCount> top(int n) {
+        List<Map.Entry<Long, Long>> top = counts.top(n)
+                .orElseGet(() -> CatalogCounts.top(bookRepository.countAllByAuthor(), n));
+
+        // 著者名は上位の著者分だけを1回のクエリで取得する
+        Map<Long, String> names = new HashMap<>();
+        for (Author author : authorRepository.findAllById(top.stream().map(Map.Entry::getKey).collect(Collectors.toList()))) {
+            names.put(author.getId(), author.getName());
+        }
+        List<AuthorBookCount> authors = new ArrayList<>(top.size());
+        for (Map.Entry<Long, Long> entry : top) {
+            String name = names.get(entry.getKey());
+            if (name != null) {
+                authors.add(new AuthorBookCount(entry.getKey(), name, entry.getValue()));
+            }
+        }
+        return authors;
+    }
+}
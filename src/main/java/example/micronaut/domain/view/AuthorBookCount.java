@@ -0,0 +1,33 @@
+package example.micronaut.domain.view;
+
+/**
+ * Number of books of an author
+ *
+ * @author Yudai Tokunaga
+ */
+public final class AuthorBookCount {
+
+    private final Long id;
+
+    private final String name;
+
+    private final long books;
+
+    public AuthorBookCount(Long id, String name, long books) {
+        this.id = id;
+        this.name = name;
+        this.books = books;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getBooks() {
+        return books;
+    }
+}
@@ -0,0 +1,58 @@
+package example.micronaut.domain.view;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * Immutable read model of author
+ *
+ * @author Yudai Tokunaga
+ */
+public final class AuthorView {
+
+    private final Long id;
+
+    private final String name;
+
+    private final long version;
+
+    private final Instant modifiedAt;
+
+    public AuthorView(Long id, String name, Long version, Instant modifiedAt) {
+        this.id = id;
+        this.name = name;
+        this.version = version == null ? 0L : version;
+        this.modifiedAt = modifiedAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("AuthorView{");
+        sb.append("id=");
+        sb.append(id);
+        sb.append(", name='");
+        sb.append(name);
+        sb.append("'}");
+        return sb.toString();
+    }
+}
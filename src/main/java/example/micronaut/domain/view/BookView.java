@@ -0,0 +1,78 @@
+package example.micronaut.domain.view;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
+
+/**
+ * Immutable read model of book
+ * エンティティと同じ形式でJSONに変換されます
+ *
+ * @author Yudai Tokunaga
+ */
+public final class BookView {
+
+    private final Long id;
+
+    private final String isbn;
+
+    private final String title;
+
+    private final long version;
+
+    private final Instant modifiedAt;
+
+    private final AuthorView author;
+
+    public BookView(Long id, String isbn, String title, Long version, Instant modifiedAt,
+                    Long authorId, String authorName, Long authorVersion, Instant authorModifiedAt) {
+        this.id = id;
+        this.isbn = isbn;
+        this.title = title;
+        this.version = version == null ? 0L : version;
+        this.modifiedAt = modifiedAt;
+        this.author = new AuthorView(authorId, authorName, authorVersion, authorModifiedAt);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getIsbn() {
+        return isbn;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    @JsonIgnore
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public AuthorView getAuthor() {
+        return author;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("BookView{");
+        sb.append("id=");
+        sb.append(id);
+        sb.append(", isbn='");
+        sb.append(isbn);
+        sb.append("', title='");
+        sb.append(title);
+        sb.append("', author='");
+        sb.append(author);
+        sb.append("'}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,26 @@
+package example.micronaut.domain.view;
+
+/**
+ * Numbers of books and authors in the catalog
+ *
+ * @author Yudai Tokunaga
+ */
+public final class CatalogSummary {
+
+    private final long books;
+
+    private final long authors;
+
+    public CatalogSummary(long books, long authors) {
+        this.books = books;
+        this.authors = authors;
+    }
+
+    public long getBooks() {
+        return books;
+    }
+
+    public long getAuthors() {
+        return authors;
+    }
+}
@@ -0,0 +1,28 @@
+package example.micronaut.domain.view;
+
+import java.time.Instant;
+
+/**
+ * Version token and last modified time of a resource
+ *
+ * @author Yudai Tokunaga
+ */
+public final class Revision {
+
+    private final String tag;
+
+    private final Instant lastModified;
+
+    public Revision(String tag, Instant lastModified) {
+        this.tag = tag;
+        this.lastModified = lastModified;
+    }
+
+    public String getTag() {
+        return tag;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,57 @@
+package example.micronaut.executor;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.annotation.Value;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+import io.micronaut.scheduling.TaskExecutors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replaces the I/O executor with virtual threads
+ * コントローラーのブロッキングな処理を、リクエストごとの仮想スレッドで実行します
+ * 同時に実行する処理はDBのコネクションプールの大きさまでに制限し、
+ * 残りはコネクションを取得せずに仮想スレッド上で待機させます
+ * <p>
+ * 仮想スレッドはJava 21以降で使えます
+ * それより前のJavaでは警告を出力し、既存のスレッドプールをそのまま使います
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+@Requires(property = "application.execution-mode", value = "virtual")
+public class VirtualThreadExecutorListener implements BeanCreatedEventListener<ExecutorService> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadExecutorListener.class);
+
+    private final int concurrency;
+
+    public VirtualThreadExecutorListener(@Value("${datasources.default.maximum-pool-size:10}") int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    @Override
+    public ExecutorService onCreated(BeanCreatedEvent<ExecutorService> event) {
+        if (!TaskExecutors.IO.equals(event.getBeanIdentifier().getName())) {
+            return event.getBean();
+        }
+
+        ExecutorService virtualThreads;
+        try {
+            // Java 11でもコンパイルできるよう、リフレクションで呼び出す
+            virtualThreads = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOG.warn("Virtual threads are not available on Java {}, keeping the I/O thread pool", System.getProperty("java.version"));
+            return event.getBean();
+        }
+
+        event.getBean().shutdown();
+        LOG.info("Running blocking requests on virtual threads, {} at a time", concurrency);
+        return new BoundedExecutorService(virtualThreads, concurrency);
+    }
+}
@@ -0,0 +1,33 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.configuration.jdbc.hikari.DatasourceConfiguration;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+
+import javax.inject.Provider;
+import javax.inject.Singleton;
+
+/**
+ * Registers the Hikari pool metrics
+ * コネクションプールの作成前に設定する必要があるため、データソースの設定の作成時に登録します
+ * 使用中、待機中、取得待ちのコネクション数と、コネクションの取得にかかった時間を公開します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class HikariMetricsListener implements BeanCreatedEventListener<DatasourceConfiguration> {
+
+    private final Provider<MeterRegistry> meterRegistry;
+
+    public HikariMetricsListener(Provider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public DatasourceConfiguration onCreated(BeanCreatedEvent<DatasourceConfiguration> event) {
+        DatasourceConfiguration configuration = event.getBean();
+        configuration.setMetricRegistry(meterRegistry.get());
+        return configuration;
+    }
+}
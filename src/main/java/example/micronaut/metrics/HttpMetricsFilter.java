@@ -0,0 +1,30 @@
+package example.micronaut.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+
+import javax.inject.Singleton;
+
+/**
+ * Publishes latency histograms of HTTP requests
+ * ルートごとのレイテンシを、Prometheusでパーセンタイルを集計できるヒストグラムとして公開します
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class HttpMetricsFilter implements MeterFilter {
+
+    private static final String HTTP_SERVER_REQUESTS = "http.server.requests";
+
+    @Override
+    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+        if (!id.getName().startsWith(HTTP_SERVER_REQUESTS)) {
+            return config;
+        }
+        return DistributionStatisticConfig.builder()
+                .percentilesHistogram(true)
+                .build()
+                .merge(config);
+    }
+}
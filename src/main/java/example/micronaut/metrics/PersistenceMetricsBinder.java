@@ -0,0 +1,134 @@
+package example.micronaut.metrics;
+
+import example.micronaut.domain.cache.AuthorCache;
+import example.micronaut.domain.cache.BookCache;
+import example.micronaut.domain.cache.SnapshotCache;
+import example.micronaut.domain.coalesce.CoalescingInterceptor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.micronaut.scheduling.annotation.Scheduled;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds Hibernate statistics, the snapshot caches and read coalescing to the meter registry
+ * Hibernateの統計はhibernate.generate_statisticsがtrueの場合のみ集計されます
+ * <p>
+ * どのクエリが遅いかを確認できるよう、実行されたJPQLごとに最大実行時間と平均実行時間を公開します
+ * 属性の選択や部分更新のJPQLは組み合わせごとに異なるため、公開するJPQLは最初のMAX_QUERIES種類までとします
+ *
+ * @author Yudai Tokunaga
+ */
+@Singleton
+public class PersistenceMetricsBinder implements MeterBinder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PersistenceMetricsBinder.class);
+
+    /**
+     * メトリクスを公開するJPQLの最大種類数
+     */
+    private static final int MAX_QUERIES = 100;
+
+    private final SessionFactory sessionFactory;
+    private final BookCache bookCache;
+    private final AuthorCache authorCache;
+    private final CoalescingInterceptor coalescing;
+
+    private final List<MeterRegistry> registries = new CopyOnWriteArrayList<>();
+    private final Set<String> boundQueries = ConcurrentHashMap.newKeySet();
+    private volatile boolean capped;
+
+    public PersistenceMetricsBinder(SessionFactory sessionFactory,
+                                    BookCache bookCache,
+                                    AuthorCache authorCache,
+                                    CoalescingInterceptor coalescing) {
+        this.sessionFactory = sessionFactory;
+        this.bookCache = bookCache;
+        this.authorCache = authorCache;
+        this.coalescing = coalescing;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        HibernateMetrics.monitor(registry, sessionFactory, "default");
+        bindCache(registry, "books", bookCache);
+        bindCache(registry, "authors", authorCache);
+        FunctionCounter.builder("repository.reads.executed", coalescing, CoalescingInterceptor::executions)
+                .description("The number of repository reads executed")
+                .register(registry);
+        FunctionCounter.builder("repository.reads.coalesced", coalescing, CoalescingInterceptor::coalesced)
+                .description("The number of repository reads served by an identical read in flight")
+                .register(registry);
+        registries.add(registry);
+        bindQueries();
+    }
+
+    /**
+     * 新しく実行されたJPQLのメトリクスを登録します
+     */
+    @Scheduled(fixedDelay = "1m")
+    public void bindQueries() {
+        if (registries.isEmpty()) {
+            return;
+        }
+        Statistics statistics = sessionFactory.getStatistics();
+        for (String query : statistics.getQueries()) {
+            if (boundQueries.contains(query)) {
+                continue;
+            }
+            if (boundQueries.size() >= MAX_QUERIES) {
+                if (!capped) {
+                    capped = true;
+                    LOG.warn("Stopped binding query metrics after {} distinct queries", MAX_QUERIES);
+                }
+                return;
+            }
+            boundQueries.add(query);
+            for (MeterRegistry registry : registries) {
+                TimeGauge.builder("hibernate.query.execution.max", statistics,
+                        TimeUnit.MILLISECONDS, s -> s.getQueryStatistics(query).getExecutionMaxTime())
+                        .tag("query", query)
+                        .description("The slowest execution time of the query")
+                        .register(registry);
+                TimeGauge.builder("hibernate.query.execution.avg", statistics,
+                        TimeUnit.MILLISECONDS, s -> s.getQueryStatistics(query).getExecutionAvgTime())
+                        .tag("query", query)
+                        .description("The average execution time of the query")
+                        .register(registry);
+                FunctionCounter.builder("hibernate.query.executions", statistics,
+                        s -> s.getQueryStatistics(query).getExecutionCount())
+                        .tag("query", query)
+                        .description("The number of executions of the query")
+                        .register(registry);
+            }
+        }
+    }
+
+    private static void bindCache(MeterRegistry registry, String name, SnapshotCache<?> cache) {
+        FunctionCounter.builder("snapshot.cache.hits", cache, c -> c.stats().getHits())
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("snapshot.cache.misses", cache, c -> c.stats().getMisses())
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("snapshot.cache.evictions", cache, c -> c.stats().getEvictions())
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("snapshot.cache.size", cache, c -> c.stats().getSize())
+                .tag("cache", name)
+                .register(registry);
+    }
+}
@@ -0,0 +1,18 @@
+package example.micronaut.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Passes the SQL Hibernate is about to prepare to the slow query log
+ * SQLは変更せずにそのまま返却します
+ *
+ * @author Yudai Tokunaga
+ */
+public class SlowQueryInspector implements StatementInspector {
+
+    @Override
+    public String inspect(String sql) {
+        SlowQueryLog.prepared(sql);
+        return sql;
+    }
+}
@@ -0,0 +1,43 @@
+package example.micronaut.metrics;
+
+import org.hibernate.BaseSessionEventListener;
+
+/**
+ * Measures the execution time of each JDBC statement and batch
+ * Hibernateがセッションごとに生成するため、準備したSQLと計測の開始時刻をフィールドで保持します
+ * SQLは文の実行が終わるたびに破棄し、別のステートメントの実行時間と対応付けないようにします
+ * バッチは準備したステートメントを続けて実行するため、次の準備まで同じSQLを使います
+ *
+ * @author Yudai Tokunaga
+ */
+public class SlowQueryListener extends BaseSessionEventListener {
+
+    private String sql;
+    private long start;
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        sql = SlowQueryLog.takePrepared();
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        SlowQueryLog.executed(sql, System.nanoTime() - start);
+        sql = null;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        start = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        SlowQueryLog.executed(sql, System.nanoTime() - start);
+    }
+}
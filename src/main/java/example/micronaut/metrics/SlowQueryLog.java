@@ -0,0 +1,84 @@
+package example.micronaut.metrics;
+
+import io.micronaut.context.annotation.Context;
+import io.micronaut.context.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Logs SQL statements slower than the threshold and a sampled fraction of the others
+ * SQLの文字列はSlowQueryInspectorがHibernateから受け取り、同じスレッドで続けて準備を始めるセッションのSlowQueryListenerに渡します
+ * SlowQueryListenerはセッションごとにSQLを保持し、実行時間と合わせてここに記録します
+ * どちらもHibernateが生成するため、設定はこのBeanの作成時に静的なフィールドへ反映します
+ * <p>
+ * バインドパラメータの値は出力せず、SQLに埋め込まれたリテラルも伏せ字にします
+ *
+ * @author Yudai Tokunaga
+ */
+@Context
+public class SlowQueryLog {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SlowQueryLog.class);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+    private static final ThreadLocal<String> PREPARED = new ThreadLocal<>();
+
+    private static volatile long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(100);
+    private static volatile double sampleRate = 0.0;
+
+    public SlowQueryLog(@Value("${application.slow-query.threshold:100ms}") Duration threshold,
+                        @Value("${application.slow-query.sample-rate:0}") double sampleRate) {
+        SlowQueryLog.thresholdNanos = threshold.toNanos();
+        SlowQueryLog.sampleRate = sampleRate;
+    }
+
+    /**
+     * これから準備するSQLを、準備を始めるセッションに渡すまで保持します
+     */
+    static void prepared(String sql) {
+        PREPARED.set(sql);
+    }
+
+    /**
+     * preparedで保持したSQLを取り出し、スレッドから削除します
+     * Hibernateはステートメントの準備を始める直前に、同じスレッドでSlowQueryInspectorを呼び出します
+     *
+     * @return 準備するSQL。保持していない場合はnull
+     */
+    static String takePrepared() {
+        String sql = PREPARED.get();
+        PREPARED.remove();
+        return sql;
+    }
+
+    /**
+     * SQLの実行時間を記録し、閾値以上の場合、または抽出対象の場合に出力します
+     */
+    static void executed(String sql, long nanos) {
+        if (sql == null) {
+            return;
+        }
+        boolean slow = nanos >= thresholdNanos;
+        if (!slow && (sampleRate <= 0.0 || ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+            return;
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (slow) {
+            LOG.warn("Slow query ({} ms): {}", millis, redact(sql));
+        } else {
+            LOG.info("Sampled query ({} ms): {}", millis, redact(sql));
+        }
+    }
+
+    static String redact(String sql) {
+        String redacted = STRING_LITERAL.matcher(sql).replaceAll("?");
+        return NUMBER_LITERAL.matcher(redacted).replaceAll("?");
+    }
+}
@@ -1,9 +1,11 @@
 package example.micronaut.controller;
 
+import example.micronaut.domain.cache.SnapshotCacheTest;
+import example.micronaut.metrics.SlowQueryLogTest;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 
 @RunWith(Suite.class)
-@Suite.SuiteClasses({AuthorControllerTest.class, BookControllerTest.class})
+@Suite.SuiteClasses({AuthorControllerTest.class, BookControllerTest.class, StatementCountTest.class, ReactiveControllerTest.class, MetricsTest.class, ImportControllerTest.class, SnapshotControllerTest.class, StatisticsControllerTest.class, SlowQueryLogTest.class, SnapshotCacheTest.class})
 public class AllTests {
 }
\ No newline at end of file
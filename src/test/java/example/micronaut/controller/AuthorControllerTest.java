@@ -12,16 +12,22 @@ import io.micronaut.http.HttpStatus;
 import io.micronaut.http.client.HttpClient;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
 import io.micronaut.runtime.server.EmbeddedServer;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
 /**
@@ -71,6 +77,77 @@ public class AuthorControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
     }
 
+    @Test
+    public void 著者が変更されていなければ304() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response);
+
+        // ETagとLast-Modifiedが返却される
+        response = client.toBlocking().exchange(HttpRequest.GET("/authors/" + authorId), Author.class);
+        String etag = response.header(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertNotNull(response.header(HttpHeaders.LAST_MODIFIED));
+
+        // 同じETagで取得すると304
+        request = HttpRequest.GET("/authors/" + authorId).header(HttpHeaders.IF_NONE_MATCH, etag);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+
+        // 一覧も同じETagなら304
+        response = client.toBlocking().exchange(HttpRequest.GET("/authors"), Argument.of(List.class, Author.class));
+        String listEtag = response.header(HttpHeaders.ETAG);
+        request = HttpRequest.GET("/authors").header(HttpHeaders.IF_NONE_MATCH, listEtag);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatus());
+
+        // 更新するとETagが変わり200
+        request = HttpRequest.PUT("/authors", new AuthorUpdateCommand(authorId, "Hiroshi Mori"));
+        client.toBlocking().exchange(request);
+        request = HttpRequest.GET("/authors/" + authorId).header(HttpHeaders.IF_NONE_MATCH, etag);
+        response = client.toBlocking().exchange(request, Author.class);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertNotEquals(etag, response.header(HttpHeaders.ETAG));
+        request = HttpRequest.GET("/authors").header(HttpHeaders.IF_NONE_MATCH, listEtag);
+        response = client.toBlocking().exchange(request, Argument.of(List.class, Author.class));
+        assertEquals(HttpStatus.OK, response.getStatus());
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void APIを通さない書き込みでも一覧のETagが変わる() {
+        HttpResponse response = client.toBlocking().exchange(HttpRequest.GET("/authors"), Argument.of(List.class, Author.class));
+        String listEtag = response.header(HttpHeaders.ETAG);
+
+        // 他のノードによる書き込みとして、このノードのリポジトリを通さずに登録する
+        StatelessSession session = server.getApplicationContext().getBean(SessionFactory.class).openStatelessSession();
+        Long authorId;
+        try {
+            Transaction transaction = session.beginTransaction();
+            Author author = new Author("森見登美彦");
+            author.setModifiedAt(Instant.now());
+            authorId = (Long) session.insert(author);
+            transaction.commit();
+        } finally {
+            session.close();
+        }
+
+        HttpRequest request = HttpRequest.GET("/authors").header(HttpHeaders.IF_NONE_MATCH, listEtag);
+        response = client.toBlocking().exchange(request, Argument.of(List.class, Author.class));
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertNotEquals(listEtag, response.header(HttpHeaders.ETAG));
+
+        // 本ケースで作成したエンティティを削除
+        client.toBlocking().exchange(HttpRequest.DELETE("/authors/" + authorId));
+    }
+
     @Test(expected = HttpClientResponseException.class)
     public void 著者の登録が重複したら409() {
 
@@ -1,6 +1,7 @@
 package example.micronaut.controller;
 
 import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.AuthorUpdateCommand;
 import example.micronaut.controller.request.BookSaveCommand;
 import example.micronaut.controller.request.BookUpdateCommand;
 import example.micronaut.domain.entity.Author;
@@ -20,9 +21,15 @@ import org.junit.Test;
 
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -93,6 +100,48 @@ public class BookControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
     }
 
+    @Test
+    public void 書籍と著者をまとめて削除() {
+
+        // 他のケースの残りに左右されないよう、登録前の件数からの増減を確認する
+        int booksBefore = count("/books");
+        int authorsBefore = count("/authors");
+
+        // 2人の著者と、それぞれの書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long firstAuthorId = entityId(response, "authors");
+        request = HttpRequest.POST("/authors", new AuthorSaveCommand("森見登美彦"));
+        response = client.toBlocking().exchange(request);
+        Long secondAuthorId = entityId(response, "authors");
+
+        request = HttpRequest.POST("/books/batch", Arrays.asList(
+                new BookSaveCommand("1", "すべてがFになる", firstAuthorId),
+                new BookSaveCommand("2", "冷たい密室と博士たち", firstAuthorId),
+                new BookSaveCommand("3", "夜は短し歩けよ乙女", secondAuthorId)));
+        List<Map> results = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        Long firstBookId = ((Number) results.get(0).get("id")).longValue();
+        Long secondBookId = ((Number) results.get(1).get("id")).longValue();
+
+        // 書籍をIDの一覧で削除(存在しないIDは無視される)
+        request = HttpRequest.DELETE("/books?ids=" + firstBookId + "," + secondBookId + ",999");
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        assertEquals(booksBefore + 1, count("/books"));
+
+        // 著者をIDの一覧で削除すると、著者の書籍も削除される
+        request = HttpRequest.DELETE("/authors?ids=" + firstAuthorId + "," + secondAuthorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        assertEquals(booksBefore, count("/books"));
+        assertEquals(authorsBefore, count("/authors"));
+        request = HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("夜は短し", StandardCharsets.UTF_8));
+        List books = client.toBlocking().retrieve(request, Argument.of(List.class, Book.class));
+        assertEquals(0, books.size());
+    }
+
     @Test(expected = HttpClientResponseException.class)
     public void 書籍を存在しない著者で登録したら409() {
 
@@ -149,6 +198,40 @@ public class BookControllerTest {
         }
     }
 
+    @Test
+    public void 書籍をまとめて登録() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 登録できる書籍、ISBNが重複する書籍、存在しない著者の書籍をまとめて登録
+        request = HttpRequest.POST("/books/batch", Arrays.asList(
+                new BookSaveCommand("1", "すべてがFになる", authorId),
+                new BookSaveCommand("2", "黒猫の三角", authorId),
+                new BookSaveCommand("1", "冷たい密室と博士たち", authorId),
+                new BookSaveCommand("3", "笑わない数学者", 999L)));
+        List<Map> results = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        assertEquals(4, results.size());
+        assertEquals("CREATED", results.get(0).get("status"));
+        assertEquals("CREATED", results.get(1).get("status"));
+        assertEquals("CONFLICT", results.get(2).get("status"));
+        assertEquals("UNKNOWN_AUTHOR", results.get(3).get("status"));
+
+        // 登録された書籍を取得できる
+        Long bookId = ((Number) results.get(0).get("id")).longValue();
+        request = HttpRequest.GET("/books/" + bookId);
+        Book book = client.toBlocking().retrieve(request, Book.class);
+        assertEquals("すべてがFになる", book.getTitle());
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
     @Test
     public void 書籍の一覧を取得() {
 
@@ -209,6 +292,138 @@ public class BookControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
     }
 
+    @Test
+    public void 書籍の一覧をページングして取得() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 書籍を3件登録
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        assertEquals(HttpStatus.CREATED, client.toBlocking().exchange(request).getStatus());
+        request = HttpRequest.POST("/books", new BookSaveCommand("2", "黒猫の三角", authorId));
+        assertEquals(HttpStatus.CREATED, client.toBlocking().exchange(request).getStatus());
+        request = HttpRequest.POST("/books", new BookSaveCommand("3", "彼女は一人で歩くのか", authorId));
+        assertEquals(HttpStatus.CREATED, client.toBlocking().exchange(request).getStatus());
+
+        // 1ページ目を取得
+        request = HttpRequest.GET("/books?max=2");
+        HttpResponse<List> page = client.toBlocking().exchange(request, Argument.of(List.class, Book.class));
+        assertEquals(2, page.body().size());
+        String link = page.header(HttpHeaders.LINK);
+        assertNotNull(link);
+
+        // Linkヘッダーに従って2ページ目を取得
+        request = HttpRequest.GET(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        page = client.toBlocking().exchange(request, Argument.of(List.class, Book.class));
+        assertEquals(1, page.body().size());
+        assertNull(page.header(HttpHeaders.LINK));
+
+        // 不正なカーソルは400
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books?after=invalid"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 著者の書籍をページングして取得() {
+
+        // 2人の著者と、それぞれの書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long firstAuthorId = entityId(response, "authors");
+        request = HttpRequest.POST("/authors", new AuthorSaveCommand("森見登美彦"));
+        response = client.toBlocking().exchange(request);
+        Long secondAuthorId = entityId(response, "authors");
+
+        request = HttpRequest.POST("/books/batch", Arrays.asList(
+                new BookSaveCommand("1", "すべてがFになる", firstAuthorId),
+                new BookSaveCommand("2", "夜は短し歩けよ乙女", secondAuthorId),
+                new BookSaveCommand("3", "冷たい密室と博士たち", firstAuthorId),
+                new BookSaveCommand("4", "笑わない数学者", firstAuthorId)));
+        client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+
+        // 1ページ目は著者の書籍のみをID順に返却し、件数を指定した場合は全体の件数を返却する
+        request = HttpRequest.GET("/authors/" + firstAuthorId + "/books?max=2&count=true");
+        HttpResponse<List> page = client.toBlocking().exchange(request, Argument.of(List.class, Book.class));
+        assertEquals(2, page.body().size());
+        assertEquals("すべてがFになる", ((Book) page.body().get(0)).getTitle());
+        assertEquals("冷たい密室と博士たち", ((Book) page.body().get(1)).getTitle());
+        assertEquals("3", page.header("X-Total-Count"));
+        String link = page.header(HttpHeaders.LINK);
+        assertNotNull(link);
+
+        // Linkヘッダーに従って2ページ目を取得
+        request = HttpRequest.GET(link.substring(link.indexOf('<') + 1, link.indexOf('>')));
+        page = client.toBlocking().exchange(request, Argument.of(List.class, Book.class));
+        assertEquals(1, page.body().size());
+        assertEquals("笑わない数学者", ((Book) page.body().get(0)).getTitle());
+        assertNull(page.header(HttpHeaders.LINK));
+        assertNull(page.header("X-Total-Count"));
+
+        // 書籍を別の著者に変更すると、件数にも反映される
+        Long movedBookId = ((Book) page.body().get(0)).getId();
+        request = HttpRequest.PATCH("/books", new BookUpdateCommand(movedBookId, null, null, secondAuthorId));
+        client.toBlocking().exchange(request);
+        request = HttpRequest.GET("/authors/" + secondAuthorId + "/books?count=true");
+        page = client.toBlocking().exchange(request, Argument.of(List.class, Book.class));
+        assertEquals(2, page.body().size());
+        assertEquals("2", page.header("X-Total-Count"));
+
+        // 存在しない著者は404
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/authors/" + (secondAuthorId + 1000) + "/books"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors?ids=" + firstAuthorId + "," + secondAuthorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 書籍をNDJSONでエクスポート() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 書籍を2件登録
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        assertEquals(HttpStatus.CREATED, client.toBlocking().exchange(request).getStatus());
+        request = HttpRequest.POST("/books", new BookSaveCommand("2", "黒猫の三角", authorId));
+        assertEquals(HttpStatus.CREATED, client.toBlocking().exchange(request).getStatus());
+
+        // 1行1書籍で著者名付きで出力される
+        request = HttpRequest.GET("/books/export");
+        String body = client.toBlocking().retrieve(request, String.class);
+        String[] lines = body.trim().split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("すべてがFになる"));
+        assertTrue(lines[0].contains("森博嗣"));
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
     @Test
     public void 書籍をキーワードで検索() {
 
@@ -317,6 +532,14 @@ public class BookControllerTest {
         assertEquals("THE PERFECT INSIDER", after.getTitle());
         assertEquals(authorId2, after.getAuthor().getId());
 
+        // 更新後のタイトルで検索でき、更新前のタイトルでは検索されない
+        request = HttpRequest.GET("/books/search?keyword=PERFECT");
+        List books = client.toBlocking().retrieve(request, Argument.of(List.class, Book.class));
+        assertEquals(1, books.size());
+        request = HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("すべて", StandardCharsets.UTF_8));
+        books = client.toBlocking().retrieve(request, Argument.of(List.class, Book.class));
+        assertEquals(0, books.size());
+
         // 本ケースで作成したエンティティを削除
         request = HttpRequest.DELETE("/authors/" + authorId1);
         response = client.toBlocking().exchange(request);
@@ -326,6 +549,311 @@ public class BookControllerTest {
         assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
     }
 
+    @Test
+    public void 書籍を部分更新() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 書籍を登録してETagを取得
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        response = client.toBlocking().exchange(request);
+        Long bookId = entityId(response, "books");
+        response = client.toBlocking().exchange(HttpRequest.GET("/books/" + bookId), Book.class);
+        String etag = response.header(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        // タイトルのみを更新すると、他の項目は変わらない
+        request = HttpRequest.PATCH("/books", new BookUpdateCommand(bookId, null, "THE PERFECT INSIDER", null))
+                .header(HttpHeaders.IF_MATCH, etag);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        Book after = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("1", after.getIsbn());
+        assertEquals("THE PERFECT INSIDER", after.getTitle());
+        assertEquals(authorId, after.getAuthor().getId());
+
+        // 更新前のETagでは更新できない
+        try {
+            request = HttpRequest.PATCH("/books", new BookUpdateCommand(bookId, "2", null, null))
+                    .header(HttpHeaders.IF_MATCH, etag);
+            client.toBlocking().exchange(request);
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.PRECONDITION_FAILED, e.getResponse().getStatus());
+        }
+
+        // 存在しない著者には更新できない
+        try {
+            request = HttpRequest.PATCH("/books", new BookUpdateCommand(bookId, null, null, 99L));
+            client.toBlocking().exchange(request);
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.CONFLICT, e.getResponse().getStatus());
+        }
+
+        // 存在しない書籍は更新できない
+        try {
+            request = HttpRequest.PATCH("/books", new BookUpdateCommand(bookId + 1000, "2", null, null));
+            client.toBlocking().exchange(request);
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 書籍をISBNで取得() {
+
+        // 著者と、ISBN-13とISBN-10の書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long authorId = entityId(response, "authors");
+        request = HttpRequest.POST("/books/batch", Arrays.asList(
+                new BookSaveCommand("978-4-06-263941-5", "すべてがFになる", authorId),
+                new BookSaveCommand("406263953X", "冷たい密室と博士たち", authorId)));
+        client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+
+        // ISBN-10で登録した書籍はISBN-13で、ISBN-13で登録した書籍はISBN-10で取得できる
+        Book book = client.toBlocking().retrieve(HttpRequest.GET("/books/isbn/4-06-263941-6"), Book.class);
+        assertEquals("すべてがFになる", book.getTitle());
+        book = client.toBlocking().retrieve(HttpRequest.GET("/books/isbn/9784062639538"), Book.class);
+        assertEquals("冷たい密室と博士たち", book.getTitle());
+
+        // 検査数字が正しくない場合は400
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/isbn/9784062639416"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getResponse().getStatus());
+        }
+
+        // 登録されていない場合は404
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/isbn/9784101000015"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+
+        // まとめて取得すると、入力と同じ順序で1件ごとの結果が返る
+        request = HttpRequest.POST("/books/isbn", Arrays.asList("4-06-263941-6", "abc", "979-10-12345-67-8", "406263953X"));
+        List<Map> results = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        assertEquals(4, results.size());
+        assertEquals("FOUND", results.get(0).get("status"));
+        assertEquals("9784062639415", results.get(0).get("normalized"));
+        assertEquals("すべてがFになる", ((Map) results.get(0).get("book")).get("title"));
+        assertEquals("INVALID", results.get(1).get("status"));
+        assertEquals("NOT_FOUND", results.get(2).get("status"));
+        assertEquals("9791012345678", results.get(2).get("normalized"));
+        assertEquals("FOUND", results.get(3).get("status"));
+
+        // ISBNを変更すると、変更前のISBNでは取得できない
+        Long bookId = book.getId();
+        request = HttpRequest.PATCH("/books", new BookUpdateCommand(bookId, "9784061827981", null, null));
+        client.toBlocking().exchange(request);
+        book = client.toBlocking().retrieve(HttpRequest.GET("/books/isbn/4061827987"), Book.class);
+        assertEquals(bookId, book.getId());
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/isbn/406263953X"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        // 著者とともに削除された書籍は取得できない
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/isbn/4-06-263941-6"));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void 書籍と著者をIDでまとめて取得() {
+
+        // 著者と書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("宮部みゆき"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long authorId = entityId(response, "authors");
+        request = HttpRequest.POST("/books", new BookSaveCommand("9784101369181", "火車", authorId));
+        response = client.toBlocking().exchange(request);
+        Long firstId = entityId(response, "books");
+        request = HttpRequest.POST("/books", new BookSaveCommand("9784101369341", "模倣犯", authorId));
+        response = client.toBlocking().exchange(request);
+        Long secondId = entityId(response, "books");
+        Long unknownId = secondId + 1000;
+
+        // 指定した順序で返り、重複は1件にまとめられ、見つからないIDは別に返る
+        Map result = client.toBlocking().retrieve(
+                HttpRequest.GET("/books?ids=" + secondId + "," + unknownId + "," + firstId + "," + secondId), Map.class);
+        List<Map> items = (List<Map>) result.get("items");
+        assertEquals(2, items.size());
+        assertEquals("模倣犯", items.get(0).get("title"));
+        assertEquals("火車", items.get(1).get("title"));
+        assertEquals("宮部みゆき", ((Map) items.get(1).get("author")).get("name"));
+        assertEquals(Arrays.asList(unknownId.intValue()), result.get("missing"));
+
+        // 2回目はキャッシュから返り、結果は変わらない
+        result = client.toBlocking().retrieve(HttpRequest.POST("/books/ids", Arrays.asList(firstId, secondId)), Map.class);
+        items = (List<Map>) result.get("items");
+        assertEquals(firstId.intValue(), items.get(0).get("id"));
+        assertEquals(secondId.intValue(), items.get(1).get("id"));
+        assertTrue(((List) result.get("missing")).isEmpty());
+
+        // 著者も同様に取得できる
+        result = client.toBlocking().retrieve(HttpRequest.POST("/authors/ids", Arrays.asList(unknownId, authorId)), Map.class);
+        items = (List<Map>) result.get("items");
+        assertEquals(1, items.size());
+        assertEquals("宮部みゆき", items.get(0).get("name"));
+        assertEquals(Arrays.asList(unknownId.intValue()), result.get("missing"));
+
+        // 空のリストは400
+        try {
+            client.toBlocking().exchange(HttpRequest.POST("/books/ids", Arrays.asList()));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        // 削除後は見つからないIDとして返る
+        result = client.toBlocking().retrieve(HttpRequest.GET("/books?ids=" + firstId), Map.class);
+        assertTrue(((List) result.get("items")).isEmpty());
+        assertEquals(Arrays.asList(firstId.intValue()), result.get("missing"));
+    }
+
+    @Test
+    public void 書籍と著者を属性を絞って取得() {
+
+        // 著者と書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("伊坂幸太郎"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long authorId = entityId(response, "authors");
+        request = HttpRequest.POST("/books", new BookSaveCommand("9784101250243", "重力ピエロ", authorId));
+        response = client.toBlocking().exchange(request);
+        Long bookId = entityId(response, "books");
+
+        // 指定した属性とIDのみが返る
+        List<Map> books = client.toBlocking().retrieve(HttpRequest.GET("/books?fields=title"), Argument.of(List.class, Map.class));
+        assertEquals(1, books.size());
+        assertEquals(2, books.get(0).size());
+        assertEquals(bookId.intValue(), books.get(0).get("id"));
+        assertEquals("重力ピエロ", books.get(0).get("title"));
+
+        // 著者の属性は著者の下に返り、著者名のみを指定できる
+        books = client.toBlocking().retrieve(HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("ピエロ", StandardCharsets.UTF_8) + "&fields=author.name"), Argument.of(List.class, Map.class));
+        assertEquals(1, books.size());
+        Map author = (Map) books.get(0).get("author");
+        assertEquals(1, author.size());
+        assertEquals("伊坂幸太郎", author.get("name"));
+
+        books = client.toBlocking().retrieve(HttpRequest.GET("/authors/" + authorId + "/books?fields=isbn,author"), Argument.of(List.class, Map.class));
+        assertEquals("9784101250243", books.get(0).get("isbn"));
+        assertEquals(authorId.intValue(), ((Map) books.get(0).get("author")).get("id"));
+        assertNull(books.get(0).get("title"));
+
+        // 1件の取得でも属性を絞れる
+        Map book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId + "?fields=isbn"), Map.class);
+        assertEquals(2, book.size());
+        assertEquals("9784101250243", book.get("isbn"));
+        Map found = client.toBlocking().retrieve(HttpRequest.GET("/authors/" + authorId + "?fields=name"), Map.class);
+        assertEquals("伊坂幸太郎", found.get("name"));
+        List<Map> authors = client.toBlocking().retrieve(HttpRequest.GET("/authors?fields=id"), Argument.of(List.class, Map.class));
+        assertEquals(1, authors.get(0).size());
+
+        // 属性の組み合わせごとにETagが異なり、別の組み合わせのETagでは304にならない
+        HttpResponse<Map> titleOnly = client.toBlocking().exchange(HttpRequest.GET("/books/" + bookId + "?fields=title"), Map.class);
+        String titleEtag = titleOnly.header(HttpHeaders.ETAG);
+        request = HttpRequest.GET("/books/" + bookId + "?fields=isbn").header(HttpHeaders.IF_NONE_MATCH, titleEtag);
+        HttpResponse<Map> isbnOnly = client.toBlocking().exchange(request, Map.class);
+        assertEquals(HttpStatus.OK, isbnOnly.getStatus());
+        assertEquals("9784101250243", isbnOnly.body().get("isbn"));
+        assertNotEquals(titleEtag, isbnOnly.header(HttpHeaders.ETAG));
+        request = HttpRequest.GET("/books/" + bookId + "?fields=title").header(HttpHeaders.IF_NONE_MATCH, titleEtag);
+        assertEquals(HttpStatus.NOT_MODIFIED, client.toBlocking().exchange(request).getStatus());
+
+        // 属性の指定順が異なっても同じ組み合わせであれば同じETagになる
+        String ordered = client.toBlocking().exchange(HttpRequest.GET("/books?fields=isbn,title"), List.class).header(HttpHeaders.ETAG);
+        String reversed = client.toBlocking().exchange(HttpRequest.GET("/books?fields=title,isbn,title"), List.class).header(HttpHeaders.ETAG);
+        assertEquals(ordered, reversed);
+        request = HttpRequest.GET("/books").header(HttpHeaders.IF_NONE_MATCH, ordered);
+        assertEquals(HttpStatus.OK, client.toBlocking().exchange(request, List.class).getStatus());
+
+        // JSONに出力されない属性や、存在しない属性は400
+        for (String uri : Arrays.asList("/books?fields=version", "/books?fields=foo", "/books?fields=author.books",
+                "/authors?fields=books", "/books/" + bookId + "?fields=modifiedAt")) {
+            try {
+                client.toBlocking().exchange(HttpRequest.GET(uri));
+                fail(uri);
+            } catch (HttpClientResponseException e) {
+                assertEquals(uri, HttpStatus.BAD_REQUEST, e.getResponse().getStatus());
+            }
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 著者名の変更が書籍に反映される() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 書籍を登録して取得
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        response = client.toBlocking().exchange(request);
+        Long bookId = entityId(response, "books");
+        request = HttpRequest.GET("/books/" + bookId);
+        Book before = client.toBlocking().retrieve(request, Book.class);
+        assertEquals("森博嗣", before.getAuthor().getName());
+
+        // 著者名を変更すると、取得済みの書籍にも反映される
+        request = HttpRequest.PUT("/authors", new AuthorUpdateCommand(authorId, "Hiroshi Mori"));
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        request = HttpRequest.GET("/books/" + bookId);
+        Book after = client.toBlocking().retrieve(request, Book.class);
+        assertEquals("Hiroshi Mori", after.getAuthor().getName());
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        // 削除した書籍は取得できない
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/" + bookId));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+    }
+
     @Test(expected = HttpClientResponseException.class)
     public void 書籍の更新が重複したら409() {
 
@@ -420,6 +948,21 @@ public class BookControllerTest {
         }
     }
 
+    /**
+     * 一覧のLinkヘッダーをたどって、全てのページの件数を数えます
+     */
+    private int count(String uri) {
+        int count = 0;
+        String next = uri;
+        while (next != null) {
+            HttpResponse<List> page = client.toBlocking().exchange(HttpRequest.GET(next), List.class);
+            count += page.body().size();
+            String link = page.header(HttpHeaders.LINK);
+            next = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+        return count;
+    }
+
     private Long entityId(HttpResponse response, String entity) {
         String path = "/" + entity + "/";
         String value = response.header(HttpHeaders.LOCATION);
@@ -0,0 +1,96 @@
+package example.micronaut.controller;
+
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class ImportControllerTest {
+
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setupServer() {
+        server = ApplicationContext
+                .build()
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void CSVから書籍をインポート() throws InterruptedException {
+
+        // 列名、新しい著者の書籍、カンマを含む書籍名、ISBNの重複、列の不足を含むCSV
+        String csv = "isbn,title,authorName\n"
+                + "1,すべてがFになる,森博嗣\n"
+                + "2,\"笑わない数学者, MATHEMATICAL GOODBYE\",森博嗣\n"
+                + "3,夜は短し歩けよ乙女,森見登美彦\r\n"
+                + "1,冷たい密室と博士たち,森博嗣\n"
+                + "4,四畳半神話大系\n";
+        HttpRequest request = HttpRequest.POST("/imports", csv).contentType("text/csv");
+        HttpResponse<Map> response = client.toBlocking().exchange(request, Map.class);
+        assertEquals(HttpStatus.ACCEPTED, response.getStatus());
+        Map job = response.body();
+        assertNotNull(job.get("id"));
+
+        // 完了するまで進捗を取得する
+        String location = response.header(HttpHeaders.LOCATION);
+        assertNotNull(location);
+        Map status = client.toBlocking().retrieve(HttpRequest.GET(location), Map.class);
+        for (int i = 0; i < 100 && "RUNNING".equals(status.get("state")); i++) {
+            Thread.sleep(100);
+            status = client.toBlocking().retrieve(HttpRequest.GET(location), Map.class);
+        }
+        assertEquals(job.get("id"), status.get("id"));
+        assertEquals("COMPLETED", status.get("state"));
+        assertEquals(5, ((Number) status.get("rows")).intValue());
+        assertEquals(3, ((Number) status.get("created")).intValue());
+        assertEquals(2, ((Number) status.get("errors")).intValue());
+
+        // 書籍と著者が登録されている
+        request = HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("MATHEMATICAL GOODBYE", StandardCharsets.UTF_8));
+        List<Map> books = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        assertEquals(1, books.size());
+        assertEquals("笑わない数学者, MATHEMATICAL GOODBYE", books.get(0).get("title"));
+
+        request = HttpRequest.GET("/authors/search?keyword=" + URLEncoder.encode("森", StandardCharsets.UTF_8));
+        List<Map> authors = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        assertEquals(2, authors.size());
+
+        // 本ケースで作成したエンティティを削除
+        String ids = authors.stream().map(author -> String.valueOf(author.get("id"))).collect(Collectors.joining(","));
+        client.toBlocking().exchange(HttpRequest.DELETE("/authors?ids=" + ids));
+    }
+}
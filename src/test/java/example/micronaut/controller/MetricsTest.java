@@ -0,0 +1,150 @@
+package example.micronaut.controller;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.domain.coalesce.Coalesced;
+import example.micronaut.domain.coalesce.CoalescingInterceptor;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class MetricsTest {
+
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setupServer() {
+        server = ApplicationContext
+                .build()
+                .properties(Collections.singletonMap("jpa.default.properties.hibernate.generate_statistics", true))
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void リクエストとコネクションプールとHibernateのメトリクスを取得() {
+
+        // 著者を登録して取得
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        String location = response.header(HttpHeaders.LOCATION);
+        client.toBlocking().exchange(HttpRequest.GET(location));
+
+        // Prometheus形式のメトリクスを取得
+        String metrics = client.toBlocking().retrieve(HttpRequest.GET("/prometheus"));
+        assertTrue(metrics.contains("http_server_requests_seconds_bucket"));
+        assertTrue(metrics.contains("uri=\"/authors/{id}\""));
+        assertTrue(metrics.contains("hikaricp_connections_pending"));
+        assertTrue(metrics.contains("hikaricp_connections_acquire_seconds"));
+        assertTrue(metrics.contains("hibernate_"));
+        assertTrue(metrics.contains("snapshot_cache_hits_total"));
+        assertTrue(metrics.contains("repository_reads_coalesced_total"));
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE(location);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 同時の同じ読み込みは結果を共有する() throws Exception {
+
+        // 最初の呼び出しを読み込みの途中で止めておく
+        BlockingLoader loader = server.getApplicationContext().getBean(BlockingLoader.class);
+        CoalescingInterceptor coalescing = server.getApplicationContext().getBean(CoalescingInterceptor.class);
+        long executions = coalescing.executions();
+        long coalesced = coalescing.coalesced();
+        int followers = 15;
+        ExecutorService executor = Executors.newFixedThreadPool(followers + 1);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            results.add(executor.submit(() -> loader.load("森")));
+            assertTrue(loader.entered.await(10, TimeUnit.SECONDS));
+
+            // 実行中の間に同じ引数で呼び出すと、全て最初の呼び出しに合流する
+            for (int i = 0; i < followers; i++) {
+                results.add(executor.submit(() -> loader.load("森")));
+            }
+            for (int i = 0; i < 100 && coalescing.coalesced() - coalesced < followers; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(followers, coalescing.coalesced() - coalesced);
+
+            // 最初の呼び出しを完了させると、全ての呼び出しが同じ結果を返却する
+            loader.release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("森", result.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loader.loads.get());
+            assertEquals(1, coalescing.executions() - executions);
+        } finally {
+            loader.release.countDown();
+            executor.shutdown();
+        }
+
+        // 完了した結果は保持しないため、完了後の呼び出しは改めて実行される
+        assertEquals("森", loader.load("森"));
+        assertEquals(2, loader.loads.get());
+    }
+
+    /**
+     * releaseされるまで完了しない読み込み
+     */
+    @Singleton
+    public static class BlockingLoader {
+
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Coalesced
+        public String load(String keyword) {
+            loads.incrementAndGet();
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            return keyword;
+        }
+    }
+}
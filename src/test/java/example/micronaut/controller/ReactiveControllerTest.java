@@ -0,0 +1,180 @@
+package example.micronaut.controller;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.AuthorUpdateCommand;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.controller.request.BookUpdateCommand;
+import example.micronaut.domain.entity.Author;
+import example.micronaut.domain.entity.Book;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * R2DBCによる実装で、著者と書籍のAPIが同じように動作することを確認します
+ * <p>
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class ReactiveControllerTest {
+
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setupServer() {
+        server = ApplicationContext
+                .build()
+                .properties(Collections.singletonMap("r2dbc.default.enabled", true))
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void 著者と書籍の登録と更新と削除() {
+
+        // 著者を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long authorId = entityId(response, "authors");
+
+        // 書籍を登録
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.CREATED, response.getStatus());
+        Long bookId = entityId(response, "books");
+
+        Book book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("すべてがFになる", book.getTitle());
+        assertEquals("森博嗣", book.getAuthor().getName());
+
+        // 一覧と検索
+        List books = client.toBlocking().retrieve(HttpRequest.GET("/books"), Argument.of(List.class, Book.class));
+        assertEquals(1, books.size());
+        books = client.toBlocking().retrieve(HttpRequest.GET("/books/search?keyword=F"), Argument.of(List.class, Book.class));
+        assertEquals(1, books.size());
+        List authors = client.toBlocking().retrieve(HttpRequest.GET("/authors/search?keyword=" + URLEncoder.encode("森", StandardCharsets.UTF_8)), Argument.of(List.class, Author.class));
+        assertEquals(1, authors.size());
+
+        // 著者名と書籍のタイトルを更新
+        request = HttpRequest.PUT("/authors", new AuthorUpdateCommand(authorId, "Hiroshi Mori"));
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        request = HttpRequest.PUT("/books", new BookUpdateCommand(bookId, null, "THE PERFECT INSIDER", null));
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+
+        book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("1", book.getIsbn());
+        assertEquals("THE PERFECT INSIDER", book.getTitle());
+        assertEquals("Hiroshi Mori", book.getAuthor().getName());
+
+        // 著者を削除すると書籍も削除される
+        request = HttpRequest.DELETE("/authors/" + authorId);
+        response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/books/" + bookId));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+    }
+
+    @Test
+    public void 書籍の登録で著者がなければ400で重複したら409() {
+
+        // 存在しない著者で登録
+        try {
+            client.toBlocking().exchange(HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", 999L)));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, e.getResponse().getStatus());
+        }
+
+        // 著者と書籍を登録
+        HttpResponse response = client.toBlocking().exchange(HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣")));
+        Long authorId = entityId(response, "authors");
+        client.toBlocking().exchange(HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId)));
+
+        // 同じISBNで登録
+        try {
+            client.toBlocking().exchange(HttpRequest.POST("/books", new BookSaveCommand("1", "黒猫の三角", authorId)));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.CONFLICT, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        response = client.toBlocking().exchange(HttpRequest.DELETE("/authors/" + authorId));
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    @Test
+    public void 提供しない機能は501を返却する() {
+        List<HttpRequest<?>> requests = Arrays.asList(
+                HttpRequest.GET("/books/export"),
+                HttpRequest.GET("/books/isbn/1"),
+                HttpRequest.POST("/books/isbn", Collections.singletonList("1")),
+                HttpRequest.POST("/books/ids", Collections.singletonList(1L)),
+                HttpRequest.POST("/books/batch", Collections.emptyList()),
+                HttpRequest.PATCH("/books", new BookUpdateCommand(1L, null, "黒猫の三角", null)),
+                HttpRequest.GET("/books?ids=1"),
+                HttpRequest.GET("/books/1?fields=title"),
+                HttpRequest.POST("/authors/ids", Collections.singletonList(1L)),
+                HttpRequest.GET("/authors/1/books"),
+                HttpRequest.GET("/authors?fields=name"));
+        for (HttpRequest<?> request : requests) {
+            try {
+                client.toBlocking().exchange(request);
+                fail(request.getMethod() + " " + request.getUri());
+            } catch (HttpClientResponseException e) {
+                assertEquals(request.getMethod() + " " + request.getUri(),
+                        HttpStatus.NOT_IMPLEMENTED, e.getResponse().getStatus());
+            }
+        }
+    }
+
+    private Long entityId(HttpResponse response, String entity) {
+        String path = "/" + entity + "/";
+        String value = response.header(HttpHeaders.LOCATION);
+        if (value == null) {
+            return null;
+        }
+        int index = value.indexOf(path);
+        if (index != -1) {
+            return Long.valueOf(value.substring(index + path.length()));
+        }
+        return null;
+    }
+}
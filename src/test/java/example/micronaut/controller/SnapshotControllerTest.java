@@ -0,0 +1,165 @@
+package example.micronaut.controller;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.AuthorUpdateCommand;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.domain.entity.Book;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * スナップショットから読み出す場合も、著者と書籍のAPIが同じように動作することを確認します
+ * <p>
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class SnapshotControllerTest {
+
+    private static Path directory;
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setupServer() throws Exception {
+        directory = Files.createTempDirectory("snapshot");
+        start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        stop();
+        if (directory != null) {
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+    @Test
+    public void スナップショットから読み出し再起動後も使う() throws Exception {
+
+        // 著者と書籍を登録
+        HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("森博嗣"));
+        HttpResponse response = client.toBlocking().exchange(request);
+        Long authorId = entityId(response, "authors");
+        request = HttpRequest.POST("/books", new BookSaveCommand("1", "すべてがFになる", authorId));
+        response = client.toBlocking().exchange(request);
+        Long bookId = entityId(response, "books");
+        request = HttpRequest.POST("/books", new BookSaveCommand("2", "冷たい密室と博士たち", authorId));
+        response = client.toBlocking().exchange(request);
+        Long otherBookId = entityId(response, "books");
+
+        // 書き込みがすぐに読み出しに反映される
+        Book book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("すべてがFになる", book.getTitle());
+        List books = client.toBlocking().retrieve(HttpRequest.GET("/books"), Argument.of(List.class, Book.class));
+        assertEquals(2, books.size());
+
+        client.toBlocking().exchange(HttpRequest.PUT("/authors", new AuthorUpdateCommand(authorId, "Hiroshi Mori")));
+        book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals("Hiroshi Mori", book.getAuthor().getName());
+
+        client.toBlocking().exchange(HttpRequest.DELETE("/books/" + bookId));
+        request = HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("密室", StandardCharsets.UTF_8));
+        books = client.toBlocking().retrieve(request, Argument.of(List.class, Book.class));
+        assertEquals(1, books.size());
+
+        // 再起動すると、停止時に書き出したスナップショットをそのまま使う
+        stop();
+        start();
+        books = client.toBlocking().retrieve(HttpRequest.GET("/books"), Argument.of(List.class, Book.class));
+        assertEquals(1, books.size());
+        assertEquals("Hiroshi Mori", ((Book) books.get(0)).getAuthor().getName());
+
+        // 停止中に更新日時を変えずにSQLで更新しても、バージョンの合計の違いで作り直す
+        stop();
+        try (Connection connection = DriverManager.getConnection("jdbc:h2:mem:default", "sa", "pass");
+             PreparedStatement statement = connection.prepareStatement(
+                     "update book set title = ?, version = version + 1 where id = ?")) {
+            statement.setString(1, "Doctors in Isolated Room");
+            statement.setLong(2, otherBookId);
+            assertEquals(1, statement.executeUpdate());
+        }
+        start();
+        book = client.toBlocking().retrieve(HttpRequest.GET("/books/" + otherBookId), Book.class);
+        assertEquals("Doctors in Isolated Room", book.getTitle());
+
+        // 著者を削除すると、著者の書籍も読み出されなくなる
+        response = client.toBlocking().exchange(HttpRequest.DELETE("/authors/" + authorId));
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+        books = client.toBlocking().retrieve(HttpRequest.GET("/books"), Argument.of(List.class, Book.class));
+        assertEquals(0, books.size());
+    }
+
+    private static void start() throws InterruptedException {
+        Path file = directory.resolve("catalog.snapshot");
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("application.single-node.enabled", true);
+        properties.put("application.snapshot.enabled", true);
+        properties.put("application.snapshot.path", file.toString());
+        server = ApplicationContext
+                .build()
+                .properties(properties)
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+
+        // スナップショットの作成を待つ
+        for (int i = 0; i < 100 && !Files.exists(file); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(Files.exists(file));
+    }
+
+    private static void stop() {
+        if (server != null) {
+            server.stop();
+            server = null;
+        }
+        if (client != null) {
+            client.stop();
+            client = null;
+        }
+    }
+
+    private static Long entityId(HttpResponse response, String entity) {
+        String path = "/" + entity + "/";
+        String value = response.header(HttpHeaders.LOCATION);
+        if (value == null) {
+            return null;
+        }
+        int index = value.indexOf(path);
+        if (index != -1) {
+            return Long.valueOf(value.substring(index + path.length()));
+        }
+        return null;
+    }
+}
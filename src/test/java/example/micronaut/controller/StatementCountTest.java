@@ -0,0 +1,146 @@
+package example.micronaut.controller;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.domain.entity.Book;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 書籍の読み取りで発行されるSQLの数が、書籍や著者の件数によらず一定であることを確認します
+ * 著者ごとに追加のSQLが発行される(N+1)と失敗します
+ * <p>
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class StatementCountTest {
+
+    /**
+     * 1リクエストで許容するSQLの数
+     */
+    private static final long MAX_STATEMENTS = 2;
+
+    private static final int AUTHORS = 5;
+
+    private static EmbeddedServer server;
+    private static HttpClient client;
+    private static Statistics statistics;
+    private static List<Long> authorIds = new ArrayList<>();
+    private static Long bookId;
+
+    @BeforeClass
+    public static void setupServer() {
+        server = ApplicationContext
+                .build()
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+        statistics = server.getApplicationContext().getBean(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+
+        // 著者ごとに書籍を登録
+        for (int i = 0; i < AUTHORS; i++) {
+            HttpRequest request = HttpRequest.POST("/authors", new AuthorSaveCommand("著者" + i));
+            HttpResponse response = client.toBlocking().exchange(request);
+            Long authorId = entityId(response, "authors");
+            authorIds.add(authorId);
+
+            request = HttpRequest.POST("/books", new BookSaveCommand(String.valueOf(i), "書籍" + i, authorId));
+            response = client.toBlocking().exchange(request);
+            bookId = entityId(response, "books");
+        }
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            // 本クラスで作成したエンティティを削除
+            for (Long authorId : authorIds) {
+                client.toBlocking().exchange(HttpRequest.DELETE("/authors/" + authorId));
+            }
+            statistics.setStatisticsEnabled(false);
+            server.stop();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Before
+    public void clearStatistics() {
+        statistics.clear();
+    }
+
+    @Test
+    public void 書籍の一覧() {
+        List books = client.toBlocking().retrieve(HttpRequest.GET("/books"), Argument.of(List.class, Book.class));
+        assertEquals(AUTHORS, books.size());
+        assertStatements();
+    }
+
+    @Test
+    public void 書籍の検索() {
+        List books = client.toBlocking().retrieve(HttpRequest.GET("/books/search?keyword=" + URLEncoder.encode("書籍", StandardCharsets.UTF_8)), Argument.of(List.class, Book.class));
+        assertEquals(AUTHORS, books.size());
+        assertStatements();
+    }
+
+    @Test
+    public void 書籍の取得() {
+        HttpResponse response = client.toBlocking().exchange(HttpRequest.GET("/books/" + bookId), Book.class);
+        assertEquals(HttpStatus.OK, response.getStatus());
+        assertStatements();
+    }
+
+    @Test
+    public void 書籍のエクスポート() {
+        String body = client.toBlocking().retrieve(HttpRequest.GET("/books/export"));
+        assertEquals(AUTHORS, body.split("\n").length);
+        assertStatements();
+    }
+
+    @Test
+    public void 著者の一覧() {
+        List authors = client.toBlocking().retrieve(HttpRequest.GET("/authors"), List.class);
+        assertEquals(AUTHORS, authors.size());
+        assertStatements();
+    }
+
+    private static void assertStatements() {
+        long count = statistics.getPrepareStatementCount();
+        assertTrue("SQL statements: " + count, count <= MAX_STATEMENTS);
+    }
+
+    private static Long entityId(HttpResponse response, String entity) {
+        String path = "/" + entity + "/";
+        String value = response.header(HttpHeaders.LOCATION);
+        if (value == null) {
+            return null;
+        }
+        int index = value.indexOf(path);
+        if (index != -1) {
+            return Long.valueOf(value.substring(index + path.length()));
+        }
+        return null;
+    }
+}
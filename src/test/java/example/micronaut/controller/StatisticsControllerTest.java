@@ -0,0 +1,121 @@
+package example.micronaut.controller;
+
+import example.micronaut.controller.request.AuthorSaveCommand;
+import example.micronaut.controller.request.BookSaveCommand;
+import example.micronaut.controller.request.BookUpdateCommand;
+import example.micronaut.domain.stats.CatalogCountsReconciler;
+import io.micronaut.context.ApplicationContext;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.client.HttpClient;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.runtime.server.EmbeddedServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * テストケースの前提条件: authorテーブル、bookテーブルにはレコードが存在しないこと
+ *
+ * @author Yudai Tokunaga
+ */
+public class StatisticsControllerTest {
+
+    private static EmbeddedServer server;
+    private static HttpClient client;
+
+    @BeforeClass
+    public static void setupServer() {
+        server = ApplicationContext
+                .build()
+                .run(EmbeddedServer.class);
+        client = server.getApplicationContext().createBean(HttpClient.class, server.getURL());
+    }
+
+    @AfterClass
+    public static void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+        if (client != null) {
+            client.stop();
+        }
+    }
+
+    @Test
+    public void 書籍と著者の件数を取得() {
+
+        // 3人の著者と、それぞれ2冊、1冊、0冊の書籍を登録
+        Long firstAuthorId = saveAuthor("森博嗣");
+        Long secondAuthorId = saveAuthor("森見登美彦");
+        Long thirdAuthorId = saveAuthor("西尾維新");
+        HttpRequest request = HttpRequest.POST("/books/batch", Arrays.asList(
+                new BookSaveCommand("1", "すべてがFになる", firstAuthorId),
+                new BookSaveCommand("2", "冷たい密室と博士たち", firstAuthorId),
+                new BookSaveCommand("3", "夜は短し歩けよ乙女", secondAuthorId)));
+        List<Map> results = client.toBlocking().retrieve(request, Argument.of(List.class, Map.class));
+        Long movedBookId = ((Number) results.get(1).get("id")).longValue();
+
+        Map summary = client.toBlocking().retrieve(HttpRequest.GET("/statistics"), Map.class);
+        assertEquals(3, ((Number) summary.get("books")).intValue());
+        assertEquals(3, ((Number) summary.get("authors")).intValue());
+
+        // 書籍の件数の多い順に返却し、書籍のない著者は含まない
+        List<Map> top = client.toBlocking().retrieve(HttpRequest.GET("/statistics/authors?top=5"), Argument.of(List.class, Map.class));
+        assertEquals(2, top.size());
+        assertEquals("森博嗣", top.get(0).get("name"));
+        assertEquals(2, ((Number) top.get(0).get("books")).intValue());
+        assertEquals("森見登美彦", top.get(1).get("name"));
+
+        // 書籍の著者を変更すると件数が移る
+        request = HttpRequest.PATCH("/books", new BookUpdateCommand(movedBookId, null, null, thirdAuthorId));
+        client.toBlocking().exchange(request);
+        Map author = client.toBlocking().retrieve(HttpRequest.GET("/statistics/authors/" + firstAuthorId), Map.class);
+        assertEquals(1, ((Number) author.get("books")).intValue());
+        author = client.toBlocking().retrieve(HttpRequest.GET("/statistics/authors/" + thirdAuthorId), Map.class);
+        assertEquals(1, ((Number) author.get("books")).intValue());
+
+        // 数え直しても件数は変わらない
+        server.getApplicationContext().getBean(CatalogCountsReconciler.class).reconcile();
+        summary = client.toBlocking().retrieve(HttpRequest.GET("/statistics"), Map.class);
+        assertEquals(3, ((Number) summary.get("books")).intValue());
+        author = client.toBlocking().retrieve(HttpRequest.GET("/statistics/authors/" + thirdAuthorId), Map.class);
+        assertEquals(1, ((Number) author.get("books")).intValue());
+
+        // 著者を削除すると、著者の書籍の件数も減る
+        request = HttpRequest.DELETE("/authors/" + firstAuthorId);
+        client.toBlocking().exchange(request);
+        summary = client.toBlocking().retrieve(HttpRequest.GET("/statistics"), Map.class);
+        assertEquals(2, ((Number) summary.get("books")).intValue());
+        assertEquals(2, ((Number) summary.get("authors")).intValue());
+
+        // 存在しない著者は404
+        try {
+            client.toBlocking().exchange(HttpRequest.GET("/statistics/authors/" + firstAuthorId));
+            fail();
+        } catch (HttpClientResponseException e) {
+            assertEquals(HttpStatus.NOT_FOUND, e.getResponse().getStatus());
+        }
+
+        // 本ケースで作成したエンティティを削除
+        request = HttpRequest.DELETE("/authors?ids=" + secondAuthorId + "," + thirdAuthorId);
+        HttpResponse response = client.toBlocking().exchange(request);
+        assertEquals(HttpStatus.NO_CONTENT, response.getStatus());
+    }
+
+    private static Long saveAuthor(String name) {
+        HttpResponse response = client.toBlocking().exchange(HttpRequest.POST("/authors", new AuthorSaveCommand(name)));
+        String value = response.header(HttpHeaders.LOCATION);
+        return Long.valueOf(value.substring(value.indexOf("/authors/") + "/authors/".length()));
+    }
+}
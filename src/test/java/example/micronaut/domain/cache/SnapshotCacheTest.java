@@ -0,0 +1,64 @@
+package example.micronaut.domain.cache;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * サーバーを起動せずに、セグメントに分けたキャッシュの上限と無効化を確認します
+ *
+ * @author Yudai Tokunaga
+ */
+public class SnapshotCacheTest {
+
+    @Test
+    public void 全体の件数は上限を超えない() {
+        SnapshotCache<String> cache = new SnapshotCache<>(100, 16);
+        for (long id = 1; id <= 1000; id++) {
+            String value = "book" + id;
+            cache.getOrLoad(id, () -> Optional.of(value));
+        }
+        assertTrue(cache.stats().getSize() <= 100);
+        assertEquals(1000 - cache.stats().getSize(), cache.stats().getEvictions());
+    }
+
+    @Test
+    public void 読み込み中に無効化された値はキャッシュしない() {
+        SnapshotCache<String> cache = new SnapshotCache<>(100, 16);
+        cache.getOrLoad(1L, () -> {
+            cache.invalidate(2L);
+            return Optional.of("古い値");
+        });
+        assertEquals(Optional.empty(), cache.getIfPresent(1L));
+
+        cache.getOrLoad(1L, () -> Optional.of("新しい値"));
+        assertEquals(Optional.of("新しい値"), cache.getIfPresent(1L));
+    }
+
+    @Test
+    public void 条件に一致する値を全てのセグメントから無効化する() {
+        SnapshotCache<String> cache = new SnapshotCache<>(100, 16);
+        Map<Long, String> values = cache.getAllOrLoad(Arrays.asList(1L, 2L, 3L, 4L, 4L), ids -> {
+            assertEquals(Arrays.asList(1L, 2L, 3L, 4L), ids);
+            return Map.of(1L, "odd", 2L, "even", 3L, "odd", 4L, "even");
+        });
+        assertEquals(4, values.size());
+
+        cache.invalidateIf("odd"::equals);
+        assertEquals(2, cache.stats().getSize());
+        assertEquals(Optional.empty(), cache.getIfPresent(1L));
+        assertEquals(Optional.of("even"), cache.getIfPresent(4L));
+
+        // キャッシュ済みのIDは読み込まない
+        assertEquals(Collections.singletonMap(4L, "even"),
+                cache.getAllOrLoad(Collections.singleton(4L), ids -> {
+                    throw new AssertionError(ids);
+                }));
+    }
+}
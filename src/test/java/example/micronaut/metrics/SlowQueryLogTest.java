@@ -0,0 +1,36 @@
+package example.micronaut.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * サーバーを起動せずに、スロークエリログの伏せ字とSQLの受け渡しを確認します
+ *
+ * @author Yudai Tokunaga
+ */
+public class SlowQueryLogTest {
+
+    @Test
+    public void 文字列と数値のリテラルを伏せ字にする() {
+        assertEquals("select * from book where title = ? and version = ?",
+                SlowQueryLog.redact("select * from book where title = '森博嗣' and version = 3"));
+
+        // エスケープされた引用符を含む文字列と、小数
+        assertEquals("update book set title = ?, price = ? where id = ?",
+                SlowQueryLog.redact("update book set title = 'It''s 12', price = 12.5 where id = 42"));
+    }
+
+    @Test
+    public void 識別子の数字とバインドパラメータはそのまま残す() {
+        assertEquals("select book0_.id as id1_1_ from book book0_ where book0_.id in (?, ?)",
+                SlowQueryLog.redact("select book0_.id as id1_1_ from book book0_ where book0_.id in (?, ?)"));
+    }
+
+    @Test
+    public void 準備したSQLは1回だけ取り出せる() {
+        SlowQueryLog.prepared("select 1");
+        assertEquals("select 1", SlowQueryLog.takePrepared());
+        assertEquals(null, SlowQueryLog.takePrepared());
+    }
+}